@@ -27,9 +27,9 @@ public class ImageLoaderDemo {
                 .threadPriority(Thread.MIN_PRIORITY)
                 .discCache(new UnlimitedDiscCache(imageCacheDir))
                 .discCacheFileNameGenerator(new Md5FileNameGenerator())
-                .memoryCache(new UsingFreqLimitedMemoryCache(cacheSize))
+                .memoryCache(new TinyLfuMemoryCache(cacheSize))
                 .denyCacheImageMultipleSizesInMemory()
-                .tasksProcessingOrder(QueueProcessingType.LIFO)
+                .tasksProcessingOrder(QueueProcessingType.PRIORITY)
                 .build();
         ImageLoader.getInstance().init(configuration, imageTokenCallback);
     }
@@ -59,4 +59,21 @@ public class ImageLoaderDemo {
         ImageLoader.getInstance().displayImage(url, imageView, options,listener);
     }
 
+    /**
+     * 在列表Adapter的getView方法中调用。
+     * 引擎只区分可见View和不可见View（或没有View）的任务，
+     * View离可见区域的距离只有调用方知道，需要通过setTaskPriority设置，
+     * 配合QueueProcessingType.PRIORITY使用时可见的item优先加载。
+     *
+     * @param position item在列表中的位置
+     */
+    public static void showImageInList(AbsListView listView, int position, ImageView imageView, String url) {
+        ImageLoader.getInstance().displayImage(url, imageView);
+
+        int first = listView.getFirstVisiblePosition();
+        int last = listView.getLastVisiblePosition();
+        int distance = position < first ? first - position : (position > last ? position - last : 0);
+        ImageLoader.getInstance().setTaskPriority(imageView, distance);
+    }
+
 }
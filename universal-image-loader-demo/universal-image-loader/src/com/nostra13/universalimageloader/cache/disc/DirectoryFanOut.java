@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.disc;
+
+import java.io.File;
+
+/**
+ * Layout of files in disk cache directory. Files can be spread over hashed subdirectories ({@code levels} nested
+ * levels of {@code width} subdirectories each, e.g. <code>cacheDir/3f/a0/fileName</code>) instead of keeping all
+ * files in cache directory itself. Lookups in directory with tens of thousands files are slow on some file systems
+ * (e.g. FAT of external storage), subdirectories keep every directory small.<br />
+ * Subdirectory of file is defined by hash of file name, so no index is needed to find it.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @since 1.9.3
+ */
+public final class DirectoryFanOut {
+
+	/** All files are stored in cache directory itself. It's the layout of previous versions. */
+	public static final DirectoryFanOut FLAT = new DirectoryFanOut(0, 1);
+
+	/** {@value} */
+	public static final int MAX_LEVELS = 4;
+	/** {@value} */
+	public static final int MAX_WIDTH = 256;
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private final int levels;
+	private final int width;
+
+	/**
+	 * @param levels Number of nested subdirectory levels, <b>0</b> - files are stored in cache directory itself. Max
+	 *               value - {@value #MAX_LEVELS}.
+	 * @param width  Number of subdirectories on every level, from <b>2</b> to {@value #MAX_WIDTH}. Ignored if levels
+	 *               is <b>0</b>.
+	 */
+	public DirectoryFanOut(int levels, int width) {
+		if (levels < 0 || levels > MAX_LEVELS) {
+			throw new IllegalArgumentException("levels must be from 0 to " + MAX_LEVELS);
+		}
+		if (levels > 0 && (width < 2 || width > MAX_WIDTH)) {
+			throw new IllegalArgumentException("width must be from 2 to " + MAX_WIDTH);
+		}
+		this.levels = levels;
+		this.width = levels == 0 ? 1 : width;
+	}
+
+	public int getLevels() {
+		return levels;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	/** Returns <b>true</b> - if files are stored in cache directory itself, without subdirectories */
+	public boolean isFlat() {
+		return levels == 0;
+	}
+
+	/** Returns file (which can not exist) for incoming file name. Subdirectories aren't created. */
+	public File getFile(File directory, String fileName) {
+		if (levels == 0) {
+			return new File(directory, fileName);
+		}
+
+		StringBuilder path = new StringBuilder(levels * 3 + fileName.length());
+		long hash = hash(fileName) & 0xFFFFFFFFL;
+		for (int i = 0; i < levels; i++) {
+			int subdirectory = (int) (hash % width);
+			hash /= width;
+			path.append(HEX_DIGITS[subdirectory >> 4]).append(HEX_DIGITS[subdirectory & 0xF]).append(File.separatorChar);
+		}
+		path.append(fileName);
+		return new File(directory, path.toString());
+	}
+
+	/** Returns <b>true</b> - if incoming name can be a name of subdirectory of this layout */
+	public boolean isSubdirectoryName(String name) {
+		if (levels == 0 || name.length() != 2) return false;
+		int high = hexDigitValue(name.charAt(0));
+		int low = hexDigitValue(name.charAt(1));
+		return high >= 0 && low >= 0 && (high << 4 | low) < width;
+	}
+
+	private static int hexDigitValue(char c) {
+		if (c >= '0' && c <= '9') return c - '0';
+		if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+		return -1;
+	}
+
+	/** Spreads bits of name hash code, so close names (e.g. numbers) go to different subdirectories */
+	private static int hash(String fileName) {
+		int h = fileName.hashCode();
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof DirectoryFanOut)) return false;
+		DirectoryFanOut other = (DirectoryFanOut) o;
+		return levels == other.levels && width == other.width;
+	}
+
+	@Override
+	public int hashCode() {
+		return levels * 31 + width;
+	}
+
+	@Override
+	public String toString() {
+		return levels == 0 ? "DirectoryFanOut[flat]" : "DirectoryFanOut[" + levels + " x " + width + "]";
+	}
+}
@@ -15,6 +15,8 @@
  *******************************************************************************/
 package com.nostra13.universalimageloader.cache.disc;
 
+import java.io.File;
+
 /**
  * Interface for disk cache
  *
@@ -22,4 +24,15 @@ package com.nostra13.universalimageloader.cache.disc;
  * @since 1.9.2
  */
 public interface DiskCache extends DiscCacheAware {
+
+	/**
+	 * Returns file of cached image if image is cached. Unlike {@link #get(String)} it's a cheap check which can be
+	 * called for every display request: implementations answer from in-memory index (if they have one) without opening
+	 * cached file.<br />
+	 * Returned file can be removed from cache at any moment, so reading of it can fail.
+	 *
+	 * @param imageUri Original image URI
+	 * @return File of cached image or <b>null</b> if image isn't cached
+	 */
+	File peekFile(String imageUri);
 }
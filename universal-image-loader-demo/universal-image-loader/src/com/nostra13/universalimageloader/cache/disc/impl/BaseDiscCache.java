@@ -16,6 +16,7 @@
 package com.nostra13.universalimageloader.cache.disc.impl;
 
 import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.cache.disc.DirectoryFanOut;
 import com.nostra13.universalimageloader.cache.disc.DiskCache;
 import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
 import com.nostra13.universalimageloader.core.DefaultConfigurationFactory;
@@ -50,6 +51,7 @@ public abstract class BaseDiscCache implements DiskCache {
 	protected final File reserveCacheDir;
 
 	protected final FileNameGenerator fileNameGenerator;
+	protected final DirectoryFanOut fanOut;
 
 	protected int bufferSize = DEFAULT_BUFFER_SIZE;
 
@@ -76,16 +78,33 @@ public abstract class BaseDiscCache implements DiskCache {
 	 *                          Name generator} for cached files
 	 */
 	public BaseDiscCache(File cacheDir, File reserveCacheDir, FileNameGenerator fileNameGenerator) {
+		this(cacheDir, reserveCacheDir, fileNameGenerator, DirectoryFanOut.FLAT);
+	}
+
+	/**
+	 * @param cacheDir          Directory for file caching
+	 * @param reserveCacheDir   null-ok; Reserve directory for file caching. It's used when the primary directory isn't available.
+	 * @param fileNameGenerator {@linkplain com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator
+	 *                          Name generator} for cached files
+	 * @param fanOut            Layout of cached files in subdirectories. Files of flat cache (cached by previous
+	 *                          versions) are moved into subdirectories when they're accessed.
+	 */
+	public BaseDiscCache(File cacheDir, File reserveCacheDir, FileNameGenerator fileNameGenerator,
+			DirectoryFanOut fanOut) {
 		if (cacheDir == null) {
 			throw new IllegalArgumentException("cacheDir" + ERROR_ARG_NULL);
 		}
 		if (fileNameGenerator == null) {
 			throw new IllegalArgumentException("fileNameGenerator" + ERROR_ARG_NULL);
 		}
+		if (fanOut == null) {
+			throw new IllegalArgumentException("fanOut" + ERROR_ARG_NULL);
+		}
 
 		this.cacheDir = cacheDir;
 		this.reserveCacheDir = reserveCacheDir;
 		this.fileNameGenerator = fileNameGenerator;
+		this.fanOut = fanOut;
 	}
 
 	@Override
@@ -98,9 +117,16 @@ public abstract class BaseDiscCache implements DiskCache {
 		return getFile(imageUri);
 	}
 
+	@Override
+	public File peekFile(String imageUri) {
+		File file = get(imageUri);
+		return file != null && file.exists() ? file : null;
+	}
+
 	@Override
 	public boolean save(String imageUri, InputStream imageStream, IoUtils.CopyListener listener) throws IOException {
 		File imageFile = getFile(imageUri);
+		createParentDirectory(imageFile);
 		File tmpFile = new File(imageFile.getAbsolutePath() + TEMP_IMAGE_POSTFIX);
 		boolean loaded = false;
 		try {
@@ -125,6 +151,7 @@ public abstract class BaseDiscCache implements DiskCache {
 	@Override
 	public boolean save(String imageUri, Bitmap bitmap) throws IOException {
 		File imageFile = getFile(imageUri);
+		createParentDirectory(imageFile);
 		File tmpFile = new File(imageFile.getAbsolutePath() + TEMP_IMAGE_POSTFIX);
 		OutputStream os = new BufferedOutputStream(new FileOutputStream(tmpFile), bufferSize);
 		boolean savedSuccessfully = false;
@@ -155,15 +182,26 @@ public abstract class BaseDiscCache implements DiskCache {
 
 	@Override
 	public void clear() {
-		File[] files = cacheDir.listFiles();
+		deleteFiles(cacheDir);
+	}
+
+	/** Deletes files of directory and its subdirectories of {@linkplain #fanOut layout} */
+	private void deleteFiles(File dir) {
+		File[] files = dir.listFiles();
 		if (files != null) {
 			for (File f : files) {
+				if (fanOut.isSubdirectoryName(f.getName()) && f.isDirectory()) {
+					deleteFiles(f);
+				}
 				f.delete();
 			}
 		}
 	}
 
-	/** Returns file object (not null) for incoming image URI. File object can reference to non-existing file. */
+	/**
+	 * Returns file object (not null) for incoming image URI. File object can reference to non-existing file.<br />
+	 * If file of flat cache (cached by previous versions) exists for this URI then it's moved into its subdirectory.
+	 */
 	protected File getFile(String imageUri) {
 		String fileName = fileNameGenerator.generate(imageUri);
 		File dir = cacheDir;
@@ -172,7 +210,21 @@ public abstract class BaseDiscCache implements DiskCache {
 				dir = reserveCacheDir;
 			}
 		}
-		return new File(dir, fileName);
+		File file = fanOut.getFile(dir, fileName);
+		if (!fanOut.isFlat() && !file.exists()) {
+			File flatFile = new File(dir, fileName);
+			if (flatFile.exists()) {
+				createParentDirectory(file);
+				flatFile.renameTo(file);
+			}
+		}
+		return file;
+	}
+
+	private void createParentDirectory(File file) {
+		if (!fanOut.isFlat()) {
+			file.getParentFile().mkdirs();
+		}
 	}
 
 	public void setBufferSize(int bufferSize) {
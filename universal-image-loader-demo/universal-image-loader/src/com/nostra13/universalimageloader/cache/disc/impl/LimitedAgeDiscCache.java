@@ -16,6 +16,7 @@
 package com.nostra13.universalimageloader.cache.disc.impl;
 
 import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.cache.disc.DirectoryFanOut;
 import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
 import com.nostra13.universalimageloader.core.DefaultConfigurationFactory;
 import com.nostra13.universalimageloader.utils.IoUtils;
@@ -65,7 +66,20 @@ public class LimitedAgeDiscCache extends BaseDiscCache {
 	 *                          treatment (and therefore be reloaded).
 	 */
 	public LimitedAgeDiscCache(File cacheDir, File reserveCacheDir, FileNameGenerator fileNameGenerator, long maxAge) {
-		super(cacheDir, reserveCacheDir, fileNameGenerator);
+		this(cacheDir, reserveCacheDir, fileNameGenerator, DirectoryFanOut.FLAT, maxAge);
+	}
+
+	/**
+	 * @param cacheDir          Directory for file caching
+	 * @param reserveCacheDir   null-ok; Reserve directory for file caching. It's used when the primary directory isn't available.
+	 * @param fileNameGenerator Name generator for cached files
+	 * @param fanOut            Layout of cached files in subdirectories
+	 * @param maxAge            Max file age (in seconds). If file age will exceed this value then it'll be removed on next
+	 *                          treatment (and therefore be reloaded).
+	 */
+	public LimitedAgeDiscCache(File cacheDir, File reserveCacheDir, FileNameGenerator fileNameGenerator,
+			DirectoryFanOut fanOut, long maxAge) {
+		super(cacheDir, reserveCacheDir, fileNameGenerator, fanOut);
 		this.maxFileAge = maxAge * 1000; // to milliseconds
 	}
 
@@ -15,6 +15,7 @@
  *******************************************************************************/
 package com.nostra13.universalimageloader.cache.disc.impl;
 
+import com.nostra13.universalimageloader.cache.disc.DirectoryFanOut;
 import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
 
 import java.io.File;
@@ -49,4 +50,16 @@ public class UnlimitedDiscCache extends BaseDiscCache {
 	public UnlimitedDiscCache(File cacheDir, File reserveCacheDir, FileNameGenerator fileNameGenerator) {
 		super(cacheDir, reserveCacheDir, fileNameGenerator);
 	}
+
+	/**
+	 * @param cacheDir          Directory for file caching
+	 * @param reserveCacheDir   null-ok; Reserve directory for file caching. It's used when the primary directory isn't available.
+	 * @param fileNameGenerator {@linkplain com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator
+	 *                          Name generator} for cached files
+	 * @param fanOut            Layout of cached files in subdirectories
+	 */
+	public UnlimitedDiscCache(File cacheDir, File reserveCacheDir, FileNameGenerator fileNameGenerator,
+			DirectoryFanOut fanOut) {
+		super(cacheDir, reserveCacheDir, fileNameGenerator, fanOut);
+	}
 }
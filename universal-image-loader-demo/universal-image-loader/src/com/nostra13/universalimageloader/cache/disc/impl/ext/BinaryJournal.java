@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.disc.impl.ext;
+
+import com.nostra13.universalimageloader.cache.disc.DirectoryFanOut;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Binary format of {@link DiskLruCache} journal. Journal starts with header (magic number, format version, app version,
+ * value count and {@linkplain DirectoryFanOut directory fan-out} levels and width as 4-byte ints) which is followed by
+ * records. Journal of version {@value #VERSION_FLAT} has no fan-out fields, its entries are stored in flat directory.
+ * Every record is:
+ * <ul>
+ * <li>operation (1 byte): {@link #CLEAN}, {@link #DIRTY}, {@link #REMOVE} or {@link #READ};</li>
+ * <li>key length (1 byte) and key (ASCII chars);</li>
+ * <li>lengths of values (8-byte longs, for {@link #CLEAN} records only).</li>
+ * </ul>
+ * Records are parsed without splitting of strings and parsing of numbers, and keys are decoded without charset
+ * lookup, so journal is read much faster than text one.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @since 1.9.3
+ */
+final class BinaryJournal {
+
+	/** "UILJ" */
+	static final int MAGIC = 0x55494c4a;
+	static final int VERSION = 3;
+	/** Previous version, header has no directory fan-out fields */
+	static final int VERSION_FLAT = 2;
+
+	static final byte CLEAN = 1;
+	static final byte DIRTY = 2;
+	static final byte REMOVE = 3;
+	static final byte READ = 4;
+
+	private static final int HEADER_SIZE = 24;
+	private static final int FLAT_HEADER_SIZE = 16;
+	/** Key length is stored in 1 byte */
+	private static final int MAX_KEY_LENGTH = 255;
+
+	private BinaryJournal() {
+	}
+
+	/** Returns header of journal */
+	static byte[] header(int appVersion, int valueCount, DirectoryFanOut fanOut) {
+		byte[] header = new byte[HEADER_SIZE];
+		writeInt(header, 0, MAGIC);
+		writeInt(header, 4, VERSION);
+		writeInt(header, 8, appVersion);
+		writeInt(header, 12, valueCount);
+		writeInt(header, 16, fanOut.getLevels());
+		writeInt(header, 20, fanOut.getWidth());
+		return header;
+	}
+
+	/** Returns size of record (in bytes) */
+	static int recordSize(byte operation, String key, int valueCount) {
+		return 2 + key.length() + (operation == CLEAN ? valueCount * 8 : 0);
+	}
+
+	/** Returns max size of record (in bytes) */
+	static int maxRecordSize(int valueCount) {
+		return 2 + MAX_KEY_LENGTH + valueCount * 8;
+	}
+
+	/**
+	 * Writes record into buffer. Buffer must have {@linkplain #recordSize(byte, String, int) enough space}.
+	 *
+	 * @param lengths Lengths of values (for {@link #CLEAN} record), ignored for other records
+	 * @return Position in buffer after the record
+	 */
+	static int writeRecord(byte[] buffer, int position, byte operation, String key, long[] lengths) {
+		buffer[position++] = operation;
+		int keyLength = key.length();
+		buffer[position++] = (byte) keyLength;
+		for (int i = 0; i < keyLength; i++) {
+			buffer[position++] = (byte) key.charAt(i);
+		}
+		if (operation == CLEAN) {
+			for (long length : lengths) {
+				for (int shift = 56; shift >= 0; shift -= 8) {
+					buffer[position++] = (byte) (length >>> shift);
+				}
+			}
+		}
+		return position;
+	}
+
+	private static void writeInt(byte[] buffer, int position, int value) {
+		buffer[position] = (byte) (value >>> 24);
+		buffer[position + 1] = (byte) (value >>> 16);
+		buffer[position + 2] = (byte) (value >>> 8);
+		buffer[position + 3] = (byte) value;
+	}
+
+	/** Reads journal sequentially using own buffer. Record fields are reused between records. */
+	static final class Reader implements Closeable {
+
+		private static final int BUFFER_SIZE = 16 * 1024;
+
+		private final InputStream in;
+		private final int valueCount;
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+		private final char[] keyChars = new char[MAX_KEY_LENGTH];
+		private int position;
+		private int limit;
+		private boolean truncated;
+		private DirectoryFanOut fanOut;
+
+		private byte operation;
+		private String key;
+		private final long[] lengths;
+
+		Reader(InputStream in, int valueCount) {
+			this.in = in;
+			this.valueCount = valueCount;
+			this.lengths = new long[valueCount];
+		}
+
+		/**
+		 * Reads header and checks that it matches incoming app version and value count. Directory fan-out of journal
+		 * is available via {@link #getFanOut()} then.
+		 */
+		void readHeader(int appVersion) throws IOException {
+			if (!fill(FLAT_HEADER_SIZE)) {
+				throw new EOFException("journal header is truncated");
+			}
+			int magic = readInt();
+			int version = readInt();
+			int journalAppVersion = readInt();
+			int journalValueCount = readInt();
+			if (magic != MAGIC || (version != VERSION && version != VERSION_FLAT) || journalAppVersion != appVersion
+					|| journalValueCount != valueCount) {
+				throw new IOException("unexpected journal header: [" + magic + ", " + version + ", " + journalAppVersion
+						+ ", " + journalValueCount + "]");
+			}
+
+			if (version == VERSION_FLAT) {
+				fanOut = DirectoryFanOut.FLAT;
+			} else {
+				if (!fill(HEADER_SIZE - FLAT_HEADER_SIZE)) {
+					throw new EOFException("journal header is truncated");
+				}
+				int levels = readInt();
+				int width = readInt();
+				try {
+					fanOut = new DirectoryFanOut(levels, width);
+				} catch (IllegalArgumentException e) {
+					throw new IOException("unexpected directory fan-out in journal header: " + levels + " x " + width);
+				}
+			}
+		}
+
+		/** Returns directory fan-out of journal entries. Is defined by {@link #readHeader(int)}. */
+		DirectoryFanOut getFanOut() {
+			return fanOut;
+		}
+
+		/**
+		 * Reads the next record.
+		 *
+		 * @return <b>false</b> - if the end of journal was reached (record fields aren't changed then); <b>true</b> -
+		 * otherwise
+		 * @throws IOException if record is invalid
+		 */
+		boolean next() throws IOException {
+			if (!fill(2)) return false;
+			byte recordOperation = buffer[position];
+			int keyLength = buffer[position + 1] & 0xFF;
+			if (recordOperation < CLEAN || recordOperation > READ || keyLength == 0) {
+				throw new IOException("unexpected journal record: " + recordOperation + ", key length " + keyLength);
+			}
+			int recordSize = 2 + keyLength + (recordOperation == CLEAN ? valueCount * 8 : 0);
+			if (!fill(recordSize)) return false;
+
+			operation = recordOperation;
+			position += 2;
+			for (int i = 0; i < keyLength; i++) {
+				keyChars[i] = (char) buffer[position++];
+			}
+			key = new String(keyChars, 0, keyLength);
+			if (operation == CLEAN) {
+				for (int i = 0; i < valueCount; i++) {
+					long length = 0;
+					for (int b = 0; b < 8; b++) {
+						length = (length << 8) | (buffer[position++] & 0xFF);
+					}
+					lengths[i] = length;
+				}
+			}
+			return true;
+		}
+
+		byte getOperation() {
+			return operation;
+		}
+
+		String getKey() {
+			return key;
+		}
+
+		/** Returns lengths of values of the last {@link #CLEAN} record. Array is reused by the next records. */
+		long[] getLengths() {
+			return lengths;
+		}
+
+		/** Returns true if journal ends with incomplete record (which is ignored) */
+		boolean isTruncated() {
+			return truncated;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+
+		private int readInt() {
+			int value = ((buffer[position] & 0xFF) << 24) | ((buffer[position + 1] & 0xFF) << 16)
+					| ((buffer[position + 2] & 0xFF) << 8) | (buffer[position + 3] & 0xFF);
+			position += 4;
+			return value;
+		}
+
+		/** Makes buffer contain at least <b>count</b> unread bytes. Returns false if journal ends earlier. */
+		private boolean fill(int count) throws IOException {
+			if (limit - position >= count) return true;
+
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			limit -= position;
+			position = 0;
+			while (limit < count) {
+				int read = in.read(buffer, limit, buffer.length - limit);
+				if (read == -1) {
+					truncated = limit > 0;
+					return false;
+				}
+				limit += read;
+			}
+			return true;
+		}
+	}
+}
@@ -15,7 +15,9 @@
  */
 package com.nostra13.universalimageloader.cache.disc.impl.ext;
 
-import java.io.BufferedWriter;
+import com.nostra13.universalimageloader.cache.disc.DirectoryFanOut;
+
+import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.EOFException;
 import java.io.File;
@@ -30,9 +32,13 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -78,6 +84,17 @@ import java.util.regex.Pattern;
  * observe the value at the time that {@link #get} was called. Updates and
  * removals after the call do not impact ongoing reads.
  *
+ * <p>Files of entries can be spread over hashed subdirectories (see
+ * {@link DirectoryFanOut}). If the cache was written with another layout
+ * (e.g. flat cache of previous versions), files are moved to the new layout
+ * in the background while the cache is used.
+ *
+ * <p>The cache lock guards only in-memory state: the LRU index, size
+ * accounting and journal records (which are written to file by
+ * {@link JournalWriter}). Files are opened, and files of removed and evicted
+ * entries are deleted, outside of the cache lock. Eviction removes entries in
+ * small batches, so concurrent reads never wait for deletion of files.
+ *
  * <p>This class is tolerant of some I/O errors. If files are missing from the
  * filesystem, the corresponding entries will be dropped from the cache. If
  * an error occurs while writing a cache value, the edit will fail silently.
@@ -85,9 +102,13 @@ import java.util.regex.Pattern;
  * responding appropriately.
  */
 final class DiskLruCache implements Closeable {
-	static final String JOURNAL_FILE = "journal";
-	static final String JOURNAL_FILE_TEMP = "journal.tmp";
-	static final String JOURNAL_FILE_BACKUP = "journal.bkp";
+	static final String JOURNAL_FILE = "journal.bin";
+	static final String JOURNAL_FILE_TEMP = "journal.bin.tmp";
+	static final String JOURNAL_FILE_BACKUP = "journal.bin.bkp";
+	/** Text journal of previous versions, it's converted to binary one on open */
+	static final String TEXT_JOURNAL_FILE = "journal";
+	static final String TEXT_JOURNAL_FILE_TEMP = "journal.tmp";
+	static final String TEXT_JOURNAL_FILE_BACKUP = "journal.bkp";
 	static final String MAGIC = "libcore.io.DiskLruCache";
 	static final String VERSION_1 = "1";
 	static final long ANY_SEQUENCE_NUMBER = -1;
@@ -96,15 +117,17 @@ final class DiskLruCache implements Closeable {
 	private static final String DIRTY = "DIRTY";
 	private static final String REMOVE = "REMOVE";
 	private static final String READ = "READ";
+	/** Max number of entries which are evicted at once, under one hold of the cache lock. */
+	private static final int EVICTION_BATCH_SIZE = 16;
+	/** Max number of keys accessed by {@link #peekFile(String, int)} which are remembered before writing to journal. */
+	private static final int PEEK_READ_BATCH_SIZE = 64;
+	/** Max number of entries which are moved to new directory layout at once, under one hold of the cache lock. */
+	private static final int MIGRATION_BATCH_SIZE = 16;
 
     /*
-     * This cache uses a journal file named "journal". A typical journal file
-     * looks like this:
-     *     libcore.io.DiskLruCache
-     *     1
-     *     100
-     *     2
-     *
+     * This cache uses a binary journal file named "journal.bin" (see
+     * BinaryJournal for its format). It's a sequence of records, which
+     * look like this if they're printed as text:
      *     CLEAN 3400330d1dfc7f3f7f4b8d4d803dfcf6 832 21054
      *     DIRTY 335c4c6028171cfddfbaae1a9c313c52
      *     CLEAN 335c4c6028171cfddfbaae1a9c313c52 3934 2342
@@ -114,27 +137,63 @@ final class DiskLruCache implements Closeable {
      *     READ 335c4c6028171cfddfbaae1a9c313c52
      *     READ 3400330d1dfc7f3f7f4b8d4d803dfcf6
      *
-     * The first five lines of the journal form its header. They are the
-     * constant string "libcore.io.DiskLruCache", the disk cache's version,
-     * the application's version, the value count, and a blank line.
+     * The journal starts with a header: magic number, journal format version,
+     * the application's version, the value count and the directory fan-out
+     * of entry files.
+     *
+     * Each record is a state of a cache entry: a state, a key, and optional
+     * state-specific values.
+     *   o DIRTY records track that an entry is actively being created or
+     *     updated. Every successful DIRTY action should be followed by a CLEAN
+     *     or REMOVE action. DIRTY records without a matching CLEAN or REMOVE
+     *     indicate that temporary files may need to be deleted.
+     *   o CLEAN records track a cache entry that has been successfully
+     *     published and may be read. A publish record is followed by the
+     *     lengths of each of its values.
+     *   o READ records track accesses for LRU.
+     *   o REMOVE records track entries that have been deleted.
+     *
+     * The journal file is appended to as cache operations occur. The journal is
+     * compacted when it has more redundant records than entries: it's rewritten
+     * as an index snapshot (one CLEAN or DIRTY record per entry in LRU order)
+     * which following operations are appended to. So open() reads the snapshot
+     * in one sequential pass and then replays only the tail of operations which
+     * were made after the last compaction. A temporary file named
+     * "journal.bin.tmp" will be used during compaction; that file should be
+     * deleted if it exists when the cache is opened.
+     *
+     * Previous versions used a text journal named "journal" (one line per
+     * record). It's read once and converted to the binary journal on open.
      *
-     * Each of the subsequent lines in the file is a record of the state of a
-     * cache entry. Each line contains space-separated values: a state, a key,
-     * and optional state-specific values.
-     *   o DIRTY lines track that an entry is actively being created or updated.
-     *     Every successful DIRTY action should be followed by a CLEAN or REMOVE
-     *     action. DIRTY lines without a matching CLEAN or REMOVE indicate that
-     *     temporary files may need to be deleted.
-     *   o CLEAN lines track a cache entry that has been successfully published
-     *     and may be read. A publish line is followed by the lengths of each of
-     *     its values.
-     *   o READ lines track accesses for LRU.
-     *   o REMOVE lines track entries that have been deleted.
+     * If the directory fan-out of the journal differs from the requested one,
+     * entries are migrated: their files are renamed to the new layout by
+     * batches in the background (edited entries are moved when their edit
+     * completes). The journal header keeps the old fan-out until all entries
+     * are moved, then the journal is rebuilt with the new one. If the process
+     * crashes in between, moved entries are looked up in the old layout after
+     * reopening: they miss until the migration (which is restarted) moves them
+     * again, i.e. finds their files in the new layout.
      *
-     * The journal file is appended to as cache operations occur. The journal may
-     * occasionally be compacted by dropping redundant lines. A temporary file named
-     * "journal.tmp" will be used during compaction; that file should be deleted if
-     * it exists when the cache is opened.
+     * Records are appended by JournalWriter in batches (group commit), so cache
+     * operations don't wait for file writes while holding the cache lock. If the
+     * process crashes, the last records (written during about 100 ms) may be
+     * lost:
+     *   o DIRTY records are never lost: edit() returns only after the DIRTY
+     *     record is written, so files of every edit are known to the journal
+     *     and are deleted on open if the edit wasn't completed.
+     *   o A lost CLEAN record leaves the entry DIRTY on open, so the entry is
+     *     deleted (the image will be downloaded again).
+     *   o A lost REMOVE record leaves the entry CLEAN without files, it's
+     *     dropped on first get() or peekFile().
+     *   o A lost READ record only makes the LRU order a bit older.
+     * READ records of peekFile() accesses are written in batches of distinct
+     * keys, so a crash can lose a bit more of them.
+     * The last written record can be truncated by the crash. It's ignored on
+     * open and the journal is rebuilt.
+     *
+     * Files of removed entries are deleted after the REMOVE record is
+     * appended, outside of the cache lock. If the process crashes in between,
+     * these files stay in the cache directory until the cache is cleared.
      */
 
 	private final File directory;
@@ -145,11 +204,26 @@ final class DiskLruCache implements Closeable {
 	private long maxSize;
 	private int maxFileCount;
 	private final int valueCount;
+	/** Layout of entry files in cache directory */
+	private final DirectoryFanOut fanOut;
+	/** Layout of entries which were read from journal of another layout, they're moved to {@link #fanOut} layout */
+	private DirectoryFanOut oldFanOut;
+	/** Number of entries which weren't moved from {@link #oldFanOut} layout yet */
+	private int oldLayoutEntryCount;
+	/** Layout written in header of current journal */
+	private DirectoryFanOut journalFanOut;
 	private long size = 0;
 	private int fileCount = 0;
-	private Writer journalWriter;
+	private JournalWriter journalWriter;
 	private final LinkedHashMap<String, Entry> lruEntries =
 			new LinkedHashMap<String, Entry>(0, 0.75f, true);
+	/**
+	 * Removed entries whose files are not deleted yet. A new edit of the same
+	 * key waits for this deletion, so it can't delete files of the new edit.
+	 */
+	private final Map<String, Entry> deletingEntries = new HashMap<String, Entry>();
+	/** Keys of entries accessed by {@link #peekFile(String, int)} whose READ records aren't appended yet. */
+	private final Set<String> peekedKeys = new LinkedHashSet<String>();
 	private int redundantOpCount;
 
 	/**
@@ -164,12 +238,11 @@ final class DiskLruCache implements Closeable {
 			new ThreadPoolExecutor(0, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
 	private final Callable<Void> cleanupCallable = new Callable<Void>() {
 		public Void call() throws Exception {
+			trimToLimits();
 			synchronized (DiskLruCache.this) {
 				if (journalWriter == null) {
 					return null; // Closed.
 				}
-				trimToSize();
-				trimToFileCount();
 				if (journalRebuildRequired()) {
 					rebuildJournal();
 					redundantOpCount = 0;
@@ -179,7 +252,39 @@ final class DiskLruCache implements Closeable {
 		}
 	};
 
-	private DiskLruCache(File directory, int appVersion, int valueCount, long maxSize, int maxFileCount) {
+	/** Moves files of entries from old directory layout in background, by batches. */
+	private final Callable<Void> migrationCallable = new Callable<Void>() {
+		public Void call() throws Exception {
+			List<Entry> entries;
+			synchronized (DiskLruCache.this) {
+				entries = new ArrayList<Entry>(lruEntries.values());
+			}
+			for (int start = 0; start < entries.size(); start += MIGRATION_BATCH_SIZE) {
+				synchronized (DiskLruCache.this) {
+					if (journalWriter == null) {
+						return null; // Closed. Migration continues on next open.
+					}
+					int end = Math.min(start + MIGRATION_BATCH_SIZE, entries.size());
+					for (Entry entry : entries.subList(start, end)) {
+						// Edited entries are migrated when edit completes
+						if (!entry.removed && entry.currentEditor == null && !entry.layout.equals(fanOut)) {
+							migrate(entry);
+						}
+					}
+				}
+			}
+			synchronized (DiskLruCache.this) {
+				if (journalWriter != null && journalRebuildRequired()) {
+					rebuildJournal();
+					redundantOpCount = 0;
+				}
+			}
+			return null;
+		}
+	};
+
+	private DiskLruCache(File directory, int appVersion, int valueCount, long maxSize, int maxFileCount,
+			DirectoryFanOut fanOut) {
 		this.directory = directory;
 		this.appVersion = appVersion;
 		this.journalFile = new File(directory, JOURNAL_FILE);
@@ -188,6 +293,9 @@ final class DiskLruCache implements Closeable {
 		this.valueCount = valueCount;
 		this.maxSize = maxSize;
 		this.maxFileCount = maxFileCount;
+		this.fanOut = fanOut;
+		this.oldFanOut = fanOut;
+		this.journalFanOut = fanOut;
 	}
 
 	/**
@@ -202,6 +310,23 @@ final class DiskLruCache implements Closeable {
 	 */
 	public static DiskLruCache open(File directory, int appVersion, int valueCount, long maxSize, int maxFileCount)
 			throws IOException {
+		return open(directory, appVersion, valueCount, maxSize, maxFileCount, DirectoryFanOut.FLAT);
+	}
+
+	/**
+	 * Opens the cache in {@code directory}, creating a cache if none exists
+	 * there. If existing cache uses another directory layout, its files are
+	 * moved to the incoming one in the background.
+	 *
+	 * @param directory a writable directory
+	 * @param valueCount the number of values per cache entry. Must be positive.
+	 * @param maxSize the maximum number of bytes this cache should use to store
+	 * @param maxFileCount the maximum file count this cache should store
+	 * @param fanOut the layout of entry files in subdirectories of {@code directory}
+	 * @throws IOException if reading or writing the cache directory fails
+	 */
+	public static DiskLruCache open(File directory, int appVersion, int valueCount, long maxSize, int maxFileCount,
+			DirectoryFanOut fanOut) throws IOException {
 		if (maxSize <= 0) {
 			throw new IllegalArgumentException("maxSize <= 0");
 		}
@@ -211,27 +336,37 @@ final class DiskLruCache implements Closeable {
 		if (valueCount <= 0) {
 			throw new IllegalArgumentException("valueCount <= 0");
 		}
-
-		// If a bkp file exists, use it instead.
-		File backupFile = new File(directory, JOURNAL_FILE_BACKUP);
-		if (backupFile.exists()) {
-			File journalFile = new File(directory, JOURNAL_FILE);
-			// If journal file also exists just delete backup file.
-			if (journalFile.exists()) {
-				backupFile.delete();
-			} else {
-				renameTo(backupFile, journalFile, false);
-			}
+		if (fanOut == null) {
+			throw new IllegalArgumentException("fanOut == null");
 		}
 
+		restoreBackup(directory, JOURNAL_FILE, JOURNAL_FILE_BACKUP);
+		restoreBackup(directory, TEXT_JOURNAL_FILE, TEXT_JOURNAL_FILE_BACKUP);
+
 		// Prefer to pick up where we left off.
-		DiskLruCache cache = new DiskLruCache(directory, appVersion, valueCount, maxSize, maxFileCount);
-		if (cache.journalFile.exists()) {
+		DiskLruCache cache = new DiskLruCache(directory, appVersion, valueCount, maxSize, maxFileCount, fanOut);
+		File textJournalFile = new File(directory, TEXT_JOURNAL_FILE);
+		if (cache.journalFile.exists() || textJournalFile.exists()) {
 			try {
-				cache.readJournal();
-				cache.processJournal();
-				cache.journalWriter = new BufferedWriter(
-						new OutputStreamWriter(new FileOutputStream(cache.journalFile, true), Util.US_ASCII));
+				if (cache.journalFile.exists()) {
+					boolean truncated = cache.readJournal();
+					cache.processJournal();
+					if (truncated) {
+						cache.rebuildJournal(); // Don't append new records to the truncated one
+					} else {
+						cache.journalWriter = new JournalWriter(cache.journalFile, valueCount);
+					}
+				} else {
+					// Convert text journal of previous version
+					cache.readTextJournal(textJournalFile);
+					cache.processJournal();
+					cache.rebuildJournal();
+				}
+				deleteIfExists(textJournalFile);
+				deleteIfExists(new File(directory, TEXT_JOURNAL_FILE_TEMP));
+				if (cache.oldLayoutEntryCount > 0) {
+					cache.executorService.submit(cache.migrationCallable);
+				}
 				return cache;
 			} catch (IOException journalIsCorrupt) {
 				System.out
@@ -246,13 +381,71 @@ final class DiskLruCache implements Closeable {
 
 		// Create a new empty cache.
 		directory.mkdirs();
-		cache = new DiskLruCache(directory, appVersion, valueCount, maxSize, maxFileCount);
+		cache = new DiskLruCache(directory, appVersion, valueCount, maxSize, maxFileCount, fanOut);
 		cache.rebuildJournal();
 		return cache;
 	}
 
-	private void readJournal() throws IOException {
-		StrictLineReader reader = new StrictLineReader(new FileInputStream(journalFile), Util.US_ASCII);
+	/** If a bkp file exists, use it instead. */
+	private static void restoreBackup(File directory, String journalName, String backupName) throws IOException {
+		File backupFile = new File(directory, backupName);
+		if (backupFile.exists()) {
+			File journalFile = new File(directory, journalName);
+			// If journal file also exists just delete backup file.
+			if (journalFile.exists()) {
+				backupFile.delete();
+			} else {
+				renameTo(backupFile, journalFile, false);
+			}
+		}
+	}
+
+	/** Returns true if the last record of journal is truncated (and was ignored) */
+	private boolean readJournal() throws IOException {
+		BinaryJournal.Reader reader = new BinaryJournal.Reader(new FileInputStream(journalFile), valueCount);
+		try {
+			reader.readHeader(appVersion);
+			oldFanOut = reader.getFanOut();
+			journalFanOut = oldFanOut;
+			int recordCount = 0;
+			while (reader.next()) {
+				readJournalRecord(reader.getOperation(), reader.getKey(), reader.getLengths());
+				recordCount++;
+			}
+			redundantOpCount = recordCount - lruEntries.size();
+			return reader.isTruncated();
+		} finally {
+			Util.closeQuietly(reader);
+		}
+	}
+
+	private void readJournalRecord(byte operation, String key, long[] lengths) {
+		if (operation == BinaryJournal.REMOVE) {
+			lruEntries.remove(key);
+			return;
+		}
+
+		Entry entry = lruEntries.get(key);
+		if (entry == null) {
+			entry = new Entry(key, oldFanOut);
+			lruEntries.put(key, entry);
+		}
+
+		if (operation == BinaryJournal.CLEAN) {
+			entry.readable = true;
+			entry.currentEditor = null;
+			System.arraycopy(lengths, 0, entry.lengths, 0, valueCount);
+		} else if (operation == BinaryJournal.DIRTY) {
+			entry.currentEditor = new Editor(entry);
+		}
+		// READ: this work was already done by calling lruEntries.get().
+	}
+
+	/** Reads text journal of previous versions */
+	private void readTextJournal(File textJournalFile) throws IOException {
+		oldFanOut = DirectoryFanOut.FLAT;
+		journalFanOut = oldFanOut;
+		StrictLineReader reader = new StrictLineReader(new FileInputStream(textJournalFile), Util.US_ASCII);
 		try {
 			String magic = reader.readLine();
 			String version = reader.readLine();
@@ -268,22 +461,19 @@ final class DiskLruCache implements Closeable {
 						+ valueCountString + ", " + blank + "]");
 			}
 
-			int lineCount = 0;
 			while (true) {
 				try {
-					readJournalLine(reader.readLine());
-					lineCount++;
+					readTextJournalLine(reader.readLine());
 				} catch (EOFException endOfJournal) {
 					break;
 				}
 			}
-			redundantOpCount = lineCount - lruEntries.size();
 		} finally {
 			Util.closeQuietly(reader);
 		}
 	}
 
-	private void readJournalLine(String line) throws IOException {
+	private void readTextJournalLine(String line) throws IOException {
 		int firstSpace = line.indexOf(' ');
 		if (firstSpace == -1) {
 			throw new IOException("unexpected journal line: " + line);
@@ -304,7 +494,7 @@ final class DiskLruCache implements Closeable {
 
 		Entry entry = lruEntries.get(key);
 		if (entry == null) {
-			entry = new Entry(key);
+			entry = new Entry(key, oldFanOut);
 			lruEntries.put(key, entry);
 		}
 
@@ -341,9 +531,19 @@ final class DiskLruCache implements Closeable {
 					deleteIfExists(entry.getCleanFile(t));
 					deleteIfExists(entry.getDirtyFile(t));
 				}
+				if (!entry.layout.equals(fanOut)) {
+					entry.layout = fanOut; // Files could be already moved by interrupted migration
+					for (int t = 0; t < valueCount; t++) {
+						deleteIfExists(entry.getCleanFile(t));
+						deleteIfExists(entry.getDirtyFile(t));
+					}
+				}
 				i.remove();
 			}
 		}
+		if (!oldFanOut.equals(fanOut)) {
+			oldLayoutEntryCount = lruEntries.size();
+		}
 	}
 
 	/**
@@ -354,29 +554,22 @@ final class DiskLruCache implements Closeable {
 		if (journalWriter != null) {
 			journalWriter.close();
 		}
+		peekedKeys.clear(); // New journal keeps current LRU order
+		// Entries which aren't moved yet must be found in old layout after reopen
+		DirectoryFanOut headerFanOut = oldLayoutEntryCount > 0 ? oldFanOut : fanOut;
 
-		Writer writer = new BufferedWriter(
-				new OutputStreamWriter(new FileOutputStream(journalFileTmp), Util.US_ASCII));
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(journalFileTmp));
 		try {
-			writer.write(MAGIC);
-			writer.write("\n");
-			writer.write(VERSION_1);
-			writer.write("\n");
-			writer.write(Integer.toString(appVersion));
-			writer.write("\n");
-			writer.write(Integer.toString(valueCount));
-			writer.write("\n");
-			writer.write("\n");
+			out.write(BinaryJournal.header(appVersion, valueCount, headerFanOut));
 
+			byte[] record = new byte[BinaryJournal.maxRecordSize(valueCount)];
 			for (Entry entry : lruEntries.values()) {
-				if (entry.currentEditor != null) {
-					writer.write(DIRTY + ' ' + entry.key + '\n');
-				} else {
-					writer.write(CLEAN + ' ' + entry.key + entry.getLengths() + '\n');
-				}
+				byte operation = entry.currentEditor != null ? BinaryJournal.DIRTY : BinaryJournal.CLEAN;
+				int recordSize = BinaryJournal.writeRecord(record, 0, operation, entry.key, entry.lengths);
+				out.write(record, 0, recordSize);
 			}
 		} finally {
-			writer.close();
+			out.close();
 		}
 
 		if (journalFile.exists()) {
@@ -384,9 +577,9 @@ final class DiskLruCache implements Closeable {
 		}
 		renameTo(journalFileTmp, journalFile, false);
 		journalFileBackup.delete();
+		journalFanOut = headerFanOut;
 
-		journalWriter = new BufferedWriter(
-				new OutputStreamWriter(new FileOutputStream(journalFile, true), Util.US_ASCII));
+		journalWriter = new JournalWriter(journalFile, valueCount);
 	}
 
 	private static void deleteIfExists(File file) throws IOException {
@@ -409,49 +602,136 @@ final class DiskLruCache implements Closeable {
 	 * exist is not currently readable. If a value is returned, it is moved to
 	 * the head of the LRU queue.
 	 */
-	public synchronized Snapshot get(String key) throws IOException {
-		checkNotClosed();
-		validateKey(key);
-		Entry entry = lruEntries.get(key);
-		if (entry == null) {
-			return null;
-		}
+	public Snapshot get(String key) throws IOException {
+		Entry entry;
+		long sequenceNumber;
+		File[] files = new File[valueCount];
+		synchronized (this) {
+			checkNotClosed();
+			validateKey(key);
+			entry = lruEntries.get(key);
+			if (entry == null) {
+				return null;
+			}
 
-		if (!entry.readable) {
-			return null;
+			if (!entry.readable) {
+				return null;
+			}
+			sequenceNumber = entry.sequenceNumber;
+			for (int i = 0; i < valueCount; i++) {
+				files[i] = entry.getCleanFile(i); // Layout of entry can be changed by migration
+			}
 		}
 
 		// Open all streams eagerly to guarantee that we see a single published
 		// snapshot. If we opened streams lazily then the streams could come
-		// from different edits.
-		File[] files = new File[valueCount];
+		// from different edits. Streams are opened out of cache lock, so the
+		// entry is checked again below.
 		InputStream[] ins = new InputStream[valueCount];
+		int opened = 0;
 		try {
-			File file;
-			for (int i = 0; i < valueCount; i++) {
-				file = entry.getCleanFile(i);
-				files[i] = file;
-				ins[i] = new FileInputStream(file);
+			for (; opened < valueCount; opened++) {
+				ins[opened] = new FileInputStream(files[opened]);
 			}
 		} catch (FileNotFoundException e) {
 			// A file must have been deleted manually!
-			for (int i = 0; i < valueCount; i++) {
-				if (ins[i] != null) {
-					Util.closeQuietly(ins[i]);
-				} else {
-					break;
+			for (int i = 0; i < opened; i++) {
+				Util.closeQuietly(ins[i]);
+			}
+			removeIfFileMissing(entry, sequenceNumber, opened, files[opened]);
+			return null;
+		}
+
+		synchronized (this) {
+			if (journalWriter == null || lruEntries.get(key) != entry || entry.sequenceNumber != sequenceNumber) {
+				// Entry was removed or committed again (or cache was closed) while streams were being opened
+				for (InputStream in : ins) {
+					Util.closeQuietly(in);
 				}
+				return null;
+			}
+
+			redundantOpCount++;
+			journalWriter.append(BinaryJournal.READ, key, null);
+			if (journalRebuildRequired()) {
+				executorService.submit(cleanupCallable);
 			}
+
+			return new Snapshot(key, sequenceNumber, files, ins, entry.lengths);
+		}
+	}
+
+	/**
+	 * Returns the file of value at {@code index} of the entry named
+	 * {@code key}, or null if it doesn't exist or is not currently readable.
+	 * Unlike {@link #get} the file isn't opened, so it can be deleted (by
+	 * eviction, removal or manually) after this call. If a file is returned,
+	 * the entry is moved to the head of the LRU queue; its READ record is
+	 * appended later in a batch with other peeked keys. If the file was
+	 * deleted outside of the cache then the entry is removed.
+	 */
+	public File peekFile(String key, int index) throws IOException {
+		Entry entry;
+		long sequenceNumber;
+		File file;
+		synchronized (this) {
+			checkNotClosed();
+			validateKey(key);
+			entry = lruEntries.get(key);
+			if (entry == null || !entry.readable) {
+				return null;
+			}
+			sequenceNumber = entry.sequenceNumber;
+			file = entry.getCleanFile(index);
+
+			peekedKeys.remove(key); // Keep keys in access order
+			peekedKeys.add(key);
+			if (peekedKeys.size() >= PEEK_READ_BATCH_SIZE) {
+				appendPeekedReads();
+			}
+		}
+
+		// File is checked out of cache lock
+		if (!file.exists()) {
+			// File was deleted manually (or REMOVE record was lost), entry can't be read anymore
+			removeIfFileMissing(entry, sequenceNumber, index, file);
 			return null;
 		}
+		return file;
+	}
 
-		redundantOpCount++;
-		journalWriter.append(READ + ' ' + key + '\n');
+	/**
+	 * Removes the entry whose file {@code missingFile} of value at
+	 * {@code index} wasn't found (out of cache lock) if the entry wasn't
+	 * changed since then: it's still in the cache with the same sequence
+	 * number, isn't edited and its file wasn't moved by migration.
+	 */
+	private void removeIfFileMissing(Entry entry, long sequenceNumber, int index, File missingFile)
+			throws IOException {
+		synchronized (this) {
+			if (journalWriter == null || lruEntries.get(entry.key) != entry || entry.sequenceNumber != sequenceNumber
+					|| entry.currentEditor != null || !entry.getCleanFile(index).equals(missingFile)) {
+				return;
+			}
+			lruEntries.remove(entry.key);
+			detach(entry);
+		}
+
+		deleteFiles(entry);
+	}
+
+	/** Appends READ records for peeked keys. Caller must hold the cache lock. */
+	private void appendPeekedReads() throws IOException {
+		for (String key : peekedKeys) {
+			if (lruEntries.containsKey(key)) { // READ of removed entry would restore it on open
+				redundantOpCount++;
+				journalWriter.append(BinaryJournal.READ, key, null);
+			}
+		}
+		peekedKeys.clear();
 		if (journalRebuildRequired()) {
 			executorService.submit(cleanupCallable);
 		}
-
-		return new Snapshot(key, entry.sequenceNumber, files, ins, entry.lengths);
 	}
 
 	/**
@@ -462,27 +742,46 @@ final class DiskLruCache implements Closeable {
 		return edit(key, ANY_SEQUENCE_NUMBER);
 	}
 
-	private synchronized Editor edit(String key, long expectedSequenceNumber) throws IOException {
-		checkNotClosed();
-		validateKey(key);
-		Entry entry = lruEntries.get(key);
-		if (expectedSequenceNumber != ANY_SEQUENCE_NUMBER && (entry == null
-				|| entry.sequenceNumber != expectedSequenceNumber)) {
-			return null; // Snapshot is stale.
-		}
-		if (entry == null) {
-			entry = new Entry(key);
-			lruEntries.put(key, entry);
-		} else if (entry.currentEditor != null) {
-			return null; // Another edit is in progress.
+	private Editor edit(String key, long expectedSequenceNumber) throws IOException {
+		Editor editor;
+		JournalWriter journal;
+		long dirtyRecord;
+		Entry removedEntry;
+		synchronized (this) {
+			checkNotClosed();
+			validateKey(key);
+			Entry entry = lruEntries.get(key);
+			if (expectedSequenceNumber != ANY_SEQUENCE_NUMBER && (entry == null
+					|| entry.sequenceNumber != expectedSequenceNumber)) {
+				return null; // Snapshot is stale.
+			}
+			if (entry == null) {
+				entry = new Entry(key, fanOut);
+				lruEntries.put(key, entry);
+			} else if (entry.currentEditor != null) {
+				return null; // Another edit is in progress.
+			}
+
+			editor = new Editor(entry);
+			entry.currentEditor = editor;
+			journal = journalWriter;
+			dirtyRecord = journal.append(BinaryJournal.DIRTY, key, null);
+			removedEntry = deletingEntries.get(key);
 		}
 
-		Editor editor = new Editor(entry);
-		entry.currentEditor = editor;
+		if (removedEntry != null) {
+			// Files of the removed entry have the same names, so they must be deleted before new files are created
+			try {
+				deleteFiles(removedEntry);
+			} catch (IOException e) {
+				editor.abortUnlessCommitted();
+				throw e;
+			}
+		}
 
-		// Flush the journal before creating files to prevent file leaks.
-		journalWriter.write(DIRTY + ' ' + key + '\n');
-		journalWriter.flush();
+		// Flush the journal before creating files to prevent file leaks. It's done
+		// out of cache lock so concurrent edits share one flush.
+		journal.awaitFlushed(dirtyRecord);
 		return editor;
 	}
 
@@ -561,7 +860,9 @@ final class DiskLruCache implements Closeable {
 					long newLength = clean.length();
 					entry.lengths[i] = newLength;
 					size = size - oldLength + newLength;
-					fileCount++;
+					if (!entry.readable) {
+						fileCount++; // Updated value replaces existing file
+					}
 				}
 			} else {
 				deleteIfExists(dirty);
@@ -572,15 +873,18 @@ final class DiskLruCache implements Closeable {
 		entry.currentEditor = null;
 		if (entry.readable | success) {
 			entry.readable = true;
-			journalWriter.write(CLEAN + ' ' + entry.key + entry.getLengths() + '\n');
+			journalWriter.append(BinaryJournal.CLEAN, entry.key, entry.lengths);
 			if (success) {
 				entry.sequenceNumber = nextSequenceNumber++;
 			}
 		} else {
 			lruEntries.remove(entry.key);
-			journalWriter.write(REMOVE + ' ' + entry.key + '\n');
+			markRemoved(entry);
+			journalWriter.append(BinaryJournal.REMOVE, entry.key, null);
+		}
+		if (!entry.removed && !entry.layout.equals(fanOut)) {
+			migrate(entry); // Migration skipped this entry while it was edited
 		}
-		journalWriter.flush();
 
 		if (size > maxSize || fileCount > maxFileCount || journalRebuildRequired()) {
 			executorService.submit(cleanupCallable);
@@ -589,12 +893,40 @@ final class DiskLruCache implements Closeable {
 
 	/**
 	 * We only rebuild the journal when it will halve the size of the journal
-	 * and eliminate at least 2000 ops.
+	 * and eliminate at least 2000 ops, or when all entries are moved to new
+	 * directory layout (so the journal header must be changed).
 	 */
 	private boolean journalRebuildRequired() {
 		final int redundantOpCompactThreshold = 2000;
 		return redundantOpCount >= redundantOpCompactThreshold //
-				&& redundantOpCount >= lruEntries.size();
+				&& redundantOpCount >= lruEntries.size()
+				|| oldLayoutEntryCount == 0 && !journalFanOut.equals(fanOut);
+	}
+
+	/**
+	 * Moves files of the entry from old directory layout. Files which are
+	 * missing (e.g. moved before crash) are skipped. Caller must hold the
+	 * cache lock, the entry must not be edited.
+	 */
+	private void migrate(Entry entry) {
+		for (int i = 0; i < valueCount; i++) {
+			File from = entry.getCleanFile(i);
+			File to = fanOut.getFile(directory, entry.key + "." + i);
+			if (!from.renameTo(to)) {
+				to.getParentFile().mkdirs();
+				from.renameTo(to);
+			}
+		}
+		entry.layout = fanOut;
+		oldLayoutEntryCount--;
+	}
+
+	/** Marks the entry which was removed from {@link #lruEntries}. Caller must hold the cache lock. */
+	private void markRemoved(Entry entry) {
+		entry.removed = true;
+		if (!entry.layout.equals(fanOut)) {
+			oldLayoutEntryCount--;
+		}
 	}
 
 	/**
@@ -603,33 +935,71 @@ final class DiskLruCache implements Closeable {
 	 *
 	 * @return true if an entry was removed.
 	 */
-	public synchronized boolean remove(String key) throws IOException {
-		checkNotClosed();
-		validateKey(key);
-		Entry entry = lruEntries.get(key);
-		if (entry == null || entry.currentEditor != null) {
-			return false;
+	public boolean remove(String key) throws IOException {
+		Entry entry;
+		synchronized (this) {
+			checkNotClosed();
+			validateKey(key);
+			entry = lruEntries.get(key);
+			if (entry == null || entry.currentEditor != null) {
+				return false;
+			}
+
+			lruEntries.remove(key);
+			detach(entry);
 		}
 
+		deleteFiles(entry);
+		return true;
+	}
+
+	/**
+	 * Accounts removal of the entry (which is already removed from
+	 * {@link #lruEntries}) and registers it for deletion of its files. Caller
+	 * must hold the cache lock and then call {@link #deleteFiles(Entry)}.
+	 */
+	private void detach(Entry entry) throws IOException {
+		markRemoved(entry);
+		deletingEntries.put(entry.key, entry);
 		for (int i = 0; i < valueCount; i++) {
-			File file = entry.getCleanFile(i);
-			if (file.exists() && !file.delete()) {
-				throw new IOException("failed to delete " + file);
-			}
 			size -= entry.lengths[i];
 			fileCount--;
 			entry.lengths[i] = 0;
 		}
 
 		redundantOpCount++;
-		journalWriter.append(REMOVE + ' ' + key + '\n');
-		lruEntries.remove(key);
+		journalWriter.append(BinaryJournal.REMOVE, entry.key, null);
 
 		if (journalRebuildRequired()) {
 			executorService.submit(cleanupCallable);
 		}
+	}
 
-		return true;
+	/**
+	 * Deletes files of the detached entry. Must be called without the cache
+	 * lock. Files are deleted once, concurrent callers wait for the deletion.
+	 */
+	private void deleteFiles(Entry entry) throws IOException {
+		try {
+			synchronized (entry) {
+				if (entry.filesDeleted) {
+					return;
+				}
+				entry.filesDeleted = true;
+				for (int i = 0; i < valueCount; i++) {
+					File file = entry.getCleanFile(i);
+					if (file.exists() && !file.delete()) {
+						throw new IOException("failed to delete " + file);
+					}
+				}
+			}
+		} finally {
+			synchronized (this) {
+				if (deletingEntries.get(entry.key) == entry) {
+					deletingEntries.remove(entry.key);
+				}
+			}
+		}
 	}
 
 	/** Returns true if this cache has been closed. */
@@ -644,40 +1014,73 @@ final class DiskLruCache implements Closeable {
 	}
 
 	/** Force buffered operations to the filesystem. */
-	public synchronized void flush() throws IOException {
-		checkNotClosed();
-		trimToSize();
-		trimToFileCount();
-		journalWriter.flush();
+	public void flush() throws IOException {
+		JournalWriter journal;
+		synchronized (this) {
+			checkNotClosed();
+			appendPeekedReads();
+			journal = journalWriter;
+		}
+		trimToLimits();
+		journal.flush();
 	}
 
 	/** Closes this cache. Stored values will remain on the filesystem. */
-	public synchronized void close() throws IOException {
-		if (journalWriter == null) {
-			return; // Already closed.
-		}
-		for (Entry entry : new ArrayList<Entry>(lruEntries.values())) {
-			if (entry.currentEditor != null) {
-				entry.currentEditor.abort();
+	public void close() throws IOException {
+		trimToLimits();
+		List<Entry> removedEntries;
+		synchronized (this) {
+			if (journalWriter == null) {
+				return; // Already closed.
+			}
+			for (Entry entry : new ArrayList<Entry>(lruEntries.values())) {
+				if (entry.currentEditor != null) {
+					entry.currentEditor.abort();
+				}
 			}
+			appendPeekedReads();
+			journalWriter.close();
+			journalWriter = null;
+			removedEntries = new ArrayList<Entry>(deletingEntries.values());
 		}
-		trimToSize();
-		trimToFileCount();
-		journalWriter.close();
-		journalWriter = null;
-	}
-
-	private void trimToSize() throws IOException {
-		while (size > maxSize) {
-			Map.Entry<String, Entry> toEvict = lruEntries.entrySet().iterator().next();
-			remove(toEvict.getKey());
+		// Wait for deletions which are in progress
+		for (Entry entry : removedEntries) {
+			deleteFiles(entry);
 		}
 	}
 
-	private void trimToFileCount() throws IOException {
-		while (fileCount > maxFileCount) {
-			Map.Entry<String, Entry> toEvict = lruEntries.entrySet().iterator().next();
-			remove(toEvict.getKey());
+	/**
+	 * Evicts the eldest entries until size and file count are within limits.
+	 * Entries are removed by batches of {@value #EVICTION_BATCH_SIZE} and their
+	 * files are deleted out of the cache lock. Entries being edited are skipped.
+	 */
+	private void trimToLimits() throws IOException {
+		List<Entry> evictedEntries = new ArrayList<Entry>(EVICTION_BATCH_SIZE);
+		while (true) {
+			synchronized (this) {
+				if (journalWriter == null) {
+					return; // Closed.
+				}
+				Iterator<Entry> i = lruEntries.values().iterator();
+				while ((size > maxSize || fileCount > maxFileCount) && evictedEntries.size() < EVICTION_BATCH_SIZE
+						&& i.hasNext()) {
+					Entry entry = i.next();
+					if (entry.currentEditor != null) {
+						continue;
+					}
+					i.remove();
+					detach(entry);
+					evictedEntries.add(entry);
+				}
+			}
+
+			if (evictedEntries.isEmpty()) {
+				return;
+			}
+			for (Entry entry : evictedEntries) {
+				deleteFiles(entry);
+			}
+			evictedEntries.clear();
 		}
 	}
 
@@ -785,11 +1188,12 @@ final class DiskLruCache implements Closeable {
 				if (!entry.readable) {
 					return null;
 				}
-				try {
-					return new FileInputStream(entry.getCleanFile(index));
-				} catch (FileNotFoundException e) {
-					return null;
-				}
+			}
+			// Clean files of the entry can't be changed while it's edited
+			try {
+				return new FileInputStream(entry.getCleanFile(index));
+			} catch (FileNotFoundException e) {
+				return null;
 			}
 		}
 
@@ -817,22 +1221,23 @@ final class DiskLruCache implements Closeable {
 				if (!entry.readable) {
 					written[index] = true;
 				}
-				File dirtyFile = entry.getDirtyFile(index);
-				FileOutputStream outputStream;
+			}
+			// Dirty files are used only by current editor
+			File dirtyFile = entry.getDirtyFile(index);
+			FileOutputStream outputStream;
+			try {
+				outputStream = new FileOutputStream(dirtyFile);
+			} catch (FileNotFoundException e) {
+				// Attempt to recreate the cache directory (or subdirectory of entry).
+				dirtyFile.getParentFile().mkdirs();
 				try {
 					outputStream = new FileOutputStream(dirtyFile);
-				} catch (FileNotFoundException e) {
-					// Attempt to recreate the cache directory.
-					directory.mkdirs();
-					try {
-						outputStream = new FileOutputStream(dirtyFile);
-					} catch (FileNotFoundException e2) {
-						// We are unable to recover. Silently eat the writes.
-						return NULL_OUTPUT_STREAM;
-					}
+				} catch (FileNotFoundException e2) {
+					// We are unable to recover. Silently eat the writes.
+					return NULL_OUTPUT_STREAM;
 				}
-				return new FaultHidingOutputStream(outputStream);
 			}
+			return new FaultHidingOutputStream(outputStream);
 		}
 
 		/** Sets the value at {@code index} to {@code value}. */
@@ -931,17 +1336,19 @@ final class DiskLruCache implements Closeable {
 		/** The sequence number of the most recently committed edit to this entry. */
 		private long sequenceNumber;
 
-		private Entry(String key) {
+		/** True if this entry was removed from the cache. */
+		private boolean removed;
+
+		/** True if files of this removed entry were deleted. Guarded by the entry itself. */
+		private boolean filesDeleted;
+
+		/** Layout of this entry's files. Isn't changed while the entry is edited or after it's removed. */
+		private DirectoryFanOut layout;
+
+		private Entry(String key, DirectoryFanOut layout) {
 			this.key = key;
 			this.lengths = new long[valueCount];
-		}
-
-		public String getLengths() throws IOException {
-			StringBuilder result = new StringBuilder();
-			for (long size : lengths) {
-				result.append(' ').append(size);
-			}
-			return result.toString();
+			this.layout = layout;
 		}
 
 		/** Set lengths using decimal numbers like "10123". */
@@ -964,11 +1371,11 @@ final class DiskLruCache implements Closeable {
 		}
 
 		public File getCleanFile(int i) {
-			return new File(directory, key + "." + i);
+			return layout.getFile(directory, key + "." + i);
 		}
 
 		public File getDirtyFile(int i) {
-			return new File(directory, key + "." + i + ".tmp");
+			return layout.getFile(directory, key + "." + i + ".tmp");
 		}
 	}
 }
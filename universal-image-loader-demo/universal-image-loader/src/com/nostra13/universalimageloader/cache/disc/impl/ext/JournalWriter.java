@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.disc.impl.ext;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Appends records to {@link DiskLruCache} journal using group commit. {@linkplain #append(byte, String, long[]) Appended}
+ * {@linkplain BinaryJournal binary} records
+ * are buffered in memory and written to file in batches:
+ * <ul>
+ * <li>by background flusher thread every {@value #DEFAULT_MAX_DELAY} ms (while records are appended) or when buffered
+ * records take more than {@value #DEFAULT_MAX_BATCH_SIZE} bytes;</li>
+ * <li>by thread which {@linkplain #awaitFlushed(long) waits} for its record. While one thread writes a batch, other
+ * waiting threads append their records to the next batch, which is written by one of them. So concurrent waiters share
+ * flushes instead of flushing the file one by one.</li>
+ * </ul>
+ * Records are written with {@link OutputStream#write(byte[], int, int)}, i.e. they're passed to OS but not synced to
+ * storage device (as journal of {@link DiskLruCache} always did).<br />
+ * If writing fails then journal becomes broken and all subsequent calls throw {@link IOException}.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @since 1.9.3
+ */
+final class JournalWriter implements Closeable {
+
+	/** {@value} ms */
+	static final long DEFAULT_MAX_DELAY = 100;
+	/** {@value} bytes */
+	static final int DEFAULT_MAX_BATCH_SIZE = 8 * 1024;
+
+	private static final String FLUSHER_THREAD_NAME = "uil-journal-flusher";
+
+	private final OutputStream out;
+	private final int valueCount;
+	private final long maxDelay;
+	private final int maxBatchSize;
+
+	/** Guards buffered records, counters and state */
+	private final Object lock = new Object();
+	/** Serializes writing of batches into file */
+	private final Object writeLock = new Object();
+	/** Buffered records. Buffer is swapped with {@link #batch} when it's written. */
+	private byte[] pending = new byte[256];
+	private int pendingSize;
+	/** Batch which is being written, guarded by {@link #writeLock} */
+	private byte[] batch = new byte[256];
+	/** Number of appended records */
+	private long appendedCount;
+	/** Number of records which were written into file */
+	private long flushedCount;
+	private IOException writeError;
+	private boolean closed;
+	/** Whether flusher thread waits for the first record after a period without records */
+	private boolean flusherIdle;
+
+	JournalWriter(File file, int valueCount) throws IOException {
+		this(file, valueCount, DEFAULT_MAX_DELAY, DEFAULT_MAX_BATCH_SIZE);
+	}
+
+	/**
+	 * @param file         Journal file. Records are appended to its end.
+	 * @param valueCount   Number of values per cache entry
+	 * @param maxDelay     Max time (in milliseconds) which records can stay in memory before writing
+	 * @param maxBatchSize Size of buffered records (in bytes) which are written without waiting for delay
+	 */
+	JournalWriter(File file, int valueCount, long maxDelay, int maxBatchSize) throws IOException {
+		this.out = new FileOutputStream(file, true);
+		this.valueCount = valueCount;
+		this.maxDelay = maxDelay;
+		this.maxBatchSize = maxBatchSize;
+
+		Thread flusher = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				flushPeriodically();
+			}
+		}, FLUSHER_THREAD_NAME);
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	/**
+	 * Adds record to journal. Record is written into file later.
+	 *
+	 * @param operation One of {@link BinaryJournal} operations
+	 * @param lengths   Lengths of values for {@link BinaryJournal#CLEAN} record, <b>null</b> for other records
+	 * @return Number of appended record, can be passed to {@link #awaitFlushed(long)}
+	 */
+	long append(byte operation, String key, long[] lengths) throws IOException {
+		synchronized (lock) {
+			if (closed) {
+				throw new IllegalStateException("journal is closed");
+			}
+			checkNoWriteError();
+
+			int recordSize = BinaryJournal.recordSize(operation, key, valueCount);
+			if (pending.length - pendingSize < recordSize) {
+				byte[] newPending = new byte[Math.max(pendingSize + recordSize, pending.length * 2)];
+				System.arraycopy(pending, 0, newPending, 0, pendingSize);
+				pending = newPending;
+			}
+			pendingSize = BinaryJournal.writeRecord(pending, pendingSize, operation, key, lengths);
+			appendedCount++;
+			if (flusherIdle || pendingSize >= maxBatchSize) {
+				lock.notifyAll(); // wake up flusher
+			}
+			return appendedCount;
+		}
+	}
+
+	/** Blocks until record with incoming number is written into file. Writes pending batch itself if needed. */
+	void awaitFlushed(long recordNumber) throws IOException {
+		synchronized (lock) {
+			if (flushedCount >= recordNumber) return;
+		}
+		writePending(recordNumber);
+	}
+
+	/** Writes all buffered records into file */
+	void flush() throws IOException {
+		writePending(Long.MAX_VALUE);
+	}
+
+	/** Writes buffered records and closes journal file. Flusher thread stops. */
+	@Override
+	public void close() throws IOException {
+		synchronized (lock) {
+			if (closed) return;
+			closed = true;
+			lock.notifyAll();
+		}
+		try {
+			writePending(Long.MAX_VALUE);
+		} finally {
+			out.close();
+		}
+	}
+
+	/** Writes buffered records (as one batch) if record with incoming number isn't written yet */
+	private void writePending(long recordNumber) throws IOException {
+		synchronized (writeLock) {
+			int batchSize;
+			long batchEnd;
+			synchronized (lock) {
+				checkNoWriteError();
+				if (flushedCount >= recordNumber || pendingSize == 0) return;
+
+				byte[] full = pending;
+				pending = batch;
+				batch = full;
+				batchSize = pendingSize;
+				pendingSize = 0;
+				batchEnd = appendedCount;
+			}
+
+			try {
+				out.write(batch, 0, batchSize);
+			} catch (IOException e) {
+				synchronized (lock) {
+					writeError = e;
+				}
+				throw e;
+			}
+
+			synchronized (lock) {
+				flushedCount = batchEnd;
+			}
+		}
+	}
+
+	private void checkNoWriteError() throws IOException {
+		if (writeError != null) {
+			throw new IOException("journal write failed: " + writeError.getMessage());
+		}
+	}
+
+	/**
+	 * Loop of flusher thread: writes buffered records every period or when batch is large enough. Thread becomes idle
+	 * after a period without records, so it isn't woken up on every record under load.
+	 */
+	private void flushPeriodically() {
+		try {
+			while (true) {
+				synchronized (lock) {
+					long lastAppendedCount = appendedCount;
+					if (pendingSize < maxBatchSize) {
+						lock.wait(maxDelay);
+					}
+					if (!closed && pendingSize == 0 && appendedCount == lastAppendedCount) {
+						flusherIdle = true;
+						while (!closed && pendingSize == 0) {
+							lock.wait();
+						}
+						flusherIdle = false;
+						continue; // wait for delay of the first record
+					}
+					if (closed) return; // closing thread writes the rest
+				}
+				writePending(Long.MAX_VALUE);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			// Error is remembered and thrown to the next caller of journal
+		}
+	}
+}
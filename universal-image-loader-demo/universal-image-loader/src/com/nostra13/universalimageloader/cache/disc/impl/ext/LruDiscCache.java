@@ -16,6 +16,7 @@
 package com.nostra13.universalimageloader.cache.disc.impl.ext;
 
 import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.cache.disc.DirectoryFanOut;
 import com.nostra13.universalimageloader.cache.disc.DiskCache;
 import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
 import com.nostra13.universalimageloader.utils.IoUtils;
@@ -49,6 +50,7 @@ public class LruDiscCache implements DiskCache {
 
 	protected DiskLruCache cache;
 	private File reserveCacheDir;
+	private final DirectoryFanOut fanOut;
 
 	protected final FileNameGenerator fileNameGenerator;
 
@@ -81,6 +83,23 @@ public class LruDiscCache implements DiskCache {
 	 */
 	public LruDiscCache(File cacheDir, File reserveCacheDir, FileNameGenerator fileNameGenerator, long cacheMaxSize,
 			int cacheMaxFileCount) throws IOException {
+		this(cacheDir, reserveCacheDir, fileNameGenerator, cacheMaxSize, cacheMaxFileCount, DirectoryFanOut.FLAT);
+	}
+
+	/**
+	 * @param cacheDir          Directory for file caching
+	 * @param reserveCacheDir   null-ok; Reserve directory for file caching. It's used when the primary directory isn't available.
+	 * @param fileNameGenerator {@linkplain com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator
+	 *                          Name generator} for cached files. Generated names must match the regex
+	 *                          <strong>[a-z0-9_-]{1,64}</strong>
+	 * @param cacheMaxSize      Max cache size in bytes. <b>0</b> means cache size is unlimited.
+	 * @param cacheMaxFileCount Max file count in cache. <b>0</b> means file count is unlimited.
+	 * @param fanOut            Layout of cached files in subdirectories. Files of existing cache of another layout
+	 *                          are moved in background.
+	 * @throws IOException if cache can't be initialized (e.g. "No space left on device")
+	 */
+	public LruDiscCache(File cacheDir, File reserveCacheDir, FileNameGenerator fileNameGenerator, long cacheMaxSize,
+			int cacheMaxFileCount, DirectoryFanOut fanOut) throws IOException {
 		if (cacheDir == null) {
 			throw new IllegalArgumentException("cacheDir" + ERROR_ARG_NULL);
 		}
@@ -93,6 +112,9 @@ public class LruDiscCache implements DiskCache {
 		if (fileNameGenerator == null) {
 			throw new IllegalArgumentException("fileNameGenerator" + ERROR_ARG_NULL);
 		}
+		if (fanOut == null) {
+			throw new IllegalArgumentException("fanOut" + ERROR_ARG_NULL);
+		}
 
 		if (cacheMaxSize == 0) {
 			cacheMaxSize = Long.MAX_VALUE;
@@ -103,13 +125,14 @@ public class LruDiscCache implements DiskCache {
 
 		this.reserveCacheDir = reserveCacheDir;
 		this.fileNameGenerator = fileNameGenerator;
+		this.fanOut = fanOut;
 		initCache(cacheDir, reserveCacheDir, cacheMaxSize, cacheMaxFileCount);
 	}
 
 	private void initCache(File cacheDir, File reserveCacheDir, long cacheMaxSize, int cacheMaxFileCount)
 			throws IOException {
 		try {
-			cache = DiskLruCache.open(cacheDir, 1, 1, cacheMaxSize, cacheMaxFileCount);
+			cache = DiskLruCache.open(cacheDir, 1, 1, cacheMaxSize, cacheMaxFileCount, fanOut);
 		} catch (IOException e) {
 			L.e(e);
 			if (reserveCacheDir != null) {
@@ -142,6 +165,17 @@ public class LruDiscCache implements DiskCache {
 		}
 	}
 
+	/** Answers from index of cache: cached file isn't opened, its access is written to cache journal in batches. */
+	@Override
+	public File peekFile(String imageUri) {
+		try {
+			return cache.peekFile(getKey(imageUri), 0);
+		} catch (IOException e) {
+			L.e(e);
+			return null;
+		}
+	}
+
 	@Override
 	public boolean save(String imageUri, InputStream imageStream, IoUtils.CopyListener listener) throws IOException {
 		DiskLruCache.Editor editor = cache.edit(getKey(imageUri));
@@ -17,12 +17,18 @@ package com.nostra13.universalimageloader.cache.memory;
 
 import android.graphics.Bitmap;
 
+import com.nostra13.universalimageloader.cache.memory.MemoryCacheStats.EvictionCause;
+
 import java.lang.ref.Reference;
 import java.util.*;
 
 /**
  * Base memory cache. Implements common functionality for memory cache. Provides object references (
- * {@linkplain Reference not strong}) storing.
+ * {@linkplain Reference not strong}) storing.<br />
+ * <br />
+ * Bitmaps whose references were cleared by GC are counted as {@linkplain EvictionCause#COLLECTED collected} when
+ * they're requested or when {@linkplain #getStats() statistics} are requested. Size of cache is the sum of the sizes
+ * of referenced Bitmaps which aren't known as collected.
  *
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @since 1.0.0
@@ -30,42 +36,145 @@ import java.util.*;
 public abstract class BaseMemoryCache implements MemoryCache {
 
 	/** Stores not strong references to objects */
-	private final Map<String, Reference<Bitmap>> softMap = Collections.synchronizedMap(new HashMap<String, Reference<Bitmap>>());
+	private final Map<CacheKey, Entry> softMap = Collections.synchronizedMap(new HashMap<CacheKey, Entry>());
+	/** Index of {@link #softMap} keys, guarded by lock of {@link #softMap} */
+	private final KeyIndex keyIndex = new KeyIndex();
+	/** Sum of the sizes of {@link #softMap} entries, guarded by lock of {@link #softMap} */
+	private long size;
+
+	final StatsCounter stats = new StatsCounter();
 
 	@Override
-	public Bitmap get(String key) {
+	public Bitmap get(CacheKey key) {
 		Bitmap result = null;
-		Reference<Bitmap> reference = softMap.get(key);
-		if (reference != null) {
-			result = reference.get();
+		Entry entry = softMap.get(key);
+		if (entry != null) {
+			result = entry.reference.get();
+			if (result == null) {
+				forgetCollected(key, entry);
+			}
+		}
+
+		if (result == null) {
+			stats.recordMiss();
+		} else {
+			stats.recordHit();
 		}
 		return result;
 	}
 
+	/** Returns cached Bitmap like {@link #get(CacheKey)} does but doesn't count request in statistics */
+	protected Bitmap peek(CacheKey key) {
+		Entry entry = softMap.get(key);
+		return entry == null ? null : entry.reference.get();
+	}
+
 	@Override
-	public boolean put(String key, Bitmap value) {
-		softMap.put(key, createReference(value));
+	public boolean put(CacheKey key, Bitmap value) {
+		Entry entry = new Entry(createReference(value), value.getRowBytes() * value.getHeight());
+		synchronized (softMap) {
+			Entry previous = softMap.put(key, entry);
+			if (previous == null) {
+				keyIndex.add(key);
+			} else {
+				size -= previous.size;
+				stats.recordEviction(EvictionCause.REPLACED);
+			}
+			size += entry.size;
+			stats.recordSize(size);
+		}
+		stats.recordPut();
 		return true;
 	}
 
 	@Override
-	public Bitmap remove(String key) {
-		Reference<Bitmap> bmpRef = softMap.remove(key);
-		return bmpRef == null ? null : bmpRef.get();
+	public Bitmap remove(CacheKey key) {
+		Entry entry;
+		synchronized (softMap) {
+			entry = softMap.remove(key);
+			if (entry != null) {
+				keyIndex.remove(key);
+				size -= entry.size;
+				stats.recordEviction(EvictionCause.REMOVED);
+			}
+		}
+		return entry == null ? null : entry.reference.get();
+	}
+
+	@Override
+	public Collection<CacheKey> keys() {
+		synchronized (softMap) {
+			return new HashSet<CacheKey>(softMap.keySet());
+		}
 	}
 
 	@Override
-	public Collection<String> keys() {
+	public Collection<CacheKey> keysForImageUri(String imageUri) {
 		synchronized (softMap) {
-			return new HashSet<String>(softMap.keySet());
+			return keyIndex.get(imageUri);
 		}
 	}
 
 	@Override
 	public void clear() {
-		softMap.clear();
+		synchronized (softMap) {
+			stats.recordEvictions(EvictionCause.TRIMMED, softMap.size());
+			softMap.clear();
+			keyIndex.clear();
+			size = 0;
+		}
+	}
+
+	/** Not strong references are cleared by GC under memory pressure so only zero fraction clears the cache */
+	@Override
+	public void trim(float fraction) {
+		if (fraction <= 0) {
+			clear();
+		}
+	}
+
+	/** Forgets entries whose Bitmaps were collected by GC (iterates over all entries) and returns statistics */
+	@Override
+	public MemoryCacheStats getStats() {
+		synchronized (softMap) {
+			Iterator<Map.Entry<CacheKey, Entry>> it = softMap.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<CacheKey, Entry> mapEntry = it.next();
+				Entry entry = mapEntry.getValue();
+				if (entry.reference.get() == null) {
+					it.remove();
+					keyIndex.remove(mapEntry.getKey());
+					size -= entry.size;
+					stats.recordEviction(EvictionCause.COLLECTED);
+				}
+			}
+			return stats.snapshot(size, softMap.size());
+		}
 	}
 
 	/** Creates {@linkplain Reference not strong} reference of value */
 	protected abstract Reference<Bitmap> createReference(Bitmap value);
+
+	/** Removes entry whose Bitmap was collected by GC (if the entry wasn't replaced concurrently) */
+	private void forgetCollected(CacheKey key, Entry entry) {
+		synchronized (softMap) {
+			if (softMap.get(key) == entry) {
+				softMap.remove(key);
+				keyIndex.remove(key);
+				size -= entry.size;
+				stats.recordEviction(EvictionCause.COLLECTED);
+			}
+		}
+	}
+
+	/** Reference to cached Bitmap and its size, which is known even after the Bitmap was collected */
+	private static final class Entry {
+		final Reference<Bitmap> reference;
+		final int size;
+
+		Entry(Reference<Bitmap> reference, int size) {
+			this.reference = reference;
+			this.size = size;
+		}
+	}
 }
@@ -0,0 +1,333 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+/**
+ * Pool of Bitmaps which aren't used anymore. Their pixel memory is reused for decoding of new images (see
+ * {@link android.graphics.BitmapFactory.Options#inBitmap}) instead of allocating new one, so there are less garbage
+ * collections during scrolling. Works on Android 3.0+ (API 11) only, older versions can't reuse Bitmaps.<br />
+ * <br />
+ * Bitmaps are matched by byte size on Android 4.4+ (any pooled Bitmap which is large enough and not more than
+ * {@value #MAX_SIZE_MULTIPLE} times larger can be reused) and by width, height and config on older versions. Total
+ * size of pooled Bitmaps is limited, the eldest ones are recycled on overflow.<br />
+ * <br />
+ * Bitmap evicted from memory cache can be still displayed in some View. So ImageLoader tracks displaying:
+ * {@linkplain #acquire(Bitmap) acquires} Bitmap when it's going to be displayed and {@linkplain #release(Bitmap)
+ * releases} it when View gets another image. Evicted Bitmap gets into pool only when it's released by all Views. Bitmaps
+ * which weren't displayed in Views by ImageLoader (e.g. returned by
+ * {@link com.nostra13.universalimageloader.core.ImageLoader#loadImageSync(String) loadImageSync()}) are never pooled.
+ * <br />
+ * <br />
+ * <b>NOTE:</b> Don't keep references to Bitmaps passed into
+ * {@link com.nostra13.universalimageloader.core.listener.ImageLoadingListener listeners} of displaying tasks, their
+ * memory can be reused for another image.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @since 1.9.3
+ */
+public class BitmapPool {
+
+	/** Max ratio of size of reused Bitmap to size of needed one (for Android 4.4+) */
+	public static final int MAX_SIZE_MULTIPLE = 4;
+
+	private final int maxSize;
+	private final boolean sizeMatching = Build.VERSION.SDK_INT >= 19;
+	private final boolean supported = Build.VERSION.SDK_INT >= 11;
+
+	/** Pooled Bitmaps in order of addition */
+	private final LinkedHashSet<Bitmap> pooled = new LinkedHashSet<Bitmap>();
+	/** Pooled Bitmaps by byte size (Android 4.4+) */
+	private final TreeMap<Integer, List<Bitmap>> bitmapsBySize = new TreeMap<Integer, List<Bitmap>>();
+	/** Pooled Bitmaps by width, height and config (before Android 4.4) */
+	private final Map<String, List<Bitmap>> bitmapsByDimensions = new HashMap<String, List<Bitmap>>();
+	/** Usage of Bitmaps which were displayed by ImageLoader */
+	private final Map<Bitmap, Usage> usages = new WeakHashMap<Bitmap, Usage>();
+	private int size;
+	/**
+	 * Number of Bitmaps which were put into pool. It's changed under the lock and read without it by
+	 * {@link #acquire(MemoryCache, CacheKey)} to detect pooling during memory cache lookup.
+	 */
+	private volatile int pooledCount;
+
+	private int hitCount;
+	private int missCount;
+	private long reusedBytes;
+
+	/** @param maxSize Maximum sum of the sizes of the pooled Bitmaps (in bytes) */
+	public BitmapPool(int maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize <= 0");
+		}
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Returns Bitmap which can be used as {@link android.graphics.BitmapFactory.Options#inBitmap} for decoding of image
+	 * with given size and config. Returned Bitmap is removed from pool.
+	 *
+	 * @return Bitmap or <b>null</b> if there is no suitable Bitmap in pool
+	 */
+	public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+		Bitmap bitmap = null;
+		if (supported) {
+			List<Bitmap> bitmaps;
+			if (sizeMatching) {
+				int neededSize = width * height * getBytesPerPixel(config);
+				Map.Entry<Integer, List<Bitmap>> entry = bitmapsBySize.ceilingEntry(neededSize);
+				bitmaps = entry == null || entry.getKey() > neededSize * MAX_SIZE_MULTIPLE ? null : entry.getValue();
+			} else {
+				bitmaps = bitmapsByDimensions.get(dimensionsOf(width, height, config));
+			}
+			if (bitmaps != null) {
+				bitmap = bitmaps.get(bitmaps.size() - 1);
+				removeFromPool(bitmap);
+			}
+		}
+
+		if (bitmap == null) {
+			missCount++;
+		} else {
+			hitCount++;
+			reusedBytes += sizeOf(bitmap);
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Puts Bitmap which isn't used anymore into pool. Bitmap can't be recycled or used after this call.
+	 *
+	 * @return <b>true</b> - if Bitmap was pooled; <b>false</b> - if it can't be reused (it should be recycled then)
+	 */
+	public synchronized boolean put(Bitmap bitmap) {
+		if (!supported || bitmap.isRecycled() || !bitmap.isMutable()) return false;
+		if (pooled.contains(bitmap)) return true;
+
+		int bitmapSize = sizeOf(bitmap);
+		if (bitmapSize > maxSize) return false;
+
+		pooled.add(bitmap);
+		pooledCount++;
+		groupOf(bitmap, true).add(bitmap);
+		size += bitmapSize;
+		trimToSize(maxSize);
+		return true;
+	}
+
+	/**
+	 * Marks Bitmap as displayed (or going to be displayed). Acquired Bitmap isn't pooled even if it's evicted from
+	 * memory cache until it's {@linkplain #release(Bitmap) released}.
+	 */
+	public synchronized void acquire(Bitmap bitmap) {
+		if (pooled.contains(bitmap)) { // shouldn't happen but displayed Bitmap must not be reused
+			removeFromPool(bitmap);
+		}
+		Usage usage = usages.get(bitmap);
+		if (usage == null) {
+			usage = new Usage();
+			usages.put(bitmap, usage);
+		}
+		usage.displays++;
+	}
+
+	/**
+	 * Gets Bitmap from memory cache and {@linkplain #acquire(Bitmap) acquires} it. Bitmap can't be pooled between
+	 * these two actions even if it's evicted from cache concurrently. Recycled Bitmap isn't acquired and <b>null</b>
+	 * is returned for it.<br />
+	 * Memory cache is accessed without the pool lock, so lookups of different threads don't wait for each other.
+	 */
+	public Bitmap acquire(MemoryCache memoryCache, CacheKey key) {
+		int pooledCountBeforeLookup = pooledCount;
+		Bitmap bitmap = memoryCache.get(key);
+		if (bitmap == null) {
+			return null;
+		}
+
+		synchronized (this) {
+			if (pooledCount != pooledCountBeforeLookup) {
+				// Found Bitmap could be evicted and pooled (or even reused) during lookup, it's looked up again (rare)
+				bitmap = memoryCache.get(key);
+			}
+			if (bitmap == null || bitmap.isRecycled()) {
+				return null;
+			}
+			acquire(bitmap);
+			return bitmap;
+		}
+	}
+
+	/** Marks Bitmap as not displayed anymore by one of Views. Puts it into pool if it's not needed anymore. */
+	public synchronized void release(Bitmap bitmap) {
+		Usage usage = usages.get(bitmap);
+		if (usage == null || usage.displays == 0) return;
+
+		usage.displays--;
+		if (usage.displays == 0 && usage.evicted) {
+			usages.remove(bitmap);
+			put(bitmap);
+		}
+	}
+
+	/**
+	 * Is called when Bitmap was evicted from memory cache. Puts it into pool if it was displayed by ImageLoader and
+	 * isn't displayed anymore.
+	 */
+	public synchronized void onEvicted(Bitmap bitmap) {
+		Usage usage = usages.get(bitmap);
+		if (usage == null) return; // wasn't displayed by ImageLoader, can be used by somebody else
+
+		usage.evicted = true;
+		if (usage.displays == 0) {
+			usages.remove(bitmap);
+			put(bitmap);
+		}
+	}
+
+	/** Recycles all pooled Bitmaps */
+	public synchronized void clear() {
+		trimToSize(0);
+	}
+
+	/** Recycles the eldest pooled Bitmaps so the rest take no more than <b>fraction</b> of max size */
+	public synchronized void trim(float fraction) {
+		trimToSize((int) (maxSize * fraction));
+	}
+
+	/** Returns number of {@link #get(int, int, Bitmap.Config) requests} which returned Bitmap */
+	public synchronized int getHitCount() {
+		return hitCount;
+	}
+
+	/** Returns number of {@link #get(int, int, Bitmap.Config) requests} which didn't find suitable Bitmap */
+	public synchronized int getMissCount() {
+		return missCount;
+	}
+
+	/** Returns total size (in bytes) of Bitmaps which were taken from pool for reuse */
+	public synchronized long getReusedBytes() {
+		return reusedBytes;
+	}
+
+	/** Returns sum of the sizes of the pooled Bitmaps (in bytes) */
+	public synchronized int getSize() {
+		return size;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	private void trimToSize(int maxSize) {
+		Iterator<Bitmap> it = pooled.iterator();
+		while (size > maxSize && it.hasNext()) {
+			Bitmap eldest = it.next();
+			it.remove();
+			removeFromGroup(eldest);
+			size -= sizeOf(eldest);
+			eldest.recycle();
+		}
+	}
+
+	private void removeFromPool(Bitmap bitmap) {
+		pooled.remove(bitmap);
+		removeFromGroup(bitmap);
+		size -= sizeOf(bitmap);
+	}
+
+	private void removeFromGroup(Bitmap bitmap) {
+		List<Bitmap> group = groupOf(bitmap, false);
+		group.remove(bitmap);
+		if (group.isEmpty()) {
+			if (sizeMatching) {
+				bitmapsBySize.remove(sizeOf(bitmap));
+			} else {
+				bitmapsByDimensions.remove(dimensionsOf(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig()));
+			}
+		}
+	}
+
+	private List<Bitmap> groupOf(Bitmap bitmap, boolean create) {
+		List<Bitmap> group;
+		if (sizeMatching) {
+			Integer key = sizeOf(bitmap);
+			group = bitmapsBySize.get(key);
+			if (group == null && create) {
+				group = new ArrayList<Bitmap>();
+				bitmapsBySize.put(key, group);
+			}
+		} else {
+			String key = dimensionsOf(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+			group = bitmapsByDimensions.get(key);
+			if (group == null && create) {
+				group = new ArrayList<Bitmap>();
+				bitmapsByDimensions.put(key, group);
+			}
+		}
+		return group;
+	}
+
+	/** Returns size of Bitmap's pixel memory in bytes */
+	private int sizeOf(Bitmap bitmap) {
+		return sizeMatching ? getAllocationByteCount(bitmap) : bitmap.getRowBytes() * bitmap.getHeight();
+	}
+
+	@TargetApi(19)
+	private static int getAllocationByteCount(Bitmap bitmap) {
+		return bitmap.getAllocationByteCount();
+	}
+
+	private static String dimensionsOf(int width, int height, Bitmap.Config config) {
+		return width + "x" + height + "_" + config;
+	}
+
+	private static int getBytesPerPixel(Bitmap.Config config) {
+		if (config == null) return 4;
+		switch (config) {
+			case ALPHA_8:
+				return 1;
+			case RGB_565:
+			case ARGB_4444:
+				return 2;
+			default:
+				return 4;
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("BitmapPool[maxSize=%d,size=%d,hits=%d,misses=%d]", maxSize, size, hitCount, missCount);
+	}
+
+	/** Displaying state of Bitmap */
+	private static final class Usage {
+		/** Number of Views which display Bitmap (or going to display) */
+		int displays;
+		/** Whether Bitmap was evicted from memory cache */
+		boolean evicted;
+	}
+}
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory;
+
+/**
+ * Key of image in memory cache: image URI, target size which image was decoded for and optional id of processor which
+ * was applied to decoded image. Hash code is computed once, so lookups don't cost more than for {@link String} keys,
+ * and images of the same URI are found by comparison of fields (without parsing of keys).<br />
+ * <br />
+ * Keys are immutable except {@linkplain #obtainLookupKey(String, int, int, String) lookup keys} which are reused by
+ * calling thread to look up an image in memory cache without allocation. Lookup key mustn't be stored (e.g. put into
+ * cache), use its {@linkplain #immutableCopy() immutable copy} for that.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @see com.nostra13.universalimageloader.utils.MemoryCacheUtils#generateKey(String,
+ * com.nostra13.universalimageloader.core.assist.ImageSize)
+ * @since 1.9.3
+ */
+public final class CacheKey {
+
+	private static final ThreadLocal<CacheKey> LOOKUP_KEYS = new ThreadLocal<CacheKey>() {
+		@Override
+		protected CacheKey initialValue() {
+			return new CacheKey();
+		}
+	};
+
+	private final boolean reusable;
+	private String imageUri;
+	private int width;
+	private int height;
+	private String processorId;
+	private int hash;
+
+	/**
+	 * @param imageUri Image URI
+	 * @param width    Target width which image was decoded for
+	 * @param height   Target height which image was decoded for
+	 */
+	public CacheKey(String imageUri, int width, int height) {
+		this(imageUri, width, height, null);
+	}
+
+	/**
+	 * @param imageUri    Image URI
+	 * @param width       Target width which image was decoded for
+	 * @param height      Target height which image was decoded for
+	 * @param processorId Id of processor which was applied to decoded image. Can be <b>null</b>.
+	 */
+	public CacheKey(String imageUri, int width, int height, String processorId) {
+		if (imageUri == null) {
+			throw new IllegalArgumentException("imageUri must not be null");
+		}
+		reusable = false;
+		set(imageUri, width, height, processorId);
+	}
+
+	private CacheKey() {
+		reusable = true;
+	}
+
+	/**
+	 * Returns key which is reused by calling thread (previous returned key is overwritten). Key must be used only for
+	 * lookups in memory cache.
+	 */
+	public static CacheKey obtainLookupKey(String imageUri, int width, int height, String processorId) {
+		if (imageUri == null) {
+			throw new IllegalArgumentException("imageUri must not be null");
+		}
+		CacheKey key = LOOKUP_KEYS.get();
+		key.set(imageUri, width, height, processorId);
+		return key;
+	}
+
+	private void set(String imageUri, int width, int height, String processorId) {
+		this.imageUri = imageUri;
+		this.width = width;
+		this.height = height;
+		this.processorId = processorId;
+
+		int h = imageUri.hashCode();
+		h = 31 * h + width;
+		h = 31 * h + height;
+		h = 31 * h + (processorId == null ? 0 : processorId.hashCode());
+		hash = h;
+	}
+
+	/** Returns this key if it's immutable or new immutable key with the same fields if this key is lookup one */
+	public CacheKey immutableCopy() {
+		return reusable ? new CacheKey(imageUri, width, height, processorId) : this;
+	}
+
+	public String getImageUri() {
+		return imageUri;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/** Returns id of processor which was applied to decoded image or <b>null</b> */
+	public String getProcessorId() {
+		return processorId;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof CacheKey)) return false;
+
+		CacheKey key = (CacheKey) o;
+		return hash == key.hash && width == key.width && height == key.height && imageUri.equals(key.imageUri)
+				&& (processorId == null ? key.processorId == null : processorId.equals(key.processorId));
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	/** Returns key in format <b>[imageUri]_[width]x[height]</b> (+ <b>_[processorId]</b> if key has processor id) */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(imageUri).append('_').append(width).append('x').append(height);
+		if (processorId != null) {
+			sb.append('_').append(processorId);
+		}
+		return sb.toString();
+	}
+}
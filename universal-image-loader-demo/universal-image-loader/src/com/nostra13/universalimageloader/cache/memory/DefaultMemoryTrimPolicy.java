@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory;
+
+import android.content.ComponentCallbacks2;
+
+/**
+ * Trims caches gradually: the more memory pressure the less part of cache is kept. Cache is cleared only when app is
+ * going to be killed ({@link ComponentCallbacks2#TRIM_MEMORY_COMPLETE}), so the most of cached images survive while
+ * app is in background.
+ * <table>
+ * <tr><th>Level</th><th>Kept part of cache</th></tr>
+ * <tr><td>{@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_MODERATE RUNNING_MODERATE}</td><td>3/4</td></tr>
+ * <tr><td>{@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_LOW RUNNING_LOW}</td><td>1/2</td></tr>
+ * <tr><td>{@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_CRITICAL RUNNING_CRITICAL}</td><td>1/4</td></tr>
+ * <tr><td>{@link ComponentCallbacks2#TRIM_MEMORY_UI_HIDDEN UI_HIDDEN}</td><td>3/4</td></tr>
+ * <tr><td>{@link ComponentCallbacks2#TRIM_MEMORY_BACKGROUND BACKGROUND}</td><td>1/2</td></tr>
+ * <tr><td>{@link ComponentCallbacks2#TRIM_MEMORY_MODERATE MODERATE}</td><td>1/4</td></tr>
+ * <tr><td>{@link ComponentCallbacks2#TRIM_MEMORY_COMPLETE COMPLETE}</td><td>0</td></tr>
+ * </table>
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @since 1.9.3
+ */
+public class DefaultMemoryTrimPolicy implements MemoryTrimPolicy {
+
+	@Override
+	public float getTrimFraction(int level) {
+		if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) {
+			return 0f;
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+			return 0.25f;
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+			return 0.5f;
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+			return 0.75f;
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+			return 0.25f;
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+			return 0.5f;
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+			return 0.75f;
+		} else {
+			return 1f;
+		}
+	}
+}
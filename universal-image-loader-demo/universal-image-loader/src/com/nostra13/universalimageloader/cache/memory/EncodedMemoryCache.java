@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Memory cache of encoded (compressed) images - bytes of image files which were downloaded or read from disk cache.
+ * It's a tier between {@link MemoryCache} and {@link com.nostra13.universalimageloader.cache.disc.DiskCache DiskCache}:
+ * encoded image takes several times less memory than decoded Bitmap, so many more images can be kept, and image which
+ * was evicted from memory cache is decoded again without file I/O.<br />
+ * <br />
+ * Images are evicted in LRU order when total size exceeds max size. Images larger than max entry size aren't cached so
+ * one large image can't evict many small ones.<br />
+ * <br />
+ * <b>NOTE:</b> Arrays returned by {@link #get(String)} are shared, don't modify them. If you remove image from disk
+ * cache to refresh it then remove it from this cache too.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @see com.nostra13.universalimageloader.core.ImageLoaderConfiguration.Builder#encodedMemoryCache(EncodedMemoryCache)
+ * @since 1.9.3
+ */
+public class EncodedMemoryCache {
+
+	/** Default ratio of max size of the cache to max size of one cached image */
+	public static final int DEFAULT_MAX_ENTRY_SIZE_DIVIDER = 8;
+
+	private final LinkedHashMap<String, byte[]> map = new LinkedHashMap<String, byte[]>(0, 0.75f, true);
+	private final int maxSize;
+	private final int maxEntrySize;
+	private int size;
+
+	private int hitCount;
+	private int missCount;
+
+	/**
+	 * @param maxSize Maximum sum of the sizes of cached images (in bytes). Max size of one image is <b>maxSize /
+	 *                {@value #DEFAULT_MAX_ENTRY_SIZE_DIVIDER}</b>.
+	 */
+	public EncodedMemoryCache(int maxSize) {
+		this(maxSize, maxSize / DEFAULT_MAX_ENTRY_SIZE_DIVIDER);
+	}
+
+	/**
+	 * @param maxSize      Maximum sum of the sizes of cached images (in bytes)
+	 * @param maxEntrySize Maximum size of one cached image (in bytes)
+	 */
+	public EncodedMemoryCache(int maxSize, int maxEntrySize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize <= 0");
+		}
+		if (maxEntrySize <= 0 || maxEntrySize > maxSize) {
+			throw new IllegalArgumentException("maxEntrySize must be in range (0, maxSize]");
+		}
+		this.maxSize = maxSize;
+		this.maxEntrySize = maxEntrySize;
+	}
+
+	/** Returns encoded image for URI (and moves it to the head of LRU queue) or <b>null</b> if it isn't cached */
+	public synchronized byte[] get(String imageUri) {
+		byte[] encodedImage = map.get(imageUri);
+		if (encodedImage == null) {
+			missCount++;
+		} else {
+			hitCount++;
+		}
+		return encodedImage;
+	}
+
+	/**
+	 * Caches encoded image for URI. Array mustn't be modified after this call.
+	 *
+	 * @return <b>true</b> - if image was cached; <b>false</b> - if image is larger than {@linkplain #getMaxEntrySize()
+	 * max entry size}
+	 */
+	public synchronized boolean put(String imageUri, byte[] encodedImage) {
+		if (encodedImage.length > maxEntrySize) return false;
+
+		byte[] previous = map.put(imageUri, encodedImage);
+		size += encodedImage.length;
+		if (previous != null) {
+			size -= previous.length;
+		}
+		trimToSize(maxSize);
+		return true;
+	}
+
+	/** Removes encoded image for URI. Returns removed image or <b>null</b>. */
+	public synchronized byte[] remove(String imageUri) {
+		byte[] encodedImage = map.remove(imageUri);
+		if (encodedImage != null) {
+			size -= encodedImage.length;
+		}
+		return encodedImage;
+	}
+
+	public synchronized void clear() {
+		map.clear();
+		size = 0;
+	}
+
+	/** Removes the least recently used images so the rest take no more than <b>fraction</b> of max size */
+	public synchronized void trim(float fraction) {
+		trimToSize((int) (maxSize * fraction));
+	}
+
+	/** Returns number of {@link #get(String) requests} which found encoded image */
+	public synchronized int getHitCount() {
+		return hitCount;
+	}
+
+	/** Returns number of {@link #get(String) requests} which didn't find encoded image */
+	public synchronized int getMissCount() {
+		return missCount;
+	}
+
+	/** Returns sum of the sizes of cached images (in bytes) */
+	public synchronized int getSize() {
+		return size;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public int getMaxEntrySize() {
+		return maxEntrySize;
+	}
+
+	private void trimToSize(int maxSize) {
+		Iterator<Map.Entry<String, byte[]>> it = map.entrySet().iterator();
+		while (size > maxSize && it.hasNext()) {
+			size -= it.next().getValue().length;
+			it.remove();
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("EncodedMemoryCache[maxSize=%d,size=%d,hits=%d,misses=%d]", maxSize, size, hitCount,
+				missCount);
+	}
+}
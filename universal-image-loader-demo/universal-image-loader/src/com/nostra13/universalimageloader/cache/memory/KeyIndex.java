@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of memory cache keys by image URI. Every URI is mapped to keys of all its cached sizes (variants), so they
+ * are found without scanning of all cache keys.<br />
+ * Index costs one map entry per cached image (URI string is shared with key). URI which is cached in single size
+ * (usual case) is mapped to its key directly, without a list.<br />
+ * Not thread-safe, must be used under lock of memory cache.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @since 1.9.3
+ */
+public final class KeyIndex {
+
+	/** Image URI -> key (CacheKey) or keys (List of CacheKeys) */
+	private final Map<String, Object> keysByUri = new HashMap<String, Object>();
+
+	/** Adds key to index. Key mustn't be in index already. */
+	@SuppressWarnings("unchecked")
+	public void add(CacheKey key) {
+		String imageUri = key.getImageUri();
+		Object value = keysByUri.get(imageUri);
+		if (value == null) {
+			keysByUri.put(imageUri, key);
+		} else if (value instanceof CacheKey) {
+			List<CacheKey> keys = new ArrayList<CacheKey>(2);
+			keys.add((CacheKey) value);
+			keys.add(key);
+			keysByUri.put(imageUri, keys);
+		} else {
+			((List<CacheKey>) value).add(key);
+		}
+	}
+
+	/** Removes key from index */
+	@SuppressWarnings("unchecked")
+	public void remove(CacheKey key) {
+		String imageUri = key.getImageUri();
+		Object value = keysByUri.get(imageUri);
+		if (value instanceof CacheKey) {
+			if (value.equals(key)) {
+				keysByUri.remove(imageUri);
+			}
+		} else if (value != null) {
+			List<CacheKey> keys = (List<CacheKey>) value;
+			keys.remove(key);
+			if (keys.size() == 1) {
+				keysByUri.put(imageUri, keys.get(0));
+			}
+		}
+	}
+
+	/** Returns keys of all variants of image with incoming URI (copy, which can be used without lock) */
+	@SuppressWarnings("unchecked")
+	public List<CacheKey> get(String imageUri) {
+		Object value = keysByUri.get(imageUri);
+		if (value == null) {
+			return Collections.emptyList();
+		} else if (value instanceof CacheKey) {
+			return Collections.singletonList((CacheKey) value);
+		} else {
+			return new ArrayList<CacheKey>((List<CacheKey>) value);
+		}
+	}
+
+	public void clear() {
+		keysByUri.clear();
+	}
+}
@@ -17,11 +17,12 @@ package com.nostra13.universalimageloader.cache.memory;
 
 import android.graphics.Bitmap;
 
+import com.nostra13.universalimageloader.cache.memory.MemoryCacheStats.EvictionCause;
 import com.nostra13.universalimageloader.utils.L;
 
 import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -29,7 +30,10 @@ import java.util.concurrent.atomic.AtomicInteger;
  * {@link #getSizeLimit()}).<br />
  * <br />
  * <b>NOTE:</b> This cache uses strong and weak references for stored Bitmaps. Strong references - for limited count of
- * Bitmaps (depends on cache size), weak references - for all other cached Bitmaps.
+ * Bitmaps (depends on cache size), weak references - for all other cached Bitmaps. So {@linkplain #getStats()
+ * statistics} count {@linkplain EvictionCause#SIZE SIZE} and {@linkplain EvictionCause#TRIMMED TRIMMED} evictions when
+ * strong references are removed, and {@linkplain EvictionCause#COLLECTED COLLECTED} ones when weakly referenced
+ * Bitmaps are collected by GC later.
  *
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @see BaseMemoryCache
@@ -45,11 +49,11 @@ public abstract class LimitedMemoryCache extends BaseMemoryCache {
 	private final AtomicInteger cacheSize;
 
 	/**
-	 * Contains strong references to stored objects. Each next object is added last. If hard cache size will exceed
-	 * limit then first object is deleted (but it continue exist at {@link #softMap} and can be collected by GC at any
-	 * time)
+	 * Contains strong references to stored objects. If hard cache size will exceed limit then object returned by
+	 * {@link #removeNext()} is deleted (but it continue exist at {@link #softMap} and can be collected by GC at any
+	 * time). Set is hashed, so object is found and deleted in constant time.
 	 */
-	private final List<Bitmap> hardCache = Collections.synchronizedList(new LinkedList<Bitmap>());
+	private final Set<Bitmap> hardCache = Collections.synchronizedSet(new HashSet<Bitmap>());
 
 	/** @param sizeLimit Maximum size for cache (in bytes) */
 	public LimitedMemoryCache(int sizeLimit) {
@@ -61,21 +65,16 @@ public abstract class LimitedMemoryCache extends BaseMemoryCache {
 	}
 
 	@Override
-	public boolean put(String key, Bitmap value) {
+	public boolean put(CacheKey key, Bitmap value) {
 		boolean putSuccessfully = false;
 		// Try to add value to hard cache
 		int valueSize = getSize(value);
 		int sizeLimit = getSizeLimit();
-		int curCacheSize = cacheSize.get();
 		if (valueSize < sizeLimit) {
-			while (curCacheSize + valueSize > sizeLimit) {
-				Bitmap removedValue = removeNext();
-				if (hardCache.remove(removedValue)) {
-					curCacheSize = cacheSize.addAndGet(-getSize(removedValue));
-				}
+			trimHardCache(sizeLimit - valueSize, EvictionCause.SIZE);
+			if (hardCache.add(value)) {
+				cacheSize.addAndGet(valueSize);
 			}
-			hardCache.add(value);
-			cacheSize.addAndGet(valueSize);
 
 			putSuccessfully = true;
 		}
@@ -85,8 +84,8 @@ public abstract class LimitedMemoryCache extends BaseMemoryCache {
 	}
 
 	@Override
-	public Bitmap remove(String key) {
-		Bitmap value = super.get(key);
+	public Bitmap remove(CacheKey key) {
+		Bitmap value = peek(key);
 		if (value != null) {
 			if (hardCache.remove(value)) {
 				cacheSize.addAndGet(-getSize(value));
@@ -102,11 +101,40 @@ public abstract class LimitedMemoryCache extends BaseMemoryCache {
 		super.clear();
 	}
 
+	/**
+	 * Removes strong references so hard cache takes no more than <b>fraction</b> of size limit. Zero fraction clears the
+	 * cache.
+	 */
+	@Override
+	public void trim(float fraction) {
+		if (fraction <= 0) {
+			clear();
+		} else {
+			trimHardCache((int) (getSizeLimit() * fraction), EvictionCause.TRIMMED);
+		}
+	}
+
+	private void trimHardCache(int maxSize, EvictionCause cause) {
+		int curCacheSize = cacheSize.get();
+		while (curCacheSize > maxSize) {
+			Bitmap removedValue = removeNext();
+			if (removedValue == null) break; // nothing to evict
+			if (hardCache.remove(removedValue)) {
+				curCacheSize = cacheSize.addAndGet(-getSize(removedValue));
+				stats.recordEviction(cause);
+			}
+		}
+	}
+
 	protected int getSizeLimit() {
 		return sizeLimit;
 	}
 
 	protected abstract int getSize(Bitmap value);
 
+	/**
+	 * Returns (and forgets) the next Bitmap which should be deleted from hard cache. Is called on every eviction, so it
+	 * shouldn't iterate over all stored Bitmaps. Returns <b>null</b> if there is nothing to delete.
+	 */
 	protected abstract Bitmap removeNext();
 }
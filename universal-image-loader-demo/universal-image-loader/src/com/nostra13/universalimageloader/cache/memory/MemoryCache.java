@@ -17,11 +17,37 @@ package com.nostra13.universalimageloader.cache.memory;
 
 import android.graphics.Bitmap;
 
+import java.util.Collection;
+
 /**
  * Interface for memory cache
  *
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @since 1.9.2
  */
-public interface MemoryCache extends MemoryCacheAware<String, Bitmap> {
+public interface MemoryCache extends MemoryCacheAware<CacheKey, Bitmap> {
+
+	/**
+	 * Removes items from cache so the size of remaining items doesn't exceed <b>fraction</b> of cache size limit.
+	 * Cache can grow up to its full size again after this call. Caches without size limit remove all items if
+	 * fraction is 0 and can ignore the call otherwise.
+	 *
+	 * @param fraction Part of size limit which remaining items can take: 0 - remove all items, 1 - remove nothing
+	 */
+	void trim(float fraction);
+
+	/**
+	 * Returns keys of all cached sizes (variants) of image with incoming URI. Cache should find them without scanning
+	 * of all its keys (e.g. using {@link KeyIndex}).
+	 *
+	 * @see com.nostra13.universalimageloader.utils.MemoryCacheUtils#generateKey(String,
+	 * com.nostra13.universalimageloader.core.assist.ImageSize)
+	 */
+	Collection<CacheKey> keysForImageUri(String imageUri);
+
+	/**
+	 * Returns snapshot of cache statistics (hits, misses, puts, evictions, size). Counters shouldn't slow down cache
+	 * operations (e.g. {@link StatsCounter} can be used).
+	 */
+	MemoryCacheStats getStats();
 }
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory;
+
+import java.util.Locale;
+
+/**
+ * Snapshot of {@link MemoryCache} statistics: hits, misses, puts, evictions by {@linkplain EvictionCause cause} and
+ * size of cached Bitmaps. Counters are cumulative since cache creation, so two snapshots can be compared to get
+ * statistics of some period (e.g. of one screen).<br />
+ * Use it for cache sizing: high {@linkplain #getEvictionCount(EvictionCause) SIZE evictions} with low
+ * {@linkplain #getHitRate() hit rate} mean the cache is too small, low {@linkplain #getPeakSize() peak size} - it's
+ * too large.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @see MemoryCache#getStats()
+ * @see StatsCounter
+ * @since 1.9.3
+ */
+public final class MemoryCacheStats {
+
+	/** Reason of entry removal from cache */
+	public enum EvictionCause {
+		/** Entry was evicted to keep cache size in limit (or wasn't admitted to cache) */
+		SIZE,
+		/** Entry was replaced by another Bitmap for the same key */
+		REPLACED,
+		/** Entry was {@linkplain MemoryCache#remove(Object) removed} explicitly */
+		REMOVED,
+		/** Entry was removed by {@link MemoryCache#trim(float)} or {@link MemoryCache#clear()} */
+		TRIMMED,
+		/** Not strong reference to Bitmap was cleared by GC */
+		COLLECTED
+	}
+
+	private final long hitCount;
+	private final long missCount;
+	private final long putCount;
+	private final long[] evictionCounts;
+	private final long size;
+	private final long peakSize;
+	private final int entryCount;
+
+	/**
+	 * @param evictionCounts Eviction counts indexed by {@linkplain EvictionCause#ordinal() ordinals} of causes
+	 * @param size           Current sum of the sizes of cached Bitmaps (in bytes)
+	 * @param peakSize       Max size (in bytes) which cache ever reached
+	 * @param entryCount     Current number of cached entries
+	 */
+	public MemoryCacheStats(long hitCount, long missCount, long putCount, long[] evictionCounts, long size,
+			long peakSize, int entryCount) {
+		if (evictionCounts.length != EvictionCause.values().length) {
+			throw new IllegalArgumentException("evictionCounts must have a count for every EvictionCause");
+		}
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.putCount = putCount;
+		this.evictionCounts = evictionCounts.clone();
+		this.size = size;
+		this.peakSize = peakSize;
+		this.entryCount = entryCount;
+	}
+
+	/** Returns number of {@link MemoryCache#get(Object) requests} which returned Bitmap */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/** Returns number of {@link MemoryCache#get(Object) requests} which returned <b>null</b> */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/** Returns ratio of hits to all requests or 0 if there were no requests */
+	public double getHitRate() {
+		long requestCount = hitCount + missCount;
+		return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+	}
+
+	/** Returns number of {@link MemoryCache#put(Object, Object) puts} which cached Bitmap */
+	public long getPutCount() {
+		return putCount;
+	}
+
+	/** Returns number of entries which were removed from cache by incoming cause */
+	public long getEvictionCount(EvictionCause cause) {
+		return evictionCounts[cause.ordinal()];
+	}
+
+	/** Returns number of entries which were removed from cache by any cause */
+	public long getEvictionCount() {
+		long count = 0;
+		for (long causeCount : evictionCounts) {
+			count += causeCount;
+		}
+		return count;
+	}
+
+	/** Returns current sum of the sizes of cached Bitmaps (in bytes) */
+	public long getSize() {
+		return size;
+	}
+
+	/** Returns max sum of the sizes of cached Bitmaps (in bytes) which cache ever reached */
+	public long getPeakSize() {
+		return peakSize;
+	}
+
+	/** Returns current number of cached entries */
+	public int getEntryCount() {
+		return entryCount;
+	}
+
+	/** Returns average size of cached Bitmap (in bytes) or 0 if cache is empty */
+	public long getAverageEntrySize() {
+		return entryCount == 0 ? 0 : size / entryCount;
+	}
+
+	/**
+	 * Returns sum of this and incoming statistics (e.g. of cache shards). Peak size of the sum is the sum of peak
+	 * sizes, i.e. upper bound of real peak size.
+	 */
+	public MemoryCacheStats plus(MemoryCacheStats other) {
+		long[] sumEvictionCounts = new long[evictionCounts.length];
+		for (int i = 0; i < sumEvictionCounts.length; i++) {
+			sumEvictionCounts[i] = evictionCounts[i] + other.evictionCounts[i];
+		}
+		return new MemoryCacheStats(hitCount + other.hitCount, missCount + other.missCount, putCount + other.putCount,
+				sumEvictionCounts, size + other.size, peakSize + other.peakSize, entryCount + other.entryCount);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("MemoryCacheStats[hits=%d,misses=%d,puts=%d,size=%d,peakSize=%d,entries=%d", hitCount,
+				missCount, putCount, size, peakSize, entryCount));
+		for (EvictionCause cause : EvictionCause.values()) {
+			sb.append(',').append(cause.name().toLowerCase(Locale.US)).append("Evictions=").append(getEvictionCount(cause));
+		}
+		return sb.append(']').toString();
+	}
+}
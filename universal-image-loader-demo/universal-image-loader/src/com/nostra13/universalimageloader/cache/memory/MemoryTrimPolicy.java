@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory;
+
+/**
+ * Defines how much memory caches should be trimmed for memory pressure level which is reported to
+ * {@link com.nostra13.universalimageloader.core.ImageLoader#onTrimMemory(int) ImageLoader.onTrimMemory(int)}.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @see DefaultMemoryTrimPolicy
+ * @since 1.9.3
+ */
+public interface MemoryTrimPolicy {
+
+	/**
+	 * Returns part of cache size limit which cached items can take after trimming for incoming level.
+	 *
+	 * @param level Memory trim level from {@link android.content.ComponentCallbacks2#onTrimMemory(int)}
+	 * @return Fraction of cache size limit: 0 - clear cache, 1 - don't trim cache
+	 */
+	float getTrimFraction(int level);
+}
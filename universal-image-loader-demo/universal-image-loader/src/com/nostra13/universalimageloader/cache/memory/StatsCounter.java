@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory;
+
+import com.nostra13.universalimageloader.cache.memory.MemoryCacheStats.EvictionCause;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters of {@link MemoryCache} statistics. Recording doesn't take locks and threads rarely update the same memory:
+ * every counter is split into cells (stripes) and thread updates cell chosen by its id. Cells of different stripes lie
+ * in different cache lines of CPU. Counter value is the sum of its cells, it's computed only on
+ * {@linkplain #snapshot(long, int) snapshot}.<br />
+ * Size of cache isn't counted here, it's known by cache itself. Counter only remembers {@linkplain #recordSize(long)
+ * peak size}.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @see MemoryCacheStats
+ * @since 1.9.3
+ */
+public final class StatsCounter {
+
+	private static final int STRIPE_COUNT = 8;
+	private static final int STRIPE_MASK = STRIPE_COUNT - 1;
+
+	private static final int HITS = 0;
+	private static final int MISSES = 1;
+	private static final int PUTS = 2;
+	private static final int EVICTIONS = 3;
+	private static final int COUNTER_COUNT = EVICTIONS + EvictionCause.values().length;
+	/** Cells of stripe take 128 bytes (two cache lines), so different stripes never share cache line */
+	private static final int STRIPE_LENGTH = 16;
+
+	private final AtomicLongArray cells = new AtomicLongArray(STRIPE_COUNT * STRIPE_LENGTH);
+	private final AtomicLong peakSize = new AtomicLong();
+
+	public void recordHit() {
+		increment(HITS, 1);
+	}
+
+	public void recordMiss() {
+		increment(MISSES, 1);
+	}
+
+	public void recordPut() {
+		increment(PUTS, 1);
+	}
+
+	public void recordEviction(EvictionCause cause) {
+		increment(EVICTIONS + cause.ordinal(), 1);
+	}
+
+	public void recordEvictions(EvictionCause cause, int count) {
+		if (count > 0) {
+			increment(EVICTIONS + cause.ordinal(), count);
+		}
+	}
+
+	/** Remembers current size of cache (in bytes) if it's the largest one so far */
+	public void recordSize(long size) {
+		long peak;
+		do {
+			peak = peakSize.get();
+			if (size <= peak) return;
+		} while (!peakSize.compareAndSet(peak, size));
+	}
+
+	/**
+	 * Returns snapshot of counters. Counters updated concurrently with this call can be included or not.
+	 *
+	 * @param size       Current sum of the sizes of cached Bitmaps (in bytes)
+	 * @param entryCount Current number of cached entries
+	 */
+	public MemoryCacheStats snapshot(long size, int entryCount) {
+		long[] evictionCounts = new long[COUNTER_COUNT - EVICTIONS];
+		for (int i = 0; i < evictionCounts.length; i++) {
+			evictionCounts[i] = sum(EVICTIONS + i);
+		}
+		recordSize(size);
+		return new MemoryCacheStats(sum(HITS), sum(MISSES), sum(PUTS), evictionCounts, size, peakSize.get(),
+				entryCount);
+	}
+
+	private void increment(int counter, long delta) {
+		int stripe = (int) Thread.currentThread().getId() & STRIPE_MASK;
+		cells.addAndGet(stripe * STRIPE_LENGTH + counter, delta);
+	}
+
+	private long sum(int counter) {
+		long sum = 0;
+		for (int stripe = 0; stripe < STRIPE_COUNT; stripe++) {
+			sum += cells.get(stripe * STRIPE_LENGTH + counter);
+		}
+		return sum;
+	}
+}
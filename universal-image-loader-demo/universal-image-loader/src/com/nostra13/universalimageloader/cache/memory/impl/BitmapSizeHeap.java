@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary max-heap of Bitmaps ordered by their sizes. Positions of Bitmaps in heap are indexed, so any Bitmap can be
+ * removed in O(log n) time (as well as added or polled). Thread-safe.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @since 1.9.3
+ */
+final class BitmapSizeHeap {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private Bitmap[] values = new Bitmap[INITIAL_CAPACITY];
+	private int[] sizes = new int[INITIAL_CAPACITY];
+	private int count;
+	/** Positions of Bitmaps in heap arrays */
+	private final Map<Bitmap, Integer> positions = new HashMap<Bitmap, Integer>();
+
+	/**
+	 * Adds Bitmap with given size to heap
+	 *
+	 * @return <b>false</b> - if Bitmap is in heap already; <b>true</b> - otherwise
+	 */
+	synchronized boolean add(Bitmap value, int size) {
+		if (positions.containsKey(value)) return false;
+
+		if (count == values.length) {
+			Bitmap[] newValues = new Bitmap[count * 2];
+			int[] newSizes = new int[count * 2];
+			System.arraycopy(values, 0, newValues, 0, count);
+			System.arraycopy(sizes, 0, newSizes, 0, count);
+			values = newValues;
+			sizes = newSizes;
+		}
+		set(count, value, size);
+		count++;
+		siftUp(count - 1);
+		return true;
+	}
+
+	/** Removes Bitmap from heap. Returns <b>true</b> - if Bitmap was in heap. */
+	synchronized boolean remove(Bitmap value) {
+		Integer position = positions.get(value);
+		if (position == null) return false;
+
+		removeAt(position);
+		return true;
+	}
+
+	/** Removes and returns the largest Bitmap. Returns <b>null</b> if heap is empty. */
+	synchronized Bitmap poll() {
+		if (count == 0) return null;
+
+		Bitmap largest = values[0];
+		removeAt(0);
+		return largest;
+	}
+
+	synchronized void clear() {
+		Arrays.fill(values, 0, count, null);
+		count = 0;
+		positions.clear();
+	}
+
+	private void removeAt(int position) {
+		positions.remove(values[position]);
+		count--;
+		if (position != count) {
+			set(position, values[count], sizes[count]);
+			values[count] = null;
+			if (!siftUp(position)) {
+				siftDown(position);
+			}
+		} else {
+			values[count] = null;
+		}
+	}
+
+	/** Returns <b>true</b> - if element was moved */
+	private boolean siftUp(int position) {
+		Bitmap value = values[position];
+		int size = sizes[position];
+		int start = position;
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+			if (sizes[parent] >= size) break;
+			set(position, values[parent], sizes[parent]);
+			position = parent;
+		}
+		set(position, value, size);
+		return position != start;
+	}
+
+	private void siftDown(int position) {
+		Bitmap value = values[position];
+		int size = sizes[position];
+		int half = count >>> 1;
+		while (position < half) {
+			int child = 2 * position + 1;
+			if (child + 1 < count && sizes[child + 1] > sizes[child]) {
+				child++;
+			}
+			if (size >= sizes[child]) break;
+			set(position, values[child], sizes[child]);
+			position = child;
+		}
+		set(position, value, size);
+	}
+
+	private void set(int position, Bitmap value, int size) {
+		values[position] = value;
+		sizes[position] = size;
+		positions.put(value, position);
+	}
+}
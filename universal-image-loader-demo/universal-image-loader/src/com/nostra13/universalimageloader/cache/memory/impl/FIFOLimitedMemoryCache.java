@@ -16,13 +16,15 @@
 package com.nostra13.universalimageloader.cache.memory.impl;
 
 import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
 import com.nostra13.universalimageloader.cache.memory.LimitedMemoryCache;
 
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  * Limited {@link Bitmap bitmap} cache. Provides {@link Bitmap bitmaps} storing. Size of all stored bitmaps will not to
@@ -36,14 +38,15 @@ import java.util.List;
  */
 public class FIFOLimitedMemoryCache extends LimitedMemoryCache {
 
-	private final List<Bitmap> queue = Collections.synchronizedList(new LinkedList<Bitmap>());
+	/** Bitmaps in order of addition. Linked hash set: removal of any Bitmap takes constant time. */
+	private final Set<Bitmap> queue = Collections.synchronizedSet(new LinkedHashSet<Bitmap>());
 
 	public FIFOLimitedMemoryCache(int sizeLimit) {
 		super(sizeLimit);
 	}
 
 	@Override
-	public boolean put(String key, Bitmap value) {
+	public boolean put(CacheKey key, Bitmap value) {
 		if (super.put(key, value)) {
 			queue.add(value);
 			return true;
@@ -53,8 +56,8 @@ public class FIFOLimitedMemoryCache extends LimitedMemoryCache {
 	}
 
 	@Override
-	public Bitmap remove(String key) {
-		Bitmap value = super.get(key);
+	public Bitmap remove(CacheKey key) {
+		Bitmap value = peek(key);
 		if (value != null) {
 			queue.remove(value);
 		}
@@ -74,7 +77,14 @@ public class FIFOLimitedMemoryCache extends LimitedMemoryCache {
 
 	@Override
 	protected Bitmap removeNext() {
-		return queue.remove(0);
+		synchronized (queue) {
+			Iterator<Bitmap> it = queue.iterator();
+			if (!it.hasNext()) return null;
+
+			Bitmap firstValue = it.next();
+			it.remove();
+			return firstValue;
+		}
 	}
 
 	@Override
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+/**
+ * Count-min sketch which estimates how often keys were accessed recently. Every key has 4 counters (4 bits each) in
+ * different rows; estimated frequency is the minimum of them, so collisions can only overestimate it. All counters are
+ * halved after every <b>10 * capacity</b> increments, so frequency of keys which aren't accessed anymore decays.<br />
+ * Not thread-safe.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @since 1.9.3
+ */
+final class FrequencySketch {
+
+	private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+	private static final long RESET_MASK = 0x7777777777777777L;
+	private static final int MAX_FREQUENCY = 15;
+
+	/** Every long contains 16 counters */
+	private long[] table;
+	private int tableMask;
+	private int sampleSize;
+	private int additions;
+
+	FrequencySketch(int capacity) {
+		ensureCapacity(capacity);
+	}
+
+	/**
+	 * Increases size of sketch so it can estimate frequencies of <b>capacity</b> keys with acceptable error. Collected
+	 * frequencies are lost if sketch is resized.
+	 */
+	void ensureCapacity(int capacity) {
+		int length = Math.max(16, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1);
+		if (table != null && table.length >= length) return;
+
+		table = new long[length];
+		tableMask = length - 1;
+		sampleSize = 10 * length;
+		additions = 0;
+	}
+
+	/** Returns number of keys which sketch is sized for */
+	int capacity() {
+		return table.length;
+	}
+
+	/** Returns estimated number of accesses of key (0 - 15) */
+	int frequency(int hash) {
+		hash = spread(hash);
+		int start = (hash & 3) << 2;
+		int frequency = MAX_FREQUENCY;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	/** Records access of key */
+	void increment(int hash) {
+		hash = spread(hash);
+		int start = (hash & 3) << 2;
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			added |= incrementAt(indexOf(hash, i), start + i);
+		}
+		if (added && ++additions == sampleSize) {
+			reset();
+		}
+	}
+
+	/** Increments counter at given position of table if it isn't saturated */
+	private boolean incrementAt(int index, int counter) {
+		int offset = counter << 2;
+		long mask = 0xfL << offset;
+		if ((table[index] & mask) != mask) {
+			table[index] += 1L << offset;
+			return true;
+		}
+		return false;
+	}
+
+	/** Halves all counters */
+	private void reset() {
+		for (int i = 0; i < table.length; i++) {
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		additions >>>= 1;
+	}
+
+	private int indexOf(int hash, int row) {
+		long h = (hash + SEEDS[row]) * SEEDS[row];
+		h += h >>> 32;
+		return (int) h & tableMask;
+	}
+
+	private static int spread(int hash) {
+		hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+		hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+		return (hash >>> 16) ^ hash;
+	}
+}
@@ -17,7 +17,9 @@ package com.nostra13.universalimageloader.cache.memory.impl;
 
 import android.graphics.Bitmap;
 
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
 import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.cache.memory.MemoryCacheStats;
 
 import java.util.Collection;
 import java.util.Comparator;
@@ -25,7 +27,8 @@ import java.util.Comparator;
 /**
  * Decorator for {@link MemoryCache}. Provides special feature for cache: some different keys are considered as
  * equals (using {@link Comparator comparator}). And when you try to put some value into cache by key so entries with
- * "equals" keys will be removed from cache before.<br />
+ * "equals" keys will be removed from cache before. Keys which are considered as equals must be generated for the
+ * same image URI (they are searched among {@linkplain MemoryCache#keysForImageUri(String) variants of this URI}).<br />
  * <b>NOTE:</b> Used for internal needs. Normally you don't need to use this class.
  *
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
@@ -34,19 +37,19 @@ import java.util.Comparator;
 public class FuzzyKeyMemoryCache implements MemoryCache {
 
 	private final MemoryCache cache;
-	private final Comparator<String> keyComparator;
+	private final Comparator<CacheKey> keyComparator;
 
-	public FuzzyKeyMemoryCache(MemoryCache cache, Comparator<String> keyComparator) {
+	public FuzzyKeyMemoryCache(MemoryCache cache, Comparator<CacheKey> keyComparator) {
 		this.cache = cache;
 		this.keyComparator = keyComparator;
 	}
 
 	@Override
-	public boolean put(String key, Bitmap value) {
+	public boolean put(CacheKey key, Bitmap value) {
 		// Search equal key and remove this entry
 		synchronized (cache) {
-			String keyToRemove = null;
-			for (String cacheKey : cache.keys()) {
+			CacheKey keyToRemove = null;
+			for (CacheKey cacheKey : cache.keysForImageUri(key.getImageUri())) {
 				if (keyComparator.compare(key, cacheKey) == 0) {
 					keyToRemove = cacheKey;
 					break;
@@ -60,12 +63,12 @@ public class FuzzyKeyMemoryCache implements MemoryCache {
 	}
 
 	@Override
-	public Bitmap get(String key) {
+	public Bitmap get(CacheKey key) {
 		return cache.get(key);
 	}
 
 	@Override
-	public Bitmap remove(String key) {
+	public Bitmap remove(CacheKey key) {
 		return cache.remove(key);
 	}
 
@@ -75,7 +78,23 @@ public class FuzzyKeyMemoryCache implements MemoryCache {
 	}
 
 	@Override
-	public Collection<String> keys() {
+	public void trim(float fraction) {
+		cache.trim(fraction);
+	}
+
+	@Override
+	public Collection<CacheKey> keys() {
 		return cache.keys();
 	}
+
+	@Override
+	public Collection<CacheKey> keysForImageUri(String imageUri) {
+		return cache.keysForImageUri(imageUri);
+	}
+
+	/** Returns statistics of wrapped cache. Entries replaced by values for "equal" keys are counted as removed. */
+	@Override
+	public MemoryCacheStats getStats() {
+		return cache.getStats();
+	}
 }
@@ -16,6 +16,7 @@
 package com.nostra13.universalimageloader.cache.memory.impl;
 
 import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
 import com.nostra13.universalimageloader.cache.memory.LimitedMemoryCache;
 
 import java.lang.ref.Reference;
@@ -42,7 +43,7 @@ public class LRULimitedMemoryCache extends LimitedMemoryCache {
 	private static final float LOAD_FACTOR = 1.1f;
 
 	/** Cache providing Least-Recently-Used logic */
-	private final Map<String, Bitmap> lruCache = Collections.synchronizedMap(new LinkedHashMap<String, Bitmap>(INITIAL_CAPACITY, LOAD_FACTOR, true));
+	private final Map<CacheKey, Bitmap> lruCache = Collections.synchronizedMap(new LinkedHashMap<CacheKey, Bitmap>(INITIAL_CAPACITY, LOAD_FACTOR, true));
 
 	/** @param maxSize Maximum sum of the sizes of the Bitmaps in this cache */
 	public LRULimitedMemoryCache(int maxSize) {
@@ -50,7 +51,7 @@ public class LRULimitedMemoryCache extends LimitedMemoryCache {
 	}
 
 	@Override
-	public boolean put(String key, Bitmap value) {
+	public boolean put(CacheKey key, Bitmap value) {
 		if (super.put(key, value)) {
 			lruCache.put(key, value);
 			return true;
@@ -60,13 +61,13 @@ public class LRULimitedMemoryCache extends LimitedMemoryCache {
 	}
 
 	@Override
-	public Bitmap get(String key) {
+	public Bitmap get(CacheKey key) {
 		lruCache.get(key); // call "get" for LRU logic
 		return super.get(key);
 	}
 
 	@Override
-	public Bitmap remove(String key) {
+	public Bitmap remove(CacheKey key) {
 		lruCache.remove(key);
 		return super.remove(key);
 	}
@@ -86,9 +87,9 @@ public class LRULimitedMemoryCache extends LimitedMemoryCache {
 	protected Bitmap removeNext() {
 		Bitmap mostLongUsedValue = null;
 		synchronized (lruCache) {
-			Iterator<Entry<String, Bitmap>> it = lruCache.entrySet().iterator();
+			Iterator<Entry<CacheKey, Bitmap>> it = lruCache.entrySet().iterator();
 			if (it.hasNext()) {
-				Entry<String, Bitmap> entry = it.next();
+				Entry<CacheKey, Bitmap> entry = it.next();
 				mostLongUsedValue = entry.getValue();
 				it.remove();
 			}
@@ -16,15 +16,11 @@
 package com.nostra13.universalimageloader.cache.memory.impl;
 
 import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
 import com.nostra13.universalimageloader.cache.memory.LimitedMemoryCache;
 
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 
 /**
  * Limited {@link Bitmap bitmap} cache. Provides {@link Bitmap bitmaps} storing. Size of all stored bitmaps will not to
@@ -39,20 +35,20 @@ import java.util.Set;
  */
 public class LargestLimitedMemoryCache extends LimitedMemoryCache {
 	/**
-	 * Contains strong references to stored objects (keys) and sizes of the objects. If hard cache
-	 * size will exceed limit then object with the largest size is deleted (but it continue exist at
-	 * {@link #softMap} and can be collected by GC at any time)
+	 * Contains strong references to stored objects ordered by sizes of the objects. If hard cache size will exceed
+	 * limit then object with the largest size is deleted (but it continue exist at {@link #softMap} and can be
+	 * collected by GC at any time)
 	 */
-	private final Map<Bitmap, Integer> valueSizes = Collections.synchronizedMap(new HashMap<Bitmap, Integer>());
+	private final BitmapSizeHeap valueSizes = new BitmapSizeHeap();
 
 	public LargestLimitedMemoryCache(int sizeLimit) {
 		super(sizeLimit);
 	}
 
 	@Override
-	public boolean put(String key, Bitmap value) {
+	public boolean put(CacheKey key, Bitmap value) {
 		if (super.put(key, value)) {
-			valueSizes.put(value, getSize(value));
+			valueSizes.add(value, getSize(value));
 			return true;
 		} else {
 			return false;
@@ -60,8 +56,8 @@ public class LargestLimitedMemoryCache extends LimitedMemoryCache {
 	}
 
 	@Override
-	public Bitmap remove(String key) {
-		Bitmap value = super.get(key);
+	public Bitmap remove(CacheKey key) {
+		Bitmap value = peek(key);
 		if (value != null) {
 			valueSizes.remove(value);
 		}
@@ -81,25 +77,7 @@ public class LargestLimitedMemoryCache extends LimitedMemoryCache {
 
 	@Override
 	protected Bitmap removeNext() {
-		Integer maxSize = null;
-		Bitmap largestValue = null;
-		Set<Entry<Bitmap, Integer>> entries = valueSizes.entrySet();
-		synchronized (valueSizes) {
-			for (Entry<Bitmap, Integer> entry : entries) {
-				if (largestValue == null) {
-					largestValue = entry.getKey();
-					maxSize = entry.getValue();
-				} else {
-					Integer size = entry.getValue();
-					if (size > maxSize) {
-						maxSize = size;
-						largestValue = entry.getKey();
-					}
-				}
-			}
-		}
-		valueSizes.remove(largestValue);
-		return largestValue;
+		return valueSizes.poll();
 	}
 
 	@Override
@@ -17,7 +17,9 @@ package com.nostra13.universalimageloader.cache.memory.impl;
 
 import android.graphics.Bitmap;
 
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
 import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.cache.memory.MemoryCacheStats;
 
 import java.util.Collection;
 import java.util.Collections;
@@ -37,7 +39,7 @@ public class LimitedAgeMemoryCache implements MemoryCache {
 	private final MemoryCache cache;
 
 	private final long maxAge;
-	private final Map<String, Long> loadingDates = Collections.synchronizedMap(new HashMap<String, Long>());
+	private final Map<CacheKey, Long> loadingDates = Collections.synchronizedMap(new HashMap<CacheKey, Long>());
 
 	/**
 	 * @param cache  Wrapped memory cache
@@ -50,7 +52,7 @@ public class LimitedAgeMemoryCache implements MemoryCache {
 	}
 
 	@Override
-	public boolean put(String key, Bitmap value) {
+	public boolean put(CacheKey key, Bitmap value) {
 		boolean putSuccesfully = cache.put(key, value);
 		if (putSuccesfully) {
 			loadingDates.put(key, System.currentTimeMillis());
@@ -59,7 +61,7 @@ public class LimitedAgeMemoryCache implements MemoryCache {
 	}
 
 	@Override
-	public Bitmap get(String key) {
+	public Bitmap get(CacheKey key) {
 		Long loadingDate = loadingDates.get(key);
 		if (loadingDate != null && System.currentTimeMillis() - loadingDate > maxAge) {
 			cache.remove(key);
@@ -70,19 +72,37 @@ public class LimitedAgeMemoryCache implements MemoryCache {
 	}
 
 	@Override
-	public Bitmap remove(String key) {
+	public Bitmap remove(CacheKey key) {
 		loadingDates.remove(key);
 		return cache.remove(key);
 	}
 
 	@Override
-	public Collection<String> keys() {
+	public Collection<CacheKey> keys() {
 		return cache.keys();
 	}
 
+	@Override
+	public Collection<CacheKey> keysForImageUri(String imageUri) {
+		return cache.keysForImageUri(imageUri);
+	}
+
 	@Override
 	public void clear() {
 		cache.clear();
 		loadingDates.clear();
 	}
+
+	@Override
+	public void trim(float fraction) {
+		cache.trim(fraction);
+		// Forget loading dates of removed items
+		loadingDates.keySet().retainAll(cache.keys());
+	}
+
+	/** Returns statistics of wrapped cache. Expired entries are counted as removed. */
+	@Override
+	public MemoryCacheStats getStats() {
+		return cache.getStats();
+	}
 }
@@ -2,7 +2,13 @@ package com.nostra13.universalimageloader.cache.memory.impl;
 
 import android.graphics.Bitmap;
 
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
+import com.nostra13.universalimageloader.cache.memory.KeyIndex;
 import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.cache.memory.MemoryCacheStats;
+import com.nostra13.universalimageloader.cache.memory.MemoryCacheStats.EvictionCause;
+import com.nostra13.universalimageloader.cache.memory.StatsCounter;
 
 import java.util.Collection;
 import java.util.HashSet;
@@ -12,7 +18,8 @@ import java.util.Map;
 /**
  * A cache that holds strong references to a limited number of Bitmaps. Each time a Bitmap is accessed, it is moved to
  * the head of a queue. When a Bitmap is added to a full cache, the Bitmap at the end of that queue is evicted and may
- * become eligible for garbage collection.<br />
+ * become eligible for garbage collection (or is {@linkplain BitmapPool#onEvicted(Bitmap) passed} to
+ * {@link BitmapPool} for reuse).<br />
  * <br />
  * <b>NOTE:</b> This cache uses only strong references for stored Bitmaps.
  *
@@ -21,19 +28,32 @@ import java.util.Map;
  */
 public class LruMemoryCache implements MemoryCache {
 
-	private final LinkedHashMap<String, Bitmap> map;
+	private final LinkedHashMap<CacheKey, Bitmap> map;
+	private final KeyIndex keyIndex = new KeyIndex();
 
 	private final int maxSize;
 	/** Size of this cache in bytes */
 	private int size;
 
+	private final BitmapPool bitmapPool;
+	private final StatsCounter stats = new StatsCounter();
+
 	/** @param maxSize Maximum sum of the sizes of the Bitmaps in this cache */
 	public LruMemoryCache(int maxSize) {
+		this(maxSize, null);
+	}
+
+	/**
+	 * @param maxSize    Maximum sum of the sizes of the Bitmaps in this cache
+	 * @param bitmapPool Pool which evicted Bitmaps are passed to. Can be <b>null</b>.
+	 */
+	public LruMemoryCache(int maxSize, BitmapPool bitmapPool) {
 		if (maxSize <= 0) {
 			throw new IllegalArgumentException("maxSize <= 0");
 		}
 		this.maxSize = maxSize;
-		this.map = new LinkedHashMap<String, Bitmap>(0, 0.75f, true);
+		this.map = new LinkedHashMap<CacheKey, Bitmap>(0, 0.75f, true);
+		this.bitmapPool = bitmapPool;
 	}
 
 	/**
@@ -41,32 +61,48 @@ public class LruMemoryCache implements MemoryCache {
 	 * of the queue. This returns null if a Bitmap is not cached.
 	 */
 	@Override
-	public final Bitmap get(String key) {
+	public final Bitmap get(CacheKey key) {
 		if (key == null) {
 			throw new NullPointerException("key == null");
 		}
 
+		Bitmap value;
 		synchronized (this) {
-			return map.get(key);
+			value = map.get(key);
 		}
+
+		if (value == null) {
+			stats.recordMiss();
+		} else {
+			stats.recordHit();
+		}
+		return value;
 	}
 
 	/** Caches {@code Bitmap} for {@code key}. The Bitmap is moved to the head of the queue. */
 	@Override
-	public final boolean put(String key, Bitmap value) {
+	public final boolean put(CacheKey key, Bitmap value) {
 		if (key == null || value == null) {
 			throw new NullPointerException("key == null || value == null");
 		}
 
+		Bitmap previous;
 		synchronized (this) {
 			size += sizeOf(key, value);
-			Bitmap previous = map.put(key, value);
+			previous = map.put(key, value);
 			if (previous != null) {
 				size -= sizeOf(key, previous);
+				stats.recordEviction(EvictionCause.REPLACED);
+			} else {
+				keyIndex.add(key);
 			}
 		}
+		if (previous != null && previous != value && bitmapPool != null) {
+			bitmapPool.onEvicted(previous);
+		}
 
-		trimToSize(maxSize);
+		stats.recordPut();
+		trimToSize(maxSize, EvictionCause.SIZE);
 		return true;
 	}
 
@@ -74,10 +110,11 @@ public class LruMemoryCache implements MemoryCache {
 	 * Remove the eldest entries until the total of remaining entries is at or below the requested size.
 	 *
 	 * @param maxSize the maximum size of the cache before returning. May be -1 to evict even 0-sized elements.
+	 * @param cause   the cause of eviction which is counted in statistics
 	 */
-	private void trimToSize(int maxSize) {
+	private void trimToSize(int maxSize, EvictionCause cause) {
 		while (true) {
-			String key;
+			CacheKey key;
 			Bitmap value;
 			synchronized (this) {
 				if (size < 0 || (map.isEmpty() && size != 0)) {
@@ -85,24 +122,30 @@ public class LruMemoryCache implements MemoryCache {
 				}
 
 				if (size <= maxSize || map.isEmpty()) {
+					stats.recordSize(size);
 					break;
 				}
 
-				Map.Entry<String, Bitmap> toEvict = map.entrySet().iterator().next();
+				Map.Entry<CacheKey, Bitmap> toEvict = map.entrySet().iterator().next();
 				if (toEvict == null) {
 					break;
 				}
 				key = toEvict.getKey();
 				value = toEvict.getValue();
 				map.remove(key);
+				keyIndex.remove(key);
 				size -= sizeOf(key, value);
+				stats.recordEviction(cause);
+			}
+			if (bitmapPool != null) {
+				bitmapPool.onEvicted(value);
 			}
 		}
 	}
 
 	/** Removes the entry for {@code key} if it exists. */
 	@Override
-	public final Bitmap remove(String key) {
+	public final Bitmap remove(CacheKey key) {
 		if (key == null) {
 			throw new NullPointerException("key == null");
 		}
@@ -111,21 +154,44 @@ public class LruMemoryCache implements MemoryCache {
 			Bitmap previous = map.remove(key);
 			if (previous != null) {
 				size -= sizeOf(key, previous);
+				keyIndex.remove(key);
+				stats.recordEviction(EvictionCause.REMOVED);
 			}
 			return previous;
 		}
 	}
 
 	@Override
-	public Collection<String> keys() {
+	public Collection<CacheKey> keys() {
 		synchronized (this) {
-			return new HashSet<String>(map.keySet());
+			return new HashSet<CacheKey>(map.keySet());
+		}
+	}
+
+	@Override
+	public Collection<CacheKey> keysForImageUri(String imageUri) {
+		synchronized (this) {
+			return keyIndex.get(imageUri);
 		}
 	}
 
 	@Override
 	public void clear() {
-		trimToSize(-1); // -1 will evict 0-sized elements
+		trimToSize(-1, EvictionCause.TRIMMED); // -1 will evict 0-sized elements
+	}
+
+	@Override
+	public void trim(float fraction) {
+		if (fraction <= 0) {
+			clear();
+		} else {
+			trimToSize((int) (maxSize * fraction), EvictionCause.TRIMMED);
+		}
+	}
+
+	@Override
+	public synchronized MemoryCacheStats getStats() {
+		return stats.snapshot(size, map.size());
 	}
 
 	/**
@@ -133,7 +199,7 @@ public class LruMemoryCache implements MemoryCache {
 	 * <p/>
 	 * An entry's size must not change while it is in the cache.
 	 */
-	private int sizeOf(String key, Bitmap value) {
+	private int sizeOf(CacheKey key, Bitmap value) {
 		return value.getRowBytes() * value.getHeight();
 	}
 
@@ -0,0 +1,137 @@
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
+import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.cache.memory.MemoryCacheStats;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+
+/**
+ * {@link LruMemoryCache} which is split into several independent segments (shards). Every shard has its own lock and
+ * equal part of cache size. Shard of entry is defined by hash of its key. So concurrent
+ * {@link #get(CacheKey) get}/{@link #put(CacheKey, Bitmap) put} calls for different keys rarely wait for each other
+ * (including lookups on UI thread).<br />
+ * <br />
+ * Eviction is LRU inside every shard, not across the whole cache. While every shard holds many Bitmaps, hit ratio of
+ * this cache differs from hit ratio of {@link LruMemoryCache} of the same size by less than 0.5 percentage points (see
+ * <code>ShardedLruMemoryCacheBenchmark</code>). But Bitmap which is larger than size of shard can't be cached, so
+ * don't use many shards for small cache sizes.<br />
+ * <br />
+ * <b>NOTE:</b> This cache uses only strong references for stored Bitmaps.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @since 1.9.3
+ */
+public class ShardedLruMemoryCache implements MemoryCache {
+
+	/** Default number of shards */
+	public static final int DEFAULT_SHARD_COUNT = 4;
+
+	private final LruMemoryCache[] shards;
+	private final int maxSize;
+
+	/** @param maxSize Maximum sum of the sizes of the Bitmaps in this cache */
+	public ShardedLruMemoryCache(int maxSize) {
+		this(maxSize, DEFAULT_SHARD_COUNT);
+	}
+
+	/**
+	 * @param maxSize    Maximum sum of the sizes of the Bitmaps in this cache
+	 * @param shardCount Number of shards. Every shard gets <b>maxSize / shardCount</b> bytes.
+	 */
+	public ShardedLruMemoryCache(int maxSize, int shardCount) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize <= 0");
+		}
+		if (shardCount <= 0) {
+			throw new IllegalArgumentException("shardCount <= 0");
+		}
+		this.maxSize = maxSize;
+		shards = new LruMemoryCache[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new LruMemoryCache(maxSize / shardCount);
+		}
+	}
+
+	@Override
+	public Bitmap get(CacheKey key) {
+		if (key == null) {
+			throw new NullPointerException("key == null");
+		}
+		return shardFor(key).get(key);
+	}
+
+	@Override
+	public boolean put(CacheKey key, Bitmap value) {
+		if (key == null || value == null) {
+			throw new NullPointerException("key == null || value == null");
+		}
+		return shardFor(key).put(key, value);
+	}
+
+	@Override
+	public Bitmap remove(CacheKey key) {
+		if (key == null) {
+			throw new NullPointerException("key == null");
+		}
+		return shardFor(key).remove(key);
+	}
+
+	@Override
+	public Collection<CacheKey> keys() {
+		Collection<CacheKey> keys = new HashSet<CacheKey>();
+		for (LruMemoryCache shard : shards) {
+			keys.addAll(shard.keys());
+		}
+		return keys;
+	}
+
+	/** Variants of image can be spread among all shards, so every shard is asked (using its index) */
+	@Override
+	public Collection<CacheKey> keysForImageUri(String imageUri) {
+		Collection<CacheKey> keys = new ArrayList<CacheKey>();
+		for (LruMemoryCache shard : shards) {
+			keys.addAll(shard.keysForImageUri(imageUri));
+		}
+		return keys;
+	}
+
+	@Override
+	public void clear() {
+		for (LruMemoryCache shard : shards) {
+			shard.clear();
+		}
+	}
+
+	@Override
+	public void trim(float fraction) {
+		for (LruMemoryCache shard : shards) {
+			shard.trim(fraction);
+		}
+	}
+
+	/** Returns sum of statistics of all shards */
+	@Override
+	public MemoryCacheStats getStats() {
+		MemoryCacheStats stats = shards[0].getStats();
+		for (int i = 1; i < shards.length; i++) {
+			stats = stats.plus(shards[i].getStats());
+		}
+		return stats;
+	}
+
+	private LruMemoryCache shardFor(CacheKey key) {
+		int hash = key.hashCode();
+		hash ^= hash >>> 16; // mix high bits into low ones
+		return shards[(hash & Integer.MAX_VALUE) % shards.length];
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ShardedLruCache[maxSize=%d,shards=%d]", maxSize, shards.length);
+	}
+}
@@ -0,0 +1,355 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
+import com.nostra13.universalimageloader.cache.memory.KeyIndex;
+import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.cache.memory.MemoryCacheStats;
+import com.nostra13.universalimageloader.cache.memory.MemoryCacheStats.EvictionCause;
+import com.nostra13.universalimageloader.cache.memory.StatsCounter;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * Cache which holds strong references to a limited number of Bitmaps and decides which Bitmaps are worth keeping by
+ * both recency and frequency of their usage (W-TinyLFU policy):
+ * <ul>
+ * <li>New Bitmap gets into small LRU <b>window</b> (1% of cache size).</li>
+ * <li>Bitmap which is pushed out of window is admitted to <b>main</b> area only if it was requested more often than
+ * Bitmap which would be evicted for it. Otherwise the new Bitmap is evicted. Frequencies are estimated by
+ * {@link FrequencySketch count-min sketch} which also remembers keys which aren't in cache anymore, and decay with
+ * time.</li>
+ * <li>Main area is segmented LRU: Bitmap which is requested again gets from <b>probation</b> segment into
+ * <b>protected</b> one (80% of main area). Bitmaps evicted from protected segment get back to probation.</li>
+ * </ul>
+ * So images which are shown once (e.g. during fast scroll of long feed) don't push out popular ones. Every operation
+ * takes constant time (amortized by number of evicted Bitmaps).<br />
+ * <br />
+ * Access frequency of key is recorded on {@link #get(CacheKey)} calls (including misses), so {@link #put(CacheKey, Bitmap)}
+ * after missed {@link #get(CacheKey)} doesn't count twice.<br />
+ * <br />
+ * <b>NOTE:</b> This cache uses only strong references for stored Bitmaps.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @since 1.9.3
+ */
+public class TinyLfuMemoryCache implements MemoryCache {
+
+	private static final int WINDOW_PERCENT = 1;
+	private static final int PROTECTED_PERCENT = 80;
+
+	private static final int WINDOW = 0;
+	private static final int PROBATION = 1;
+	private static final int PROTECTED = 2;
+
+	private final Map<CacheKey, Node> map = new HashMap<CacheKey, Node>();
+	private final KeyIndex keyIndex = new KeyIndex();
+	private final FrequencySketch sketch = new FrequencySketch(0);
+	/** LRU lists of segments: head is the eldest entry, tail - the most recent one */
+	private final Node[] heads = new Node[3];
+	private final Node[] tails = new Node[3];
+	/** Sizes of segments in bytes */
+	private final int[] sizes = new int[3];
+	private final StatsCounter stats = new StatsCounter();
+
+	private final int maxSize;
+	private final int maxWindowSize;
+	private final int maxMainSize;
+	private final int maxProtectedSize;
+
+	/** @param maxSize Maximum sum of the sizes of the Bitmaps in this cache */
+	public TinyLfuMemoryCache(int maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize <= 0");
+		}
+		this.maxSize = maxSize;
+		maxWindowSize = (int) ((long) maxSize * WINDOW_PERCENT / 100);
+		maxMainSize = maxSize - maxWindowSize;
+		maxProtectedSize = (int) ((long) maxMainSize * PROTECTED_PERCENT / 100);
+	}
+
+	/**
+	 * Returns the Bitmap for {@code key} if it exists in the cache and records access of the key. This returns null if
+	 * a Bitmap is not cached.
+	 */
+	@Override
+	public Bitmap get(CacheKey key) {
+		if (key == null) {
+			throw new NullPointerException("key == null");
+		}
+
+		synchronized (this) {
+			sketch.increment(key.hashCode());
+			Node node = map.get(key);
+			if (node == null) {
+				stats.recordMiss();
+				return null;
+			}
+
+			stats.recordHit();
+			onAccess(node);
+			return node.value;
+		}
+	}
+
+	/**
+	 * Caches {@code Bitmap} for {@code key}. New Bitmap gets into window and can be evicted soon if it isn't requested
+	 * often.
+	 *
+	 * @return <b>false</b> - if Bitmap is larger than cache size and wasn't cached; <b>true</b> - otherwise
+	 */
+	@Override
+	public boolean put(CacheKey key, Bitmap value) {
+		if (key == null || value == null) {
+			throw new NullPointerException("key == null || value == null");
+		}
+
+		int size = sizeOf(value);
+		synchronized (this) {
+			Node node = map.get(key);
+			if (size > maxSize) {
+				if (node != null) {
+					removeNode(node, EvictionCause.SIZE);
+				}
+				return false;
+			}
+
+			if (node == null) {
+				node = new Node(key, value, size);
+				map.put(key, node);
+				keyIndex.add(key);
+				if (map.size() > sketch.capacity()) {
+					sketch.ensureCapacity(map.size() * 2);
+				}
+				link(node, WINDOW);
+			} else {
+				sizes[node.segment] += size - node.size;
+				node.value = value;
+				node.size = size;
+				onAccess(node);
+				stats.recordEviction(EvictionCause.REPLACED);
+			}
+			stats.recordPut();
+			evict();
+			stats.recordSize(totalSize());
+		}
+		return true;
+	}
+
+	/** Removes the entry for {@code key} if it exists. */
+	@Override
+	public Bitmap remove(CacheKey key) {
+		if (key == null) {
+			throw new NullPointerException("key == null");
+		}
+
+		synchronized (this) {
+			Node node = map.get(key);
+			if (node == null) return null;
+
+			removeNode(node, EvictionCause.REMOVED);
+			return node.value;
+		}
+	}
+
+	@Override
+	public Collection<CacheKey> keys() {
+		synchronized (this) {
+			return new HashSet<CacheKey>(map.keySet());
+		}
+	}
+
+	@Override
+	public Collection<CacheKey> keysForImageUri(String imageUri) {
+		synchronized (this) {
+			return keyIndex.get(imageUri);
+		}
+	}
+
+	/** Removes all Bitmaps from cache. Collected access frequencies of keys are kept. */
+	@Override
+	public void clear() {
+		synchronized (this) {
+			stats.recordEvictions(EvictionCause.TRIMMED, map.size());
+			map.clear();
+			keyIndex.clear();
+			for (int i = 0; i < 3; i++) {
+				heads[i] = null;
+				tails[i] = null;
+				sizes[i] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Removes the least valuable entries: probation ones go first, then window and protected ones. Collected access
+	 * frequencies of keys are kept.
+	 */
+	@Override
+	public void trim(float fraction) {
+		if (fraction <= 0) {
+			clear();
+			return;
+		}
+
+		int targetSize = (int) (maxSize * fraction);
+		synchronized (this) {
+			int segment = PROBATION;
+			while (totalSize() > targetSize) {
+				if (heads[segment] == null) {
+					segment = segment == PROBATION ? WINDOW : PROTECTED;
+					continue;
+				}
+				removeNode(heads[segment], EvictionCause.TRIMMED);
+			}
+		}
+	}
+
+	/** Moves accessed node to the tail of its segment (promotes it from probation to protected) */
+	private void onAccess(Node node) {
+		if (node.segment == PROBATION) {
+			unlink(node);
+			link(node, PROTECTED);
+			// Demote the eldest protected entries to probation
+			while (sizes[PROTECTED] > maxProtectedSize && heads[PROTECTED] != node) {
+				Node demoted = heads[PROTECTED];
+				unlink(demoted);
+				link(demoted, PROBATION);
+			}
+		} else {
+			int segment = node.segment;
+			unlink(node);
+			link(node, segment);
+		}
+	}
+
+	/** Moves entries from window to main area if they pass admission and evicts entries which exceed size limits */
+	private void evict() {
+		while (sizes[WINDOW] > maxWindowSize && heads[WINDOW] != null) {
+			Node candidate = heads[WINDOW];
+			unlink(candidate);
+			admit(candidate);
+		}
+		// Updated entries can overflow main area
+		while (sizes[PROBATION] + sizes[PROTECTED] > maxMainSize) {
+			Node victim = heads[PROBATION] != null ? heads[PROBATION] : heads[PROTECTED];
+			removeNode(victim, EvictionCause.SIZE);
+		}
+	}
+
+	/** Links candidate to probation segment if it's more frequent than entries which should be evicted for it */
+	private void admit(Node candidate) {
+		if (candidate.size > maxMainSize) {
+			forget(candidate, EvictionCause.SIZE);
+			return;
+		}
+
+		int candidateFrequency = sketch.frequency(candidate.key.hashCode());
+		while (sizes[PROBATION] + sizes[PROTECTED] + candidate.size > maxMainSize) {
+			Node victim = heads[PROBATION] != null ? heads[PROBATION] : heads[PROTECTED];
+			if (candidateFrequency <= sketch.frequency(victim.key.hashCode())) {
+				forget(candidate, EvictionCause.SIZE);
+				return;
+			}
+			removeNode(victim, EvictionCause.SIZE);
+		}
+		link(candidate, PROBATION);
+	}
+
+	private void removeNode(Node node, EvictionCause cause) {
+		unlink(node);
+		forget(node, cause);
+	}
+
+	/** Removes unlinked node from map and index */
+	private void forget(Node node, EvictionCause cause) {
+		map.remove(node.key);
+		keyIndex.remove(node.key);
+		stats.recordEviction(cause);
+	}
+
+	/** Adds node to the tail of segment */
+	private void link(Node node, int segment) {
+		node.segment = segment;
+		node.prev = tails[segment];
+		node.next = null;
+		if (tails[segment] == null) {
+			heads[segment] = node;
+		} else {
+			tails[segment].next = node;
+		}
+		tails[segment] = node;
+		sizes[segment] += node.size;
+	}
+
+	private void unlink(Node node) {
+		int segment = node.segment;
+		if (node.prev == null) {
+			heads[segment] = node.next;
+		} else {
+			node.prev.next = node.next;
+		}
+		if (node.next == null) {
+			tails[segment] = node.prev;
+		} else {
+			node.next.prev = node.prev;
+		}
+		node.prev = null;
+		node.next = null;
+		sizes[segment] -= node.size;
+	}
+
+	@Override
+	public synchronized MemoryCacheStats getStats() {
+		return stats.snapshot(totalSize(), map.size());
+	}
+
+	private int totalSize() {
+		return sizes[WINDOW] + sizes[PROBATION] + sizes[PROTECTED];
+	}
+
+	/** Returns the size {@code Bitmap} in bytes. */
+	private int sizeOf(Bitmap value) {
+		return value.getRowBytes() * value.getHeight();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("TinyLfuCache[maxSize=%d,size=%d]", maxSize, totalSize());
+	}
+
+	/** Cache entry which is linked into LRU list of its segment */
+	private static final class Node {
+		final CacheKey key;
+		Bitmap value;
+		int size;
+		int segment;
+		Node prev;
+		Node next;
+
+		Node(CacheKey key, Bitmap value, int size) {
+			this.key = key;
+			this.value = value;
+			this.size = size;
+		}
+	}
+}
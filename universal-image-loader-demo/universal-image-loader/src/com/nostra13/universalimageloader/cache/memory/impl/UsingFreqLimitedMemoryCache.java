@@ -16,6 +16,7 @@
 package com.nostra13.universalimageloader.cache.memory.impl;
 
 import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
 import com.nostra13.universalimageloader.cache.memory.LimitedMemoryCache;
 
 import java.lang.ref.Reference;
@@ -32,7 +33,10 @@ import java.util.Set;
  * cache.<br />
  * <br />
  * <b>NOTE:</b> This cache uses strong and weak references for stored Bitmaps. Strong references - for limited count of
- * Bitmaps (depends on cache size), weak references - for all other cached Bitmaps.
+ * Bitmaps (depends on cache size), weak references - for all other cached Bitmaps.<br />
+ * <br />
+ * Eviction scans all stored Bitmaps and usage counts never decay. {@link TinyLfuMemoryCache} evicts by frequency in
+ * constant time.
  *
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @since 1.0.0
@@ -50,7 +54,7 @@ public class UsingFreqLimitedMemoryCache extends LimitedMemoryCache {
 	}
 
 	@Override
-	public boolean put(String key, Bitmap value) {
+	public boolean put(CacheKey key, Bitmap value) {
 		if (super.put(key, value)) {
 			usingCounts.put(value, 0);
 			return true;
@@ -60,7 +64,7 @@ public class UsingFreqLimitedMemoryCache extends LimitedMemoryCache {
 	}
 
 	@Override
-	public Bitmap get(String key) {
+	public Bitmap get(CacheKey key) {
 		Bitmap value = super.get(key);
 		// Increment usage count for value if value is contained in hardCahe
 		if (value != null) {
@@ -73,8 +77,8 @@ public class UsingFreqLimitedMemoryCache extends LimitedMemoryCache {
 	}
 
 	@Override
-	public Bitmap remove(String key) {
-		Bitmap value = super.get(key);
+	public Bitmap remove(CacheKey key) {
+		Bitmap value = peek(key);
 		if (value != null) {
 			usingCounts.remove(value);
 		}
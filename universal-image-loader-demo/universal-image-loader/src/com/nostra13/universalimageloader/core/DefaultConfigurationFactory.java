@@ -16,12 +16,16 @@
 package com.nostra13.universalimageloader.core;
 
 import android.content.Context;
+import com.nostra13.universalimageloader.cache.disc.DirectoryFanOut;
 import com.nostra13.universalimageloader.cache.disc.DiskCache;
 import com.nostra13.universalimageloader.cache.disc.impl.UnlimitedDiscCache;
 import com.nostra13.universalimageloader.cache.disc.impl.ext.LruDiscCache;
 import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
 import com.nostra13.universalimageloader.cache.disc.naming.HashCodeFileNameGenerator;
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
+import com.nostra13.universalimageloader.cache.memory.DefaultMemoryTrimPolicy;
 import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.cache.memory.MemoryTrimPolicy;
 import com.nostra13.universalimageloader.cache.memory.impl.LruMemoryCache;
 import com.nostra13.universalimageloader.core.assist.QueueProcessingType;
 import com.nostra13.universalimageloader.core.assist.deque.LIFOLinkedBlockingDeque;
@@ -36,10 +40,13 @@ import com.nostra13.universalimageloader.utils.StorageUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Comparator;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -53,12 +60,25 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class DefaultConfigurationFactory {
 
+	private static final int PRIORITY_QUEUE_INITIAL_CAPACITY = 16;
+
 	/** Creates default implementation of task executor */
 	public static Executor createExecutor(int threadPoolSize, int threadPriority,
 			QueueProcessingType tasksProcessingType) {
-		boolean lifo = tasksProcessingType == QueueProcessingType.LIFO;
-		BlockingQueue<Runnable> taskQueue =
-				lifo ? new LIFOLinkedBlockingDeque<Runnable>() : new LinkedBlockingQueue<Runnable>();
+		BlockingQueue<Runnable> taskQueue;
+		switch (tasksProcessingType) {
+			case LIFO:
+				taskQueue = new LIFOLinkedBlockingDeque<Runnable>();
+				break;
+			case PRIORITY:
+				taskQueue = new PriorityBlockingQueue<Runnable>(PRIORITY_QUEUE_INITIAL_CAPACITY,
+						new TaskPriorityComparator());
+				break;
+			case FIFO:
+			default:
+				taskQueue = new LinkedBlockingQueue<Runnable>();
+				break;
+		}
 		return new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 0L, TimeUnit.MILLISECONDS, taskQueue,
 				createThreadFactory(threadPriority, "uil-pool-"));
 	}
@@ -68,6 +88,11 @@ public class DefaultConfigurationFactory {
 		return Executors.newCachedThreadPool(createThreadFactory(Thread.NORM_PRIORITY, "uil-pool-d-"));
 	}
 
+	/** Creates single-thread executor with minimal priority for prefetching of images */
+	public static ScheduledExecutorService createPrefetchExecutor() {
+		return Executors.newSingleThreadScheduledExecutor(createThreadFactory(Thread.MIN_PRIORITY, "uil-pool-p-"));
+	}
+
 	/** Creates {@linkplain HashCodeFileNameGenerator default implementation} of FileNameGenerator */
 	public static FileNameGenerator createFileNameGenerator() {
 		return new HashCodeFileNameGenerator();
@@ -78,19 +103,28 @@ public class DefaultConfigurationFactory {
 	 */
 	public static DiskCache createDiskCache(Context context, FileNameGenerator diskCacheFileNameGenerator,
 			long diskCacheSize, int diskCacheFileCount) {
+		return createDiskCache(context, diskCacheFileNameGenerator, diskCacheSize, diskCacheFileCount,
+				DirectoryFanOut.FLAT);
+	}
+
+	/**
+	 * Creates default implementation of {@link DiskCache} depends on incoming parameters
+	 */
+	public static DiskCache createDiskCache(Context context, FileNameGenerator diskCacheFileNameGenerator,
+			long diskCacheSize, int diskCacheFileCount, DirectoryFanOut diskCacheFanOut) {
 		File reserveCacheDir = createReserveDiskCacheDir(context);
 		if (diskCacheSize > 0 || diskCacheFileCount > 0) {
 			File individualCacheDir = StorageUtils.getIndividualCacheDirectory(context);
 			try {
 				return new LruDiscCache(individualCacheDir, reserveCacheDir, diskCacheFileNameGenerator, diskCacheSize,
-						diskCacheFileCount);
+						diskCacheFileCount, diskCacheFanOut);
 			} catch (IOException e) {
 				L.e(e);
 				// continue and create unlimited cache
 			}
 		}
 		File cacheDir = StorageUtils.getCacheDirectory(context);
-		return new UnlimitedDiscCache(cacheDir, reserveCacheDir, diskCacheFileNameGenerator);
+		return new UnlimitedDiscCache(cacheDir, reserveCacheDir, diskCacheFileNameGenerator, diskCacheFanOut);
 	}
 
 	/** Creates reserve disk cache folder which will be used if primary disk cache folder becomes unavailable */
@@ -108,10 +142,24 @@ public class DefaultConfigurationFactory {
 	 * Default cache size = 1/8 of available app memory.
 	 */
 	public static MemoryCache createMemoryCache(int memoryCacheSize) {
+		return createMemoryCache(memoryCacheSize, null);
+	}
+
+	/**
+	 * Creates default implementation of {@link MemoryCache} - {@link LruMemoryCache} which passes evicted Bitmaps to
+	 * <b>bitmapPool</b> (if it isn't null)<br />
+	 * Default cache size = 1/8 of available app memory.
+	 */
+	public static MemoryCache createMemoryCache(int memoryCacheSize, BitmapPool bitmapPool) {
 		if (memoryCacheSize == 0) {
 			memoryCacheSize = (int) (Runtime.getRuntime().maxMemory() / 8);
 		}
-		return new LruMemoryCache(memoryCacheSize);
+		return new LruMemoryCache(memoryCacheSize, bitmapPool);
+	}
+
+	/** Creates default implementation of {@link MemoryTrimPolicy} - {@link DefaultMemoryTrimPolicy} */
+	public static MemoryTrimPolicy createMemoryTrimPolicy() {
+		return new DefaultMemoryTrimPolicy();
 	}
 
 	/** Creates default implementation of {@link ImageDownloader} - {@link BaseImageDownloader} */
@@ -158,4 +206,31 @@ public class DefaultConfigurationFactory {
 			return t;
 		}
 	}
+
+	/**
+	 * Orders {@linkplain PrioritizedTask tasks} by priority (visible first) and then by submission order. Other
+	 * runnables are considered as visible ones submitted before all tasks.
+	 */
+	static class TaskPriorityComparator implements Comparator<Runnable> {
+
+		@Override
+		public int compare(Runnable lhs, Runnable rhs) {
+			int lhsPriority = getPriority(lhs);
+			int rhsPriority = getPriority(rhs);
+			if (lhsPriority != rhsPriority) {
+				return lhsPriority < rhsPriority ? -1 : 1;
+			}
+			long lhsSequence = getSequenceNumber(lhs);
+			long rhsSequence = getSequenceNumber(rhs);
+			return lhsSequence < rhsSequence ? -1 : (lhsSequence == rhsSequence ? 0 : 1);
+		}
+
+		private static int getPriority(Runnable r) {
+			return r instanceof PrioritizedTask ? ((PrioritizedTask) r).getPriority() : PrioritizedTask.PRIORITY_VISIBLE;
+		}
+
+		private static long getSequenceNumber(Runnable r) {
+			return r instanceof PrioritizedTask ? ((PrioritizedTask) r).getSequenceNumber() : 0;
+		}
+	}
 }
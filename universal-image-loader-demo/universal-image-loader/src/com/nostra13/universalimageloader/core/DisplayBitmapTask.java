@@ -16,6 +16,8 @@
 package com.nostra13.universalimageloader.core;
 
 import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
+import com.nostra13.universalimageloader.core.ImageLoaderMetrics.Stage;
 import com.nostra13.universalimageloader.core.assist.LoadedFrom;
 import com.nostra13.universalimageloader.core.display.BitmapDisplayer;
 import com.nostra13.universalimageloader.core.imageaware.ImageAware;
@@ -37,17 +39,26 @@ final class DisplayBitmapTask implements Runnable {
 	private static final String LOG_TASK_CANCELLED_IMAGEAWARE_COLLECTED = "ImageAware was collected by GC. Task is cancelled. [%s]";
 
 	private final Bitmap bitmap;
+	/** Acquired Bitmap from which displayed Bitmap was produced (they are the same if there is no post-processing) */
+	private final Bitmap sourceBitmap;
 	private final String imageUri;
 	private final ImageAware imageAware;
-	private final String memoryCacheKey;
+	private final CacheKey memoryCacheKey;
 	private final BitmapDisplayer displayer;
 	private final ImageLoadingListener listener;
 	private final ImageLoaderEngine engine;
 	private final LoadedFrom loadedFrom;
+	private final long postTime = System.nanoTime();
 
 	public DisplayBitmapTask(Bitmap bitmap, ImageLoadingInfo imageLoadingInfo, ImageLoaderEngine engine,
 			LoadedFrom loadedFrom) {
+		this(bitmap, bitmap, imageLoadingInfo, engine, loadedFrom);
+	}
+
+	public DisplayBitmapTask(Bitmap bitmap, Bitmap sourceBitmap, ImageLoadingInfo imageLoadingInfo,
+			ImageLoaderEngine engine, LoadedFrom loadedFrom) {
 		this.bitmap = bitmap;
+		this.sourceBitmap = sourceBitmap;
 		imageUri = imageLoadingInfo.uri;
 		imageAware = imageLoadingInfo.imageAware;
 		memoryCacheKey = imageLoadingInfo.memoryCacheKey;
@@ -59,15 +70,23 @@ final class DisplayBitmapTask implements Runnable {
 
 	@Override
 	public void run() {
+		ImageLoaderMetrics metrics = engine.configuration.metrics;
+		if (metrics != null) {
+			metrics.record(Stage.DISPLAY_POST, loadedFrom, System.nanoTime() - postTime);
+		}
+
 		if (imageAware.isCollected()) {
 			L.d(LOG_TASK_CANCELLED_IMAGEAWARE_COLLECTED, memoryCacheKey);
+			engine.releaseBitmap(sourceBitmap);
 			listener.onLoadingCancelled(imageUri, imageAware.getWrappedView());
 		} else if (isViewWasReused()) {
 			L.d(LOG_TASK_CANCELLED_IMAGEAWARE_REUSED, memoryCacheKey);
+			engine.releaseBitmap(sourceBitmap);
 			listener.onLoadingCancelled(imageUri, imageAware.getWrappedView());
 		} else {
 			L.d(LOG_DISPLAY_IMAGE_IN_IMAGEAWARE, loadedFrom, memoryCacheKey);
 			displayer.display(bitmap, imageAware, loadedFrom);
+			engine.onBitmapDisplayed(imageAware, sourceBitmap);
 			engine.cancelDisplayTaskFor(imageAware);
 			listener.onLoadingComplete(imageUri, imageAware.getWrappedView(), bitmap);
 		}
@@ -75,7 +94,7 @@ final class DisplayBitmapTask implements Runnable {
 
 	/** Checks whether memory cache key (image URI) for current ImageAware is actual */
 	private boolean isViewWasReused() {
-		String currentCacheKey = engine.getLoadingUriForView(imageAware);
+		CacheKey currentCacheKey = engine.getLoadingUriForView(imageAware);
 		return !memoryCacheKey.equals(currentCacheKey);
 	}
 }
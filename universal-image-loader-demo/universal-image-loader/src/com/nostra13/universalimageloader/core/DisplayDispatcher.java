@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivers results of display tasks ({@link DisplayBitmapTask displaying}, progress and other listener callbacks) to
+ * UI thread in batches: one batch per frame (vsync) instead of one looper message per result.<br />
+ * Work of every batch is limited by time budget; callbacks which don't fit into it are executed at next frame.
+ * Progress callbacks of the same task are coalesced (only the latest one is executed). Displaying can be
+ * {@linkplain #hold(boolean) held} (e.g. during fling) and continued later.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @since 1.9.3
+ */
+final class DisplayDispatcher {
+
+	/** Max time which can be spent for callbacks execution per frame */
+	private static final long FRAME_TIME_BUDGET_NANOS = 6 * 1000 * 1000; // 6 ms
+
+	private final Handler handler = new Handler(Looper.getMainLooper());
+	private final Queue<Runnable> callbacks = new ConcurrentLinkedQueue<Runnable>();
+	/** Latest progress callbacks by their tasks */
+	private final Map<Object, Runnable> progressCallbacks = new LinkedHashMap<Object, Runnable>();
+	private final AtomicBoolean frameScheduled = new AtomicBoolean(false);
+	private volatile boolean held = false;
+
+	private final Runnable frameRunnable = new Runnable() {
+		@Override
+		public void run() {
+			if (Build.VERSION.SDK_INT >= 16) {
+				FrameCallbackScheduler.postFrameCallback(DisplayDispatcher.this);
+			} else {
+				doFrame();
+			}
+		}
+	};
+
+	/** Returns <b>true</b> - if handler posts callbacks to UI thread so they can be dispatched by frames */
+	static boolean isUiHandler(Handler handler) {
+		return handler.getLooper() == Looper.getMainLooper();
+	}
+
+	/** Schedules callback execution at the next frame */
+	void post(Runnable callback) {
+		callbacks.add(callback);
+		scheduleFrame();
+	}
+
+	/**
+	 * Schedules progress callback execution at the next frame. Not executed yet progress callback of the same task is
+	 * replaced by incoming one.
+	 */
+	void postProgress(Object task, Runnable progressCallback) {
+		synchronized (progressCallbacks) {
+			progressCallbacks.remove(task); // to keep order of tasks
+			progressCallbacks.put(task, progressCallback);
+		}
+		scheduleFrame();
+	}
+
+	/**
+	 * Holds (or releases) execution of callbacks. Held callbacks are executed at the next frame after releasing.
+	 *
+	 * @param hold <b>true</b> - to hold callbacks; <b>false</b> - to release them
+	 */
+	void hold(boolean hold) {
+		held = hold;
+		if (!hold) {
+			scheduleFrame();
+		}
+	}
+
+	private void scheduleFrame() {
+		if (!held && frameScheduled.compareAndSet(false, true)) {
+			handler.post(frameRunnable);
+		}
+	}
+
+	/** Executes scheduled callbacks. Is called on UI thread. */
+	void doFrame() {
+		frameScheduled.set(false);
+		if (held) return;
+
+		long deadline = System.nanoTime() + FRAME_TIME_BUDGET_NANOS;
+
+		// Progress callbacks go first: they are cheap and precede display of the same task
+		List<Runnable> progress;
+		synchronized (progressCallbacks) {
+			progress = new ArrayList<Runnable>(progressCallbacks.values());
+			progressCallbacks.clear();
+		}
+		for (Runnable r : progress) {
+			r.run();
+		}
+
+		// At least one callback is executed per frame
+		Runnable r;
+		while ((r = callbacks.poll()) != null) {
+			r.run();
+			if (System.nanoTime() >= deadline) break;
+		}
+
+		if (!callbacks.isEmpty()) {
+			scheduleFrame(); // leftovers for the next frame
+		}
+	}
+
+	/** Isolates usage of {@link Choreographer} which is available since Android 4.1 (API 16) */
+	@TargetApi(16)
+	private static class FrameCallbackScheduler {
+
+		static void postFrameCallback(final DisplayDispatcher dispatcher) {
+			Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+				@Override
+				public void doFrame(long frameTimeNanos) {
+					dispatcher.doFrame();
+				}
+			});
+		}
+	}
+}
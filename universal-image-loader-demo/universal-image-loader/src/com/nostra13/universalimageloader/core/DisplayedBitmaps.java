@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import android.graphics.Bitmap;
+import android.view.View;
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bitmaps which are {@linkplain BitmapPool#acquire(Bitmap) acquired} by Views displaying them. Views are referenced
+ * weakly and matched by identity (not by {@linkplain com.nostra13.universalimageloader.core.imageaware.ImageAware#getId()
+ * ID} which can be the same for different Views). Bitmap displayed by collected View is released on the next access to
+ * this map.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @since 1.9.3
+ */
+final class DisplayedBitmaps {
+
+	private final BitmapPool bitmapPool;
+	private final Map<ViewReference, Reference<Bitmap>> bitmaps = new HashMap<ViewReference, Reference<Bitmap>>();
+	private final ReferenceQueue<View> collectedViews = new ReferenceQueue<View>();
+
+	DisplayedBitmaps(BitmapPool bitmapPool) {
+		this.bitmapPool = bitmapPool;
+	}
+
+	/** Remembers acquired Bitmap displayed by View. Bitmap which was displayed by this View before is released. */
+	synchronized void put(View view, Bitmap bitmap) {
+		releaseBitmapsOfCollectedViews();
+		Reference<Bitmap> previous = bitmaps.remove(new ViewReference(view, null));
+		bitmaps.put(new ViewReference(view, collectedViews), new WeakReference<Bitmap>(bitmap));
+		release(previous);
+	}
+
+	/** Releases Bitmap displayed by View (if any). View shouldn't display this Bitmap anymore. */
+	synchronized void remove(View view) {
+		releaseBitmapsOfCollectedViews();
+		release(bitmaps.remove(new ViewReference(view, null)));
+	}
+
+	/** Releases all Bitmaps */
+	synchronized void clear() {
+		for (Reference<Bitmap> bitmap : bitmaps.values()) {
+			release(bitmap);
+		}
+		bitmaps.clear();
+	}
+
+	private void releaseBitmapsOfCollectedViews() {
+		Reference<? extends View> view;
+		while ((view = collectedViews.poll()) != null) {
+			release(bitmaps.remove(view));
+		}
+	}
+
+	private void release(Reference<Bitmap> bitmapRef) {
+		Bitmap bitmap = bitmapRef == null ? null : bitmapRef.get();
+		if (bitmap != null) {
+			bitmapPool.release(bitmap);
+		}
+	}
+
+	/** Weak reference to View which is equal to another reference to the same View (or to itself) */
+	private static final class ViewReference extends WeakReference<View> {
+
+		private final int hash;
+
+		ViewReference(View view, ReferenceQueue<View> queue) {
+			super(view, queue);
+			hash = System.identityHashCode(view);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof ViewReference)) return false;
+
+			View view = get();
+			return view != null && view == ((ViewReference) o).get();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -22,12 +22,18 @@ import android.text.TextUtils;
 import android.view.View;
 import android.widget.ImageView;
 import com.nostra13.universalimageloader.cache.disc.DiskCache;
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
+import com.nostra13.universalimageloader.cache.memory.EncodedMemoryCache;
 import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.cache.memory.MemoryTrimPolicy;
 import com.nostra13.universalimageloader.core.assist.FailReason;
 import com.nostra13.universalimageloader.core.assist.FlushedInputStream;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
 import com.nostra13.universalimageloader.core.assist.ImageTokenCallback;
 import com.nostra13.universalimageloader.core.assist.LoadedFrom;
+import com.nostra13.universalimageloader.core.assist.PrefetchTarget;
+import com.nostra13.universalimageloader.core.assist.QueueProcessingType;
 import com.nostra13.universalimageloader.core.assist.ViewScaleType;
 import com.nostra13.universalimageloader.core.imageaware.ImageAware;
 import com.nostra13.universalimageloader.core.imageaware.ImageViewAware;
@@ -39,6 +45,8 @@ import com.nostra13.universalimageloader.utils.ImageSizeUtils;
 import com.nostra13.universalimageloader.utils.L;
 import com.nostra13.universalimageloader.utils.MemoryCacheUtils;
 
+import java.util.Collection;
+
 /**
  * Singletone for image loading and displaying at {@link ImageView ImageViews}<br />
  * <b>NOTE:</b> {@link #init(ImageLoaderConfiguration)} method must be called before any other method.
@@ -52,10 +60,12 @@ public class ImageLoader {
 
 	static final String LOG_INIT_CONFIG = "Initialize ImageLoader with configuration";
 	static final String LOG_DESTROY = "Destroy ImageLoader";
+	static final String LOG_TRIM_MEMORY = "Trim memory cache (level = %1$d, kept part = %2$.2f)";
 	static final String LOG_LOAD_IMAGE_FROM_MEMORY_CACHE = "Load image from memory cache [%s]";
 
 	private static final String WARNING_RE_INIT_CONFIG = "Try to initialize ImageLoader which had already been initialized before. " + "To re-init ImageLoader with new configuration call ImageLoader.destroy() at first.";
 	private static final String ERROR_WRONG_ARGUMENTS = "Wrong arguments were passed to displayImage() method (ImageView reference must not be null)";
+	private static final String ERROR_PREFETCH_WRONG_ARGUMENTS = "Wrong arguments were passed to prefetch() method (URIs and prefetch target must not be null)";
 	private static final String ERROR_NOT_INIT = "ImageLoader must be init with configuration before using";
 	private static final String ERROR_INIT_CONFIG_WITH_NULL = "ImageLoader configuration can not be initialized with null";
 
@@ -195,6 +205,8 @@ public class ImageLoader {
 
 	/**
 	 * Adds display image task to execution pool. Image will be set to ImageAware when it's turn.<br />
+	 * If image isn't cached in memory for target size of view but is cached for larger size then the larger variant is
+	 * displayed at once (view scales it down at draw time).<br />
 	 * <b>NOTE:</b> {@link #init(ImageLoaderConfiguration)} method must be called before this method call
 	 *
 	 * @param uri              Image URI (i.e. "http://site.com/image.png", "file:///mnt/sdcard/image.png")
@@ -229,6 +241,7 @@ public class ImageLoader {
 
 		if (TextUtils.isEmpty(uri)) {
 			engine.cancelDisplayTaskFor(imageAware);
+			engine.releaseDisplayedBitmap(imageAware);
 			listener.onLoadingStarted(uri, imageAware.getWrappedView());
 			if (options.shouldShowImageForEmptyUri()) {
 				imageAware.setImageDrawable(options.getImageForEmptyUri(configuration.resources));
@@ -240,30 +253,56 @@ public class ImageLoader {
 		}
 
 		ImageSize targetSize = ImageSizeUtils.defineTargetSizeForView(imageAware, configuration.getMaxImageSize());
-		String memoryCacheKey = MemoryCacheUtils.generateKey(uri, targetSize);
-		engine.prepareDisplayTaskFor(imageAware, memoryCacheKey);
 
 		listener.onLoadingStarted(uri, imageAware.getWrappedView());
 
-		Bitmap bmp = configuration.memoryCache.get(memoryCacheKey);
-		if (bmp != null && !bmp.isRecycled()) {
-			L.d(LOG_LOAD_IMAGE_FROM_MEMORY_CACHE, memoryCacheKey);
-
-			if (options.shouldPostProcess()) {
-				ImageLoadingInfo imageLoadingInfo = new ImageLoadingInfo(uri, imageAware, targetSize, memoryCacheKey,
-						options, listener, progressListener, engine.getLockForUri(uri));
-				ProcessAndDisplayImageTask displayTask = new ProcessAndDisplayImageTask(engine, bmp, imageLoadingInfo,
-						defineHandler(options));
-				if (options.isSyncLoading()) {
-					displayTask.run();
-				} else {
-					engine.submit(displayTask);
-				}
+		// Lookup key is reused by this thread so memory cache hit doesn't allocate a key
+		CacheKey lookupKey = MemoryCacheUtils.generateLookupKey(uri, targetSize, options);
+		CacheKey cachedKey = lookupKey;
+		Bitmap bmp = engine.getFromMemoryCacheForDisplay(cachedKey);
+		if (bmp == null && imageAware.getWrappedView() != null) {
+			// Larger variant of image is scaled down by view at draw time
+			CacheKey largerKey = MemoryCacheUtils.findNearestLargerKey(lookupKey, configuration.memoryCache);
+			if (largerKey != null) {
+				bmp = engine.getFromMemoryCacheForDisplay(largerKey);
+				cachedKey = largerKey;
+			}
+		}
+		if (bmp != null && bmp.isRecycled()) {
+			// Bitmap was recycled after acquiring, it won't be displayed
+			engine.releaseBitmap(bmp);
+			bmp = null;
+		}
+		boolean isMemoryCacheHit = bmp != null;
+		if (isMemoryCacheHit) {
+			if (configuration.eventListener != null) configuration.eventListener.onMemoryCacheHit(cachedKey);
+			L.d(LOG_LOAD_IMAGE_FROM_MEMORY_CACHE, cachedKey);
+		}
+
+		if (isMemoryCacheHit && !options.shouldPostProcess()) {
+			engine.onDisplayedFromMemoryCache(imageAware, lookupKey);
+
+			options.getDisplayer().display(bmp, imageAware, LoadedFrom.MEMORY_CACHE);
+			engine.onBitmapDisplayed(imageAware, bmp);
+			listener.onLoadingComplete(uri, imageAware.getWrappedView(), bmp);
+			return;
+		}
+
+		CacheKey memoryCacheKey = MemoryCacheUtils.generateKey(uri, targetSize, options);
+		engine.prepareDisplayTaskFor(imageAware, memoryCacheKey);
+		if (isMemoryCacheHit) {
+			ImageLoadingInfo imageLoadingInfo = new ImageLoadingInfo(uri, imageAware, targetSize, memoryCacheKey,
+					options, listener, progressListener);
+			ProcessAndDisplayImageTask displayTask = new ProcessAndDisplayImageTask(engine, bmp, imageLoadingInfo,
+					defineHandler(options));
+			if (options.isSyncLoading()) {
+				displayTask.run();
 			} else {
-				options.getDisplayer().display(bmp, imageAware, LoadedFrom.MEMORY_CACHE);
-				listener.onLoadingComplete(uri, imageAware.getWrappedView(), bmp);
+				engine.submit(displayTask);
 			}
 		} else {
+			if (configuration.eventListener != null) configuration.eventListener.onMemoryCacheMiss(memoryCacheKey);
+
 			if (options.shouldShowImageOnLoading()) {
 				imageAware.setImageDrawable(options.getImageOnLoading(configuration.resources));
 			} else if (options.isResetViewBeforeLoading()) {
@@ -271,7 +310,7 @@ public class ImageLoader {
 			}
 
 			ImageLoadingInfo imageLoadingInfo = new ImageLoadingInfo(uri, imageAware, targetSize, memoryCacheKey,
-					options, listener, progressListener, engine.getLockForUri(uri));
+					options, listener, progressListener);
 			LoadAndDisplayImageTask displayTask = new LoadAndDisplayImageTask(engine, imageLoadingInfo,
 					defineHandler(options));
 			if (options.isSyncLoading()) {
@@ -494,6 +533,43 @@ public class ImageLoader {
 		displayImage(uri, imageAware, options, listener, progressListener);
 	}
 
+	/**
+	 * Prefetches images into cache ahead of displaying (e.g. next page of a list). Prefetching is executed in separate
+	 * low-priority lane and yields to display tasks, so it doesn't slow down loading of images for visible views.
+	 * <br />
+	 * Default display image options
+	 * {@linkplain ImageLoaderConfiguration.Builder#defaultDisplayImageOptions(DisplayImageOptions) from
+	 * configuration} are used for downloading and decoding.<br />
+	 * <b>NOTE:</b> {@link #init(ImageLoaderConfiguration)} method must be called before this method call
+	 *
+	 * @param uris       Image URIs (i.e. "http://site.com/image.png", "file:///mnt/sdcard/image.png")
+	 * @param targetSize Minimal size of decoded images for {@link PrefetchTarget#DISK_AND_MEMORY}. If <b>null</b> -
+	 *                   max image size from configuration is used. Should be equal to size of views which will
+	 *                   display these images so cached bitmaps are found by display tasks.
+	 * @param target     Defines where images are put: into disk cache only or into disk and memory caches
+	 * @return Handle which allows to cancel prefetching of all passed URIs
+	 * @throws IllegalStateException if {@link #init(ImageLoaderConfiguration)} method wasn't called before
+	 */
+	public PrefetchGroup prefetch(Collection<String> uris, ImageSize targetSize, PrefetchTarget target) {
+		checkConfiguration();
+		if (uris == null || target == null) {
+			throw new IllegalArgumentException(ERROR_PREFETCH_WRONG_ARGUMENTS);
+		}
+		if (targetSize == null) {
+			targetSize = configuration.getMaxImageSize();
+		}
+
+		PrefetchGroup group = new PrefetchGroup(uris.size());
+		for (String uri : uris) {
+			if (TextUtils.isEmpty(uri)) {
+				group.onTaskFinished();
+			} else {
+				engine.submit(new PrefetchTask(engine, group, uri, targetSize, target));
+			}
+		}
+		return group;
+	}
+
 	/**
 	 * Loads and decodes image synchronously.<br />
 	 * Default display image options
@@ -591,13 +667,62 @@ public class ImageLoader {
 	}
 
 	/**
-	 * Clears memory cache
+	 * Returns pool of reusable bitmaps (with statistics of reusing) or <b>null</b> if bitmaps aren't reused
+	 *
+	 * @throws IllegalStateException if {@link #init(ImageLoaderConfiguration)} method wasn't called before
+	 * @see ImageLoaderConfiguration.Builder#bitmapPool(BitmapPool)
+	 */
+	public BitmapPool getBitmapPool() {
+		checkConfiguration();
+		return configuration.bitmapPool;
+	}
+
+	/**
+	 * Returns memory cache of encoded images (with hit statistics) or <b>null</b> if encoded images aren't cached in
+	 * memory
+	 *
+	 * @throws IllegalStateException if {@link #init(ImageLoaderConfiguration)} method wasn't called before
+	 * @see ImageLoaderConfiguration.Builder#encodedMemoryCache(EncodedMemoryCache)
+	 */
+	public EncodedMemoryCache getEncodedMemoryCache() {
+		checkConfiguration();
+		return configuration.encodedMemoryCache;
+	}
+
+	/**
+	 * Clears memory cache (and memory cache of encoded images)
 	 *
 	 * @throws IllegalStateException if {@link #init(ImageLoaderConfiguration)} method wasn't called before
 	 */
 	public void clearMemoryCache() {
 		checkConfiguration();
 		configuration.memoryCache.clear();
+		if (configuration.encodedMemoryCache != null) {
+			configuration.encodedMemoryCache.clear();
+		}
+	}
+
+	/**
+	 * Trims memory cache (bitmap pool and encoded memory cache) according to {@linkplain ImageLoaderConfiguration.Builder#memoryTrimPolicy(
+	 * MemoryTrimPolicy) memory trim policy}. Call it from {@link android.content.ComponentCallbacks2#onTrimMemory(int)
+	 * onTrimMemory(int)} of your Application or Activity.
+	 *
+	 * @param level Memory trim level
+	 * @throws IllegalStateException if {@link #init(ImageLoaderConfiguration)} method wasn't called before
+	 */
+	public void onTrimMemory(int level) {
+		checkConfiguration();
+		float fraction = configuration.memoryTrimPolicy.getTrimFraction(level);
+		if (fraction >= 1f) return;
+
+		L.d(LOG_TRIM_MEMORY, level, fraction);
+		configuration.memoryCache.trim(fraction);
+		if (configuration.bitmapPool != null) {
+			configuration.bitmapPool.trim(fraction);
+		}
+		if (configuration.encodedMemoryCache != null) {
+			configuration.encodedMemoryCache.trim(fraction);
+		}
 	}
 
 	/**
@@ -647,7 +772,8 @@ public class ImageLoader {
 	 * {@link com.nostra13.universalimageloader.core.imageaware.ImageAware ImageAware}
 	 */
 	public String getLoadingUriForView(ImageAware imageAware) {
-		return engine.getLoadingUriForView(imageAware);
+		CacheKey memoryCacheKey = engine.getLoadingUriForView(imageAware);
+		return memoryCacheKey == null ? null : memoryCacheKey.toString();
 	}
 
 	/**
@@ -655,18 +781,24 @@ public class ImageLoader {
 	 * {@link android.widget.ImageView ImageView}
 	 */
 	public String getLoadingUriForView(ImageView imageView) {
-		return engine.getLoadingUriForView(new ImageViewAware(imageView));
+		return getLoadingUriForView(new ImageViewAware(imageView));
 	}
 
 	/**
 	 * Cancel the task of loading and displaying image for passed
-	 * {@link com.nostra13.universalimageloader.core.imageaware.ImageAware ImageAware}.
+	 * {@link com.nostra13.universalimageloader.core.imageaware.ImageAware ImageAware}. Not started task is removed
+	 * from the queue, running task aborts its network stream and image decoding (unless other tasks wait for the same
+	 * image).<br />
+	 * If {@linkplain ImageLoaderConfiguration.Builder#bitmapPool(com.nostra13.universalimageloader.cache.memory.BitmapPool)
+	 * bitmap pool} is used then Bitmap displayed in view by ImageLoader is released, so its memory can be reused for
+	 * other images. View shouldn't display this Bitmap after this call (e.g. call it when view is recycled).
 	 *
 	 * @param imageAware {@link com.nostra13.universalimageloader.core.imageaware.ImageAware ImageAware} for
 	 *                   which display task will be cancelled
 	 */
 	public void cancelDisplayTask(ImageAware imageAware) {
 		engine.cancelDisplayTaskFor(imageAware);
+		engine.releaseDisplayedBitmap(imageAware);
 	}
 
 	/**
@@ -676,7 +808,40 @@ public class ImageLoader {
 	 * @param imageView {@link android.widget.ImageView ImageView} for which display task will be cancelled
 	 */
 	public void cancelDisplayTask(ImageView imageView) {
-		engine.cancelDisplayTaskFor(new ImageViewAware(imageView));
+		cancelDisplayTask(new ImageViewAware(imageView));
+	}
+
+	/**
+	 * Changes priority of display task for passed
+	 * {@link com.nostra13.universalimageloader.core.imageaware.ImageAware ImageAware} if this task wasn't started
+	 * yet. Call it for views of your list when it's scrolled so tasks of visible views are executed first.<br />
+	 * <b>NOTE:</b> Task order is considered only if
+	 * {@linkplain ImageLoaderConfiguration.Builder#tasksProcessingOrder(QueueProcessingType) tasks processing order}
+	 * is {@link QueueProcessingType#PRIORITY}.
+	 *
+	 * @param imageAware           {@link com.nostra13.universalimageloader.core.imageaware.ImageAware ImageAware} for
+	 *                             which display task priority will be changed
+	 * @param distanceFromViewport Distance of view from the visible area of screen (e.g. in list items). <b>0</b> - if
+	 *                             view is visible. Tasks with less value are executed first. By default tasks for
+	 *                             {@linkplain android.view.View#VISIBLE visible} views have <b>0</b> and other tasks
+	 *                             have <b>1</b>, tasks with equal priority are executed in order of submission.
+	 */
+	public void setTaskPriority(ImageAware imageAware, int distanceFromViewport) {
+		engine.setTaskPriority(imageAware, distanceFromViewport);
+	}
+
+	/**
+	 * Changes priority of display task for passed {@link android.widget.ImageView ImageView} if this task wasn't
+	 * started yet.
+	 *
+	 * @param imageView            {@link android.widget.ImageView ImageView} for which display task priority will be
+	 *                             changed
+	 * @param distanceFromViewport Distance of view from the visible area of screen (e.g. in list items). <b>0</b> - if
+	 *                             view is visible.
+	 * @see #setTaskPriority(ImageAware, int)
+	 */
+	public void setTaskPriority(ImageView imageView, int distanceFromViewport) {
+		engine.setTaskPriority(new ImageViewAware(imageView), distanceFromViewport);
 	}
 
 	/**
@@ -704,6 +869,17 @@ public class ImageLoader {
 		engine.handleSlowNetwork(handleSlowNetwork);
 	}
 
+	/**
+	 * Returns latency metrics of image loading stages or <b>null</b> if they
+	 * {@linkplain ImageLoaderConfiguration.Builder#collectMetrics() aren't collected}.
+	 *
+	 * @throws IllegalStateException if {@link #init(ImageLoaderConfiguration)} method wasn't called before
+	 */
+	public ImageLoaderMetrics getMetrics() {
+		checkConfiguration();
+		return configuration.metrics;
+	}
+
 	/**
 	 * Pause ImageLoader. All new "load&display" tasks won't be executed until ImageLoader is {@link #resume() resumed}.
 	 * <br />
@@ -718,11 +894,25 @@ public class ImageLoader {
 		engine.resume();
 	}
 
+	/**
+	 * Holds displaying of loaded images (e.g. during fling). Images continue loading but they won't be displayed until
+	 * displaying is {@link #resumeDisplaying() resumed}.
+	 */
+	public void pauseDisplaying() {
+		engine.holdDisplaying(true);
+	}
+
+	/** Displays images which were loaded while displaying was {@linkplain #pauseDisplaying() paused} */
+	public void resumeDisplaying() {
+		engine.holdDisplaying(false);
+	}
+
 	/**
 	 * Cancels all running and scheduled display image tasks.<br />
 	 * <b>NOTE:</b> This method doesn't shutdown
 	 * {@linkplain com.nostra13.universalimageloader.core.ImageLoaderConfiguration.Builder#taskExecutor(java.util.concurrent.Executor)
 	 * custom task executors} if you set them.<br />
+	 * Bitmaps displayed in views are released (if bitmap pool is used), so views shouldn't display them anymore.<br />
 	 * ImageLoader still can be used after calling this method.
 	 */
 	public void stop() {
@@ -18,15 +18,20 @@ package com.nostra13.universalimageloader.core;
 import android.content.Context;
 import android.content.res.Resources;
 import android.util.DisplayMetrics;
+import com.nostra13.universalimageloader.cache.disc.DirectoryFanOut;
 import com.nostra13.universalimageloader.cache.disc.DiskCache;
 import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
+import com.nostra13.universalimageloader.cache.memory.EncodedMemoryCache;
 import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.cache.memory.MemoryTrimPolicy;
 import com.nostra13.universalimageloader.cache.memory.impl.FuzzyKeyMemoryCache;
 import com.nostra13.universalimageloader.core.assist.FlushedInputStream;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
 import com.nostra13.universalimageloader.core.assist.QueueProcessingType;
 import com.nostra13.universalimageloader.core.decode.ImageDecoder;
 import com.nostra13.universalimageloader.core.download.ImageDownloader;
+import com.nostra13.universalimageloader.core.listener.ImageLoaderEventListener;
 import com.nostra13.universalimageloader.core.process.BitmapProcessor;
 import com.nostra13.universalimageloader.utils.L;
 import com.nostra13.universalimageloader.utils.MemoryCacheUtils;
@@ -63,10 +68,17 @@ public final class ImageLoaderConfiguration {
 	final boolean customExecutorForCachedImages;
 
 	final int threadPoolSize;
+	final int decodingThreadPoolSize;
 	final int threadPriority;
 	final QueueProcessingType tasksProcessingType;
+	final boolean loadCachedImagesOnPause;
+	final ImageLoaderMetrics metrics;
+	final ImageLoaderEventListener eventListener;
 
 	final MemoryCache memoryCache;
+	final BitmapPool bitmapPool;
+	final EncodedMemoryCache encodedMemoryCache;
+	final MemoryTrimPolicy memoryTrimPolicy;
 	final DiskCache diskCache;
 	final ImageDownloader downloader;
 	final ImageDecoder decoder;
@@ -85,10 +97,17 @@ public final class ImageLoaderConfiguration {
 		taskExecutor = builder.taskExecutor;
 		taskExecutorForCachedImages = builder.taskExecutorForCachedImages;
 		threadPoolSize = builder.threadPoolSize;
+		decodingThreadPoolSize = builder.decodingThreadPoolSize;
 		threadPriority = builder.threadPriority;
 		tasksProcessingType = builder.tasksProcessingType;
+		loadCachedImagesOnPause = builder.loadCachedImagesOnPause;
+		metrics = builder.collectMetrics ? new ImageLoaderMetrics() : null;
+		eventListener = builder.eventListener;
 		diskCache = builder.diskCache;
 		memoryCache = builder.memoryCache;
+		bitmapPool = builder.bitmapPool;
+		encodedMemoryCache = builder.encodedMemoryCache;
+		memoryTrimPolicy = builder.memoryTrimPolicy;
 		defaultDisplayImageOptions = builder.defaultDisplayImageOptions;
 		downloader = builder.downloader;
 		decoder = builder.decoder;
@@ -111,13 +130,18 @@ public final class ImageLoaderConfiguration {
 	 * <li>maxImageWidthForDikcCache = unlimited</li>
 	 * <li>maxImageHeightForDiskCache = unlimited</li>
 	 * <li>threadPoolSize = {@link Builder#DEFAULT_THREAD_POOL_SIZE this}</li>
+	 * <li>decodingThreadPoolSize = {@link Builder#DEFAULT_DECODING_THREAD_POOL_SIZE this}</li>
 	 * <li>threadPriority = {@link Builder#DEFAULT_THREAD_PRIORITY this}</li>
 	 * <li>allow to cache different sizes of image in memory</li>
 	 * <li>memoryCache = {@link DefaultConfigurationFactory#createMemoryCache(int)}</li>
+	 * <li>bitmapPool = <b>null</b> (bitmaps aren't reused)</li>
+	 * <li>encodedMemoryCache = <b>null</b> (encoded images aren't cached in memory)</li>
+	 * <li>memoryTrimPolicy = {@link DefaultConfigurationFactory#createMemoryTrimPolicy()}</li>
 	 * <li>diskCache = {@link com.nostra13.universalimageloader.cache.disc.impl.UnlimitedDiscCache}</li>
 	 * <li>imageDownloader = {@link DefaultConfigurationFactory#createImageDownloader(Context)}</li>
 	 * <li>imageDecoder = {@link DefaultConfigurationFactory#createImageDecoder(boolean)}</li>
 	 * <li>diskCacheFileNameGenerator = {@link DefaultConfigurationFactory#createFileNameGenerator()}</li>
+	 * <li>diskCacheFanOut = {@link DirectoryFanOut#FLAT} (all files in cache directory)</li>
 	 * <li>defaultDisplayImageOptions = {@link DisplayImageOptions#createSimple() Simple options}</li>
 	 * <li>tasksProcessingOrder = {@link QueueProcessingType#FIFO}</li>
 	 * <li>detailed logging disabled</li>
@@ -150,12 +174,15 @@ public final class ImageLoaderConfiguration {
 
 		private static final String WARNING_OVERLAP_DISK_CACHE_PARAMS = "diskCache(), diskCacheSize() and diskCacheFileCount calls overlap each other";
 		private static final String WARNING_OVERLAP_DISK_CACHE_NAME_GENERATOR = "diskCache() and diskCacheFileNameGenerator() calls overlap each other";
+		private static final String WARNING_OVERLAP_DISK_CACHE_FAN_OUT = "diskCache() and diskCacheFanOut() calls overlap each other";
 		private static final String WARNING_OVERLAP_MEMORY_CACHE = "memoryCache() and memoryCacheSize() calls overlap each other";
-		private static final String WARNING_OVERLAP_EXECUTOR = "threadPoolSize(), threadPriority() and tasksProcessingOrder() calls "
+		private static final String WARNING_OVERLAP_EXECUTOR = "threadPoolSize(), decodingThreadPoolSize(), threadPriority() and tasksProcessingOrder() calls "
 				+ "can overlap taskExecutor() and taskExecutorForCachedImages() calls.";
 
 		/** {@value} */
 		public static final int DEFAULT_THREAD_POOL_SIZE = 3;
+		/** Number of available processors */
+		public static final int DEFAULT_DECODING_THREAD_POOL_SIZE = Runtime.getRuntime().availableProcessors();
 		/** {@value} */
 		public static final int DEFAULT_THREAD_PRIORITY = Thread.NORM_PRIORITY - 1;
 		/** {@value} */
@@ -175,8 +202,10 @@ public final class ImageLoaderConfiguration {
 		private boolean customExecutorForCachedImages = false;
 
 		private int threadPoolSize = DEFAULT_THREAD_POOL_SIZE;
+		private int decodingThreadPoolSize = DEFAULT_DECODING_THREAD_POOL_SIZE;
 		private int threadPriority = DEFAULT_THREAD_PRIORITY;
 		private boolean denyCacheImageMultipleSizesInMemory = false;
+		private boolean loadCachedImagesOnPause = false;
 		private QueueProcessingType tasksProcessingType = DEFAULT_TASK_PROCESSING_TYPE;
 
 		private int memoryCacheSize = 0;
@@ -184,13 +213,19 @@ public final class ImageLoaderConfiguration {
 		private int diskCacheFileCount = 0;
 
 		private MemoryCache memoryCache = null;
+		private BitmapPool bitmapPool = null;
+		private EncodedMemoryCache encodedMemoryCache = null;
+		private MemoryTrimPolicy memoryTrimPolicy = null;
 		private DiskCache diskCache = null;
 		private FileNameGenerator diskCacheFileNameGenerator = null;
+		private DirectoryFanOut diskCacheFanOut = null;
 		private ImageDownloader downloader = null;
 		private ImageDecoder decoder;
 		private DisplayImageOptions defaultDisplayImageOptions = null;
 
 		private boolean writeLogs = false;
+		private boolean collectMetrics = false;
+		private ImageLoaderEventListener eventListener = null;
 
 		public Builder(Context context) {
 			this.context = context.getApplicationContext();
@@ -251,7 +286,8 @@ public final class ImageLoaderConfiguration {
 		 * @see #taskExecutorForCachedImages(Executor)
 		 */
 		public Builder taskExecutor(Executor executor) {
-			if (threadPoolSize != DEFAULT_THREAD_POOL_SIZE || threadPriority != DEFAULT_THREAD_PRIORITY || tasksProcessingType != DEFAULT_TASK_PROCESSING_TYPE) {
+			if (threadPoolSize != DEFAULT_THREAD_POOL_SIZE || decodingThreadPoolSize != DEFAULT_DECODING_THREAD_POOL_SIZE
+					|| threadPriority != DEFAULT_THREAD_PRIORITY || tasksProcessingType != DEFAULT_TASK_PROCESSING_TYPE) {
 				L.w(WARNING_OVERLAP_EXECUTOR);
 			}
 
@@ -261,7 +297,8 @@ public final class ImageLoaderConfiguration {
 
 		/**
 		 * Sets custom {@linkplain Executor executor} for tasks of displaying <b>cached on disk</b> images (these tasks
-		 * are executed quickly so UIL prefer to use separate executor for them).<br />
+		 * are executed quickly so UIL prefer to use separate executor for them). This executor is the decoding stage of
+		 * loading pipeline: tasks which downloaded image on disk are handed off to it for decoding.<br />
 		 * <br />
 		 * If you set the same executor for {@linkplain #taskExecutor(Executor) general tasks} and
 		 * tasks about cached images (this method) then these tasks will be in the
@@ -270,7 +307,7 @@ public final class ImageLoaderConfiguration {
 		 * <b>NOTE:</b> If you set custom executor then following configuration options will not be considered for this
 		 * executor:
 		 * <ul>
-		 * <li>{@link #threadPoolSize(int)}</li>
+		 * <li>{@link #decodingThreadPoolSize(int)}</li>
 		 * <li>{@link #threadPriority(int)}</li>
 		 * <li>{@link #tasksProcessingOrder(QueueProcessingType)}</li>
 		 * </ul>
@@ -278,7 +315,8 @@ public final class ImageLoaderConfiguration {
 		 * @see #taskExecutor(Executor)
 		 */
 		public Builder taskExecutorForCachedImages(Executor executorForCachedImages) {
-			if (threadPoolSize != DEFAULT_THREAD_POOL_SIZE || threadPriority != DEFAULT_THREAD_PRIORITY || tasksProcessingType != DEFAULT_TASK_PROCESSING_TYPE) {
+			if (threadPoolSize != DEFAULT_THREAD_POOL_SIZE || decodingThreadPoolSize != DEFAULT_DECODING_THREAD_POOL_SIZE
+					|| threadPriority != DEFAULT_THREAD_PRIORITY || tasksProcessingType != DEFAULT_TASK_PROCESSING_TYPE) {
 				L.w(WARNING_OVERLAP_EXECUTOR);
 			}
 
@@ -287,7 +325,8 @@ public final class ImageLoaderConfiguration {
 		}
 
 		/**
-		 * Sets thread pool size for image display tasks.<br />
+		 * Sets thread pool size for image display tasks which load images from the network (I/O stage of loading
+		 * pipeline).<br />
 		 * Default value - {@link #DEFAULT_THREAD_POOL_SIZE this}
 		 */
 		public Builder threadPoolSize(int threadPoolSize) {
@@ -299,6 +338,20 @@ public final class ImageLoaderConfiguration {
 			return this;
 		}
 
+		/**
+		 * Sets thread pool size for decoding of images cached on disk (CPU stage of loading pipeline). Images which
+		 * are downloaded at I/O stage are decoded by this pool too.<br />
+		 * Default value - {@link #DEFAULT_DECODING_THREAD_POOL_SIZE this}
+		 */
+		public Builder decodingThreadPoolSize(int decodingThreadPoolSize) {
+			if (taskExecutor != null || taskExecutorForCachedImages != null) {
+				L.w(WARNING_OVERLAP_EXECUTOR);
+			}
+
+			this.decodingThreadPoolSize = decodingThreadPoolSize;
+			return this;
+		}
+
 		/**
 		 * Sets the priority for image loading threads. Should be <b>NOT</b> greater than {@link Thread#MAX_PRIORITY} or
 		 * less than {@link Thread#MIN_PRIORITY}<br />
@@ -334,9 +387,22 @@ public final class ImageLoaderConfiguration {
 			return this;
 		}
 
+		/**
+		 * Allows to load images which are cached on disk while ImageLoader is {@linkplain ImageLoader#pause() paused}
+		 * (e.g. during list scrolling). Tasks which need to download images from the network still wait for
+		 * {@linkplain ImageLoader#resume() resuming}.
+		 */
+		public Builder loadCachedImagesOnPause() {
+			this.loadCachedImagesOnPause = true;
+			return this;
+		}
+
 		/**
 		 * Sets type of queue processing for tasks for loading and displaying images.<br />
-		 * Default value - {@link QueueProcessingType#FIFO}
+		 * Default value - {@link QueueProcessingType#FIFO}<br />
+		 * Use {@link QueueProcessingType#PRIORITY} and
+		 * {@link ImageLoader#setTaskPriority(com.nostra13.universalimageloader.core.imageaware.ImageAware, int)} to
+		 * load images of visible views before images of views which are out of screen.
 		 */
 		public Builder tasksProcessingOrder(QueueProcessingType tasksProcessingType) {
 			if (taskExecutor != null || taskExecutorForCachedImages != null) {
@@ -408,6 +474,47 @@ public final class ImageLoaderConfiguration {
 			return this;
 		}
 
+		/**
+		 * Sets pool of {@link android.graphics.Bitmap bitmaps} which memory is reused for decoding of new images
+		 * (Android 3.0+). Default memory cache passes evicted bitmaps to the pool; if you set custom memory cache then
+		 * create it as {@link com.nostra13.universalimageloader.cache.memory.impl.LruMemoryCache#LruMemoryCache(int,
+		 * BitmapPool) LruMemoryCache(size, bitmapPool)}.<br />
+		 * Default value - <b>null</b> (bitmaps aren't reused)<br />
+		 * <br />
+		 * <b>NOTE:</b> Bitmaps passed to {@link com.nostra13.universalimageloader.core.listener.ImageLoadingListener
+		 * listeners} of display tasks and found in memory cache can be reused for another image after they are evicted
+		 * from memory cache and replaced in Views. Don't keep references to them.
+		 */
+		public Builder bitmapPool(BitmapPool bitmapPool) {
+			this.bitmapPool = bitmapPool;
+			return this;
+		}
+
+		/**
+		 * Sets memory cache of encoded images (bytes of image files). Image which isn't found in memory cache is decoded
+		 * from encoded memory cache (if it's there) without reading of disk cache file. Images read from disk cache
+		 * (including just downloaded ones) are put into encoded memory cache.<br />
+		 * Encoded memory cache isn't used for images which are displayed with
+		 * {@linkplain DisplayImageOptions.Builder#considerExifParams(boolean) EXIF params considering} (EXIF is read
+		 * from file).<br />
+		 * Default value - <b>null</b> (encoded images aren't cached in memory)
+		 */
+		public Builder encodedMemoryCache(EncodedMemoryCache encodedMemoryCache) {
+			this.encodedMemoryCache = encodedMemoryCache;
+			return this;
+		}
+
+		/**
+		 * Sets policy which defines how much memory cache (and bitmap pool) is trimmed on
+		 * {@link ImageLoader#onTrimMemory(int)} calls.<br />
+		 * Default value - {@link com.nostra13.universalimageloader.cache.memory.DefaultMemoryTrimPolicy
+		 * DefaultMemoryTrimPolicy}
+		 */
+		public Builder memoryTrimPolicy(MemoryTrimPolicy memoryTrimPolicy) {
+			this.memoryTrimPolicy = memoryTrimPolicy;
+			return this;
+		}
+
 		/** @deprecated Use {@link #diskCacheSize(int)} instead */
 		@Deprecated
 		public Builder discCacheSize(int maxCacheSize) {
@@ -479,6 +586,21 @@ public final class ImageLoaderConfiguration {
 			return this;
 		}
 
+		/**
+		 * Sets layout of files in disk cache directory: files can be spread over hashed subdirectories (e.g.
+		 * <code>new DirectoryFanOut(2, 256)</code>) which keeps directories small when many images are cached.
+		 * Files of existing cache are moved to the new layout while cache is used.<br />
+		 * Default value - {@link DirectoryFanOut#FLAT} (all files are stored in cache directory)
+		 */
+		public Builder diskCacheFanOut(DirectoryFanOut fanOut) {
+			if (diskCache != null) {
+				L.w(WARNING_OVERLAP_DISK_CACHE_FAN_OUT);
+			}
+
+			this.diskCacheFanOut = fanOut;
+			return this;
+		}
+
 		/** @deprecated Use {@link #diskCache(com.nostra13.universalimageloader.cache.disc.DiskCache)} */
 		@Deprecated
 		public Builder discCache(DiskCache diskCache) {
@@ -497,6 +619,7 @@ public final class ImageLoaderConfiguration {
 		 * <li>{@link #diskCacheSize(int)}</li>
 		 * <li>{@link #diskCacheFileCount(int)}</li>
 		 * <li>{@link #diskCacheFileNameGenerator(FileNameGenerator)}</li>
+		 * <li>{@link #diskCacheFanOut(DirectoryFanOut)}</li>
 		 * </ul>
 		 */
 		public Builder diskCache(DiskCache diskCache) {
@@ -506,6 +629,9 @@ public final class ImageLoaderConfiguration {
 			if (diskCacheFileNameGenerator != null) {
 				L.w(WARNING_OVERLAP_DISK_CACHE_NAME_GENERATOR);
 			}
+			if (diskCacheFanOut != null) {
+				L.w(WARNING_OVERLAP_DISK_CACHE_FAN_OUT);
+			}
 
 			this.diskCache = diskCache;
 			return this;
@@ -554,6 +680,26 @@ public final class ImageLoaderConfiguration {
 			return this;
 		}
 
+		/**
+		 * Enables collecting of latency {@linkplain ImageLoaderMetrics metrics} for stages of image loading. Metrics
+		 * are available through {@link ImageLoader#getMetrics()}.
+		 */
+		public Builder collectMetrics() {
+			this.collectMetrics = true;
+			return this;
+		}
+
+		/**
+		 * Sets listener for low-level events of image loading (queueing, cache hits and misses, downloading, decoding,
+		 * processing). Listener is called synchronously in ImageLoader threads so it must be thread-safe and fast.
+		 * <br />
+		 * Default value - <b>null</b> (no listener)
+		 */
+		public Builder eventListener(ImageLoaderEventListener eventListener) {
+			this.eventListener = eventListener;
+			return this;
+		}
+
 		/** Builds configured {@link ImageLoaderConfiguration} object */
 		public ImageLoaderConfiguration build() {
 			initEmptyFieldsWithDefaultValues();
@@ -569,7 +715,7 @@ public final class ImageLoaderConfiguration {
 			}
 			if (taskExecutorForCachedImages == null) {
 				taskExecutorForCachedImages = DefaultConfigurationFactory
-						.createExecutor(threadPoolSize, threadPriority, tasksProcessingType);
+						.createExecutor(decodingThreadPoolSize, threadPriority, tasksProcessingType);
 			} else {
 				customExecutorForCachedImages = true;
 			}
@@ -577,11 +723,17 @@ public final class ImageLoaderConfiguration {
 				if (diskCacheFileNameGenerator == null) {
 					diskCacheFileNameGenerator = DefaultConfigurationFactory.createFileNameGenerator();
 				}
-				diskCache = DefaultConfigurationFactory
-						.createDiskCache(context, diskCacheFileNameGenerator, diskCacheSize, diskCacheFileCount);
+				if (diskCacheFanOut == null) {
+					diskCacheFanOut = DirectoryFanOut.FLAT;
+				}
+				diskCache = DefaultConfigurationFactory.createDiskCache(context, diskCacheFileNameGenerator,
+						diskCacheSize, diskCacheFileCount, diskCacheFanOut);
 			}
 			if (memoryCache == null) {
-				memoryCache = DefaultConfigurationFactory.createMemoryCache(memoryCacheSize);
+				memoryCache = DefaultConfigurationFactory.createMemoryCache(memoryCacheSize, bitmapPool);
+			}
+			if (memoryTrimPolicy == null) {
+				memoryTrimPolicy = DefaultConfigurationFactory.createMemoryTrimPolicy();
 			}
 			if (denyCacheImageMultipleSizesInMemory) {
 				memoryCache = new FuzzyKeyMemoryCache(memoryCache, MemoryCacheUtils.createFuzzyKeyComparator());
@@ -15,21 +15,34 @@
  *******************************************************************************/
 package com.nostra13.universalimageloader.core;
 
+import android.graphics.Bitmap;
 import android.view.View;
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
 import com.nostra13.universalimageloader.core.assist.FailReason;
 import com.nostra13.universalimageloader.core.assist.FlushedInputStream;
+import com.nostra13.universalimageloader.core.assist.StripedIntHashMap;
+import com.nostra13.universalimageloader.core.download.ImageDownloader;
 import com.nostra13.universalimageloader.core.imageaware.ImageAware;
 import com.nostra13.universalimageloader.core.listener.ImageLoadingListener;
 
-import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * {@link ImageLoader} engine which responsible for {@linkplain LoadAndDisplayImageTask display task} execution.
@@ -39,21 +52,42 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 class ImageLoaderEngine {
 
+	/** Max number of handed off tasks per decoding thread which can wait in decoding stage queue */
+	private static final int DECODING_QUEUE_SIZE_PER_THREAD = 2;
+	/** Delay of prefetch task which yields to "load&display" tasks */
+	private static final long PREFETCH_POSTPONE_DELAY = 200; // ms
+
 	final ImageLoaderConfiguration configuration;
 
 	private Executor taskExecutor;
 	private Executor taskExecutorForCachedImages;
 	private Executor taskDistributor;
+	private ScheduledExecutorService prefetchExecutor;
+	/** Prefetch tasks which wait for execution in prefetch lane (guarded by engine) */
+	private final Set<PrefetchTask> queuedPrefetchTasks = new HashSet<PrefetchTask>();
+	/** Is incremented on every stopping of engine. Prefetch tasks submitted before stopping aren't executed anymore. */
+	private volatile int prefetchGeneration;
+
+	private final DisplayDispatcher displayDispatcher = new DisplayDispatcher();
 
-	private final Map<Integer, String> cacheKeysForImageAwares = Collections
-			.synchronizedMap(new HashMap<Integer, String>());
-	private final Map<String, ReentrantLock> uriLocks = new WeakHashMap<String, ReentrantLock>();
+	private final StripedIntHashMap<CacheKey> cacheKeysForImageAwares = new StripedIntHashMap<CacheKey>();
+	/** Submitted tasks which weren't finished yet, by ID of their image aware views */
+	private final StripedIntHashMap<LoadAndDisplayImageTask> displayTasks = new StripedIntHashMap<LoadAndDisplayImageTask>();
+	private final AtomicLong taskSequence = new AtomicLong();
+	/** Bitmaps {@linkplain BitmapPool#acquire(Bitmap) acquired} by views, <b>null</b> if bitmap pool isn't used */
+	private final DisplayedBitmaps displayedBitmaps;
+	/** Loads which are in progress at this moment, by memory cache key (URI + target size) and decoding options */
+	private final ConcurrentMap<InFlightLoad.Key, InFlightLoad> inFlightLoads =
+			new ConcurrentHashMap<InFlightLoad.Key, InFlightLoad>();
 
 	private final AtomicBoolean paused = new AtomicBoolean(false);
 	private final AtomicBoolean networkDenied = new AtomicBoolean(false);
 	private final AtomicBoolean slowNetwork = new AtomicBoolean(false);
 
-	private final Object pauseLock = new Object();
+	/** Tasks which were started while engine was paused. They don't hold threads and wait for resuming. */
+	private final List<LoadAndDisplayImageTask> pausedTasks = new ArrayList<LoadAndDisplayImageTask>();
+	/** Bounds the number of tasks handed off from I/O stage to decoding stage */
+	private final Semaphore decodingPermits;
 
 	ImageLoaderEngine(ImageLoaderConfiguration configuration) {
 		this.configuration = configuration;
@@ -61,52 +95,152 @@ class ImageLoaderEngine {
 		taskExecutor = configuration.taskExecutor;
 		taskExecutorForCachedImages = configuration.taskExecutorForCachedImages;
 
+		displayedBitmaps = configuration.bitmapPool == null ? null : new DisplayedBitmaps(configuration.bitmapPool);
 		taskDistributor = DefaultConfigurationFactory.createTaskDistributor();
+		decodingPermits = new Semaphore(Math.max(1, configuration.decodingThreadPoolSize) * DECODING_QUEUE_SIZE_PER_THREAD);
 	}
 
 	/** Submits task to execution pool */
 	void submit(final LoadAndDisplayImageTask task) {
+		if (task.getSequenceNumber() == 0) {
+			task.setSequenceNumber(taskSequence.incrementAndGet());
+		}
+		displayTasks.put(task.imageAware.getId(), task);
+		task.onQueued();
 		taskDistributor.execute(new Runnable() {
 			@Override
 			public void run() {
-				File image = configuration.diskCache.get(task.getLoadingUri());
-				boolean isImageCachedOnDisk = image != null && image.exists();
-				initExecutorsIfNeed();
-				if (isImageCachedOnDisk) {
-					taskExecutorForCachedImages.execute(task);
-				} else {
-					taskExecutor.execute(task);
-				}
+				execute(task);
 			}
 		});
 	}
 
+	/** Executes task in appropriate executor. Is called in distributor thread. */
+	private void execute(LoadAndDisplayImageTask task) {
+		boolean isImageCachedOnDisk = isImageCachedOnDisk(task);
+		initExecutorsIfNeed();
+		synchronized (task) {
+			if (isImageCachedOnDisk) {
+				taskExecutorForCachedImages.execute(task);
+			} else {
+				taskExecutor.execute(task);
+			}
+		}
+	}
+
+	private boolean isImageCachedOnDisk(LoadAndDisplayImageTask task) {
+		return configuration.diskCache.peekFile(task.getLoadingUri()) != null;
+	}
+
+	/**
+	 * Hands off task which downloaded its image on disk (I/O stage) to decoding stage. Queue of decoding stage is
+	 * bounded: if it's full then task isn't handed off and should decode image in current thread.
+	 *
+	 * @return <b>true</b> - if task was handed off to decoding stage; <b>false</b> - otherwise
+	 */
+	boolean handOffForDecoding(LoadAndDisplayImageTask task) {
+		if (!decodingPermits.tryAcquire()) return false;
+
+		initExecutorsIfNeed();
+		synchronized (task) { // task must be queued with its current priority (see setTaskPriority())
+			task.onQueued();
+			try {
+				taskExecutorForCachedImages.execute(task);
+			} catch (RejectedExecutionException e) {
+				decodingPermits.release();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Is called by handed off task when it starts work at decoding stage (or when it's removed from decoding queue) */
+	void onDecodingStarted() {
+		decodingPermits.release();
+	}
+
+	/** Submits task to prefetch lane */
+	synchronized void submit(PrefetchTask task) {
+		task.setGeneration(prefetchGeneration);
+		queuedPrefetchTasks.add(task);
+		initPrefetchExecutorIfNeed().execute(task);
+	}
+
+	/**
+	 * Executes prefetch task later so it doesn't compete with "load&display" tasks
+	 *
+	 * @return <b>true</b> - if task was postponed; <b>false</b> - if engine was stopped after task submission, then
+	 * task mustn't be executed anymore
+	 */
+	synchronized boolean postponePrefetch(PrefetchTask task) {
+		if (isPrefetchStopped(task.getGeneration())) return false;
+
+		queuedPrefetchTasks.add(task);
+		initPrefetchExecutorIfNeed().schedule(task, PREFETCH_POSTPONE_DELAY, TimeUnit.MILLISECONDS);
+		return true;
+	}
+
+	/**
+	 * Is called by prefetch task when it starts execution
+	 *
+	 * @return <b>false</b> - if task was dropped by stopping of engine (and its group was already notified about it),
+	 * then task must finish its execution silently
+	 */
+	synchronized boolean onPrefetchStarted(PrefetchTask task) {
+		return queuedPrefetchTasks.remove(task);
+	}
+
+	/** Returns <b>true</b> - if engine was stopped after submission of prefetch task with incoming generation */
+	boolean isPrefetchStopped(int generation) {
+		return generation != prefetchGeneration;
+	}
+
+	private synchronized ScheduledExecutorService initPrefetchExecutorIfNeed() {
+		if (prefetchExecutor == null || prefetchExecutor.isShutdown()) {
+			prefetchExecutor = DefaultConfigurationFactory.createPrefetchExecutor();
+		}
+		return prefetchExecutor;
+	}
+
+	/** Returns <b>true</b> - if there are not finished "load&display" tasks */
+	boolean hasDisplayTasks() {
+		return !displayTasks.isEmpty();
+	}
+
+	/** Returns <b>true</b> - if image with incoming URI is loading by "load&display" task (for any target size) */
+	boolean isLoading(String imageUri) {
+		for (InFlightLoad.Key key : inFlightLoads.keySet()) {
+			if (key.memoryCacheKey.getImageUri().equals(imageUri)) return true;
+		}
+		return false;
+	}
+
 	/** Submits task to execution pool */
 	void submit(ProcessAndDisplayImageTask task) {
+		task.setSequenceNumber(taskSequence.incrementAndGet());
 		initExecutorsIfNeed();
 		taskExecutorForCachedImages.execute(task);
 	}
 
 	private void initExecutorsIfNeed() {
 		if (!configuration.customExecutor && ((ExecutorService) taskExecutor).isShutdown()) {
-			taskExecutor = createTaskExecutor();
+			taskExecutor = createTaskExecutor(configuration.threadPoolSize);
 		}
 		if (!configuration.customExecutorForCachedImages && ((ExecutorService) taskExecutorForCachedImages)
 				.isShutdown()) {
-			taskExecutorForCachedImages = createTaskExecutor();
+			taskExecutorForCachedImages = createTaskExecutor(configuration.decodingThreadPoolSize);
 		}
 	}
 
-	private Executor createTaskExecutor() {
+	private Executor createTaskExecutor(int threadPoolSize) {
 		return DefaultConfigurationFactory
-				.createExecutor(configuration.threadPoolSize, configuration.threadPriority,
-				configuration.tasksProcessingType);
+				.createExecutor(threadPoolSize, configuration.threadPriority, configuration.tasksProcessingType);
 	}
 
 	/**
 	 * Returns URI of image which is loading at this moment into passed {@link com.nostra13.universalimageloader.core.imageaware.ImageAware}
 	 */
-	String getLoadingUriForView(ImageAware imageAware) {
+	CacheKey getLoadingUriForView(ImageAware imageAware) {
 		return cacheKeysForImageAwares.get(imageAware.getId());
 	}
 
@@ -114,18 +248,121 @@ class ImageLoaderEngine {
 	 * Associates <b>memoryCacheKey</b> with <b>imageAware</b>. Then it helps to define image URI is loaded into View at
 	 * exact moment.
 	 */
-	void prepareDisplayTaskFor(ImageAware imageAware, String memoryCacheKey) {
+	void prepareDisplayTaskFor(ImageAware imageAware, CacheKey memoryCacheKey) {
 		cacheKeysForImageAwares.put(imageAware.getId(), memoryCacheKey);
+
+		// View is reused for another image so previous task for this view isn't needed anymore
+		LoadAndDisplayImageTask previousTask = displayTasks.get(imageAware.getId());
+		if (previousTask != null && !previousTask.getMemoryCacheKey().equals(memoryCacheKey)
+				&& displayTasks.remove(imageAware.getId(), previousTask)) {
+			cancelTask(previousTask);
+		}
 	}
 
 	/**
-	 * Cancels the task of loading and displaying image for incoming <b>imageAware</b>.
+	 * Cancels the task of loading and displaying image for incoming <b>imageAware</b>. If task wasn't started yet then
+	 * it's removed from the queue. If task is running then its network stream and decoding are aborted (if no other
+	 * tasks wait for the image it loads).
 	 *
 	 * @param imageAware {@link com.nostra13.universalimageloader.core.imageaware.ImageAware} for which display task
 	 *                   will be cancelled
 	 */
 	void cancelDisplayTaskFor(ImageAware imageAware) {
 		cacheKeysForImageAwares.remove(imageAware.getId());
+
+		LoadAndDisplayImageTask task = displayTasks.remove(imageAware.getId());
+		if (task != null) {
+			cancelTask(task);
+		}
+	}
+
+	/**
+	 * Associates <b>memoryCacheKey</b> with <b>imageAware</b> which displays image from memory cache right now. Task
+	 * for this image aware isn't needed anymore, so it's cancelled.
+	 *
+	 * @param memoryCacheKey Key of image (can be lookup key), it's copied only if image aware had another key
+	 */
+	void onDisplayedFromMemoryCache(ImageAware imageAware, CacheKey memoryCacheKey) {
+		if (!memoryCacheKey.equals(cacheKeysForImageAwares.get(imageAware.getId()))) {
+			cacheKeysForImageAwares.put(imageAware.getId(), memoryCacheKey.immutableCopy());
+		}
+
+		LoadAndDisplayImageTask task = displayTasks.remove(imageAware.getId());
+		if (task != null) {
+			cancelTask(task);
+		}
+	}
+
+	private void cancelTask(LoadAndDisplayImageTask task) {
+		InFlightLoad load = inFlightLoads.get(task.getLoadKey());
+		if (removeFromQueue(taskExecutor, task) || removeFromQueue(taskExecutorForCachedImages, task)
+				|| removeFromPausedTasks(task) || (load != null && load.detach(task))) {
+			// Task won't be executed so cancel event is fired right here
+			task.postCancelEvent();
+			if (task.isHandedOffForDecoding()) {
+				onDecodingStarted();
+				// Task had started loading of image so waiting tasks should try to load it themselves
+				finishLoading(task.getLoadKey(), null);
+			}
+		} else {
+			task.cancel();
+		}
+	}
+
+	private boolean removeFromPausedTasks(LoadAndDisplayImageTask task) {
+		synchronized (pausedTasks) {
+			return pausedTasks.remove(task);
+		}
+	}
+
+	/** Removes task from executor's queue. Returns <b>true</b> - if task was waiting in the queue and was removed. */
+	private static boolean removeFromQueue(Executor executor, Runnable task) {
+		return executor instanceof ThreadPoolExecutor && ((ThreadPoolExecutor) executor).remove(task);
+	}
+
+	/**
+	 * Changes priority of not started display task for incoming <b>imageAware</b>. If task is waiting in
+	 * {@linkplain com.nostra13.universalimageloader.core.assist.QueueProcessingType#PRIORITY priority queue} then it's
+	 * moved to the new position in the queue.
+	 *
+	 * @param priority distance of image aware view from the viewport, {@link PrioritizedTask#PRIORITY_VISIBLE 0} - if
+	 *                 view is visible
+	 */
+	void setTaskPriority(ImageAware imageAware, int priority) {
+		LoadAndDisplayImageTask task = displayTasks.get(imageAware.getId());
+		if (task == null) return;
+
+		synchronized (task) {
+			if (task.getPriority() == priority) return;
+
+			Executor executor = null;
+			if (removeFromPriorityQueue(taskExecutor, task)) {
+				executor = taskExecutor;
+			} else if (removeFromPriorityQueue(taskExecutorForCachedImages, task)) {
+				executor = taskExecutorForCachedImages;
+			}
+			task.setPriority(priority);
+			if (executor != null) {
+				executor.execute(task);
+			}
+		}
+	}
+
+	/** Removes task from executor's queue if this queue orders tasks by their priority */
+	private static boolean removeFromPriorityQueue(Executor executor, Runnable task) {
+		if (executor instanceof ThreadPoolExecutor) {
+			ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+			return pool.getQueue() instanceof PriorityBlockingQueue && pool.remove(task);
+		}
+		return false;
+	}
+
+	/** Is called by task when it finishes its work (or when it gets image loaded by another task) */
+	void onTaskFinished(LoadAndDisplayImageTask task) {
+		displayTasks.remove(task.imageAware.getId(), task);
+		if (configuration.metrics != null) {
+			task.reportMetrics(configuration.metrics);
+		}
 	}
 
 	/**
@@ -153,22 +390,59 @@ class ImageLoaderEngine {
 
 	/**
 	 * Pauses engine. All new "load&display" tasks won't be executed until ImageLoader is {@link #resume() resumed}.<br
-	 * /> Already running tasks are not paused.
+	 * /> Already running tasks are not paused. Paused tasks don't hold threads of task pools.
 	 */
 	void pause() {
 		paused.set(true);
 	}
 
-	/** Resumes engine work. Paused "load&display" tasks will continue its work. */
+	/**
+	 * Resumes engine work. Paused "load&display" tasks are submitted for execution again in order of their priority
+	 * (tasks for visible views go first).
+	 */
 	void resume() {
 		paused.set(false);
-		synchronized (pauseLock) {
-			pauseLock.notifyAll();
+
+		final List<LoadAndDisplayImageTask> tasks;
+		synchronized (pausedTasks) {
+			if (pausedTasks.isEmpty()) return;
+			tasks = new ArrayList<LoadAndDisplayImageTask>(pausedTasks);
+			pausedTasks.clear();
+		}
+		Collections.sort(tasks, new DefaultConfigurationFactory.TaskPriorityComparator());
+		taskDistributor.execute(new Runnable() {
+			@Override
+			public void run() {
+				// Tasks are executed one by one to keep their order
+				for (LoadAndDisplayImageTask task : tasks) {
+					task.onQueued();
+					execute(task);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Parks task if engine is paused. Parked task is returned to execution when engine is {@linkplain #resume()
+	 * resumed}. If {@linkplain ImageLoaderConfiguration.Builder#loadCachedImagesOnPause() configuration allows}
+	 * then tasks for images cached on disk aren't parked.
+	 *
+	 * @return <b>true</b> - if task was parked and must finish its execution; <b>false</b> - if task can continue
+	 */
+	boolean parkIfPaused(LoadAndDisplayImageTask task) {
+		if (!paused.get()) return false;
+		if (configuration.loadCachedImagesOnPause && isImageCachedOnDisk(task)) return false;
+
+		synchronized (pausedTasks) {
+			if (!paused.get()) return false; // engine was just resumed
+			pausedTasks.add(task);
+			return true;
 		}
 	}
 
 	/**
-	 * Stops engine, cancels all running and scheduled display image tasks. Clears internal data.
+	 * Stops engine, cancels all running and scheduled display image tasks. Not started prefetch tasks are dropped
+	 * (their groups are cancelled and finished), running ones are interrupted. Clears internal data.
 	 * <br />
 	 * <b>NOTE:</b> This method doesn't shutdown
 	 * {@linkplain com.nostra13.universalimageloader.core.ImageLoaderConfiguration.Builder#taskExecutor(java.util.concurrent.Executor)
@@ -179,32 +453,165 @@ class ImageLoaderEngine {
 			((ExecutorService) taskExecutor).shutdownNow();
 		}
 		if (!configuration.customExecutorForCachedImages) {
-			((ExecutorService) taskExecutorForCachedImages).shutdownNow();
+			List<Runnable> notStartedTasks = ((ExecutorService) taskExecutorForCachedImages).shutdownNow();
+			for (Runnable task : notStartedTasks) {
+				if (task instanceof LoadAndDisplayImageTask && ((LoadAndDisplayImageTask) task).isHandedOffForDecoding()) {
+					onDecodingStarted();
+				}
+			}
+		}
+
+		final List<PrefetchTask> droppedPrefetchTasks;
+		synchronized (this) {
+			prefetchGeneration++;
+			if (prefetchExecutor != null) {
+				prefetchExecutor.shutdownNow();
+			}
+			droppedPrefetchTasks = new ArrayList<PrefetchTask>(queuedPrefetchTasks);
+			queuedPrefetchTasks.clear();
+		}
+		for (PrefetchTask task : droppedPrefetchTasks) {
+			task.onDropped();
 		}
 
+		synchronized (pausedTasks) {
+			pausedTasks.clear();
+		}
 		cacheKeysForImageAwares.clear();
-		uriLocks.clear();
+		displayTasks.clear();
+		inFlightLoads.clear();
+		if (displayedBitmaps != null) {
+			displayedBitmaps.clear();
+		}
+	}
+
+	/**
+	 * Holds (or releases) displaying of loaded images. Held images are displayed at the next frame after releasing.
+	 * Loading isn't affected.
+	 */
+	void holdDisplaying(boolean hold) {
+		displayDispatcher.hold(hold);
+	}
+
+	DisplayDispatcher getDisplayDispatcher() {
+		return displayDispatcher;
 	}
 
 	void fireCallback(Runnable r) {
 		taskDistributor.execute(r);
 	}
 
-	ReentrantLock getLockForUri(String uri) {
-		ReentrantLock lock = uriLocks.get(uri);
-		if (lock == null) {
-			lock = new ReentrantLock();
-			uriLocks.put(uri, lock);
+	/**
+	 * Registers loading of task's image (URI + target size). If the same image is already loading by another task with
+	 * the same decoding options then incoming task is attached to this loading as a waiter and will get its result.
+	 * Calling thread is never blocked.
+	 *
+	 * @return <b>true</b> - if task should load image itself (and must call
+	 * {@link #finishLoading(InFlightLoad.Key, Bitmap)} after that); <b>false</b> - if task was attached to loading of
+	 * another task
+	 */
+	boolean startLoadingOrAttach(LoadAndDisplayImageTask task) {
+		InFlightLoad.Key loadKey = task.getLoadKey();
+		while (true) {
+			InFlightLoad load = inFlightLoads.get(loadKey);
+			if (load == null) {
+				if (inFlightLoads.putIfAbsent(loadKey, new InFlightLoad()) == null) {
+					return true;
+				}
+			} else if (load.attach(task)) {
+				return false;
+			} else {
+				// Load was just finished, it'll be removed from the table soon
+				inFlightLoads.remove(loadKey, load);
+			}
+		}
+	}
+
+	/**
+	 * Finishes loading of image which was started by {@link #startLoadingOrAttach(LoadAndDisplayImageTask)} and passes
+	 * result to waiting tasks. If image wasn't loaded (<b>bitmap</b> is null) then waiting tasks are submitted for
+	 * execution again so one of them will try to load the image.
+	 */
+	void finishLoading(InFlightLoad.Key loadKey, Bitmap bitmap) {
+		InFlightLoad load = inFlightLoads.remove(loadKey);
+		if (load == null) return;
+
+		List<LoadAndDisplayImageTask> waiters = load.finish();
+		for (LoadAndDisplayImageTask waiter : waiters) {
+			if (bitmap == null) {
+				submit(waiter);
+			} else {
+				acquireBitmap(bitmap);
+				waiter.displayImageLoadedByAnotherTask(bitmap);
+			}
+		}
+	}
+
+	/** Returns <b>true</b> - if some tasks are attached to loading of image with incoming key */
+	boolean hasWaitersFor(InFlightLoad.Key loadKey) {
+		InFlightLoad load = inFlightLoads.get(loadKey);
+		return load != null && load.hasWaiters();
+	}
+
+	/**
+	 * Returns Bitmap from memory cache. Bitmap is {@linkplain BitmapPool#acquire(Bitmap) acquired} (if
+	 * bitmap pool is used) so it must be passed to {@link #onBitmapDisplayed(ImageAware, Bitmap)} or
+	 * {@link #releaseBitmap(Bitmap)} then.
+	 */
+	Bitmap getFromMemoryCacheForDisplay(CacheKey memoryCacheKey) {
+		BitmapPool bitmapPool = configuration.bitmapPool;
+		if (bitmapPool == null) {
+			return configuration.memoryCache.get(memoryCacheKey);
+		} else {
+			return bitmapPool.acquire(configuration.memoryCache, memoryCacheKey);
+		}
+	}
+
+	/** Marks Bitmap as going to be displayed so it can't be reused by bitmap pool */
+	void acquireBitmap(Bitmap bitmap) {
+		if (configuration.bitmapPool != null && bitmap != null) {
+			configuration.bitmapPool.acquire(bitmap);
+		}
+	}
+
+	/** Marks acquired Bitmap as not needed for display anymore (e.g. display task was cancelled) */
+	void releaseBitmap(Bitmap bitmap) {
+		if (configuration.bitmapPool != null && bitmap != null) {
+			configuration.bitmapPool.release(bitmap);
 		}
-		return lock;
 	}
 
-	AtomicBoolean getPause() {
-		return paused;
+	/**
+	 * Is called when acquired Bitmap was displayed in <b>imageAware</b>. Bitmap which was displayed in the same view
+	 * before is released. Bitmaps displayed without view (e.g. loaded synchronously) are never released, ImageLoader
+	 * doesn't know when they aren't used anymore.
+	 */
+	void onBitmapDisplayed(ImageAware imageAware, Bitmap bitmap) {
+		if (displayedBitmaps == null || bitmap == null) return;
+		View view = imageAware.getWrappedView();
+		if (view == null) return;
+
+		displayedBitmaps.put(view, bitmap);
 	}
 
-	Object getPauseLock() {
-		return pauseLock;
+	/** Releases Bitmap which was displayed in <b>imageAware</b> by ImageLoader (if any), view doesn't display it anymore */
+	void releaseDisplayedBitmap(ImageAware imageAware) {
+		if (displayedBitmaps == null) return;
+		View view = imageAware.getWrappedView();
+		if (view == null) return;
+
+		displayedBitmaps.remove(view);
+	}
+
+	/** Returns downloader which conforms to current network state (denied or slow network) */
+	ImageDownloader getDownloader() {
+		if (isNetworkDenied()) {
+			return configuration.networkDeniedDownloader;
+		} else if (isSlowNetwork()) {
+			return configuration.slowNetworkDownloader;
+		} else {
+			return configuration.downloader;
+		}
 	}
 
 	boolean isNetworkDenied() {
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import com.nostra13.universalimageloader.core.assist.LoadedFrom;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histograms of image loading pipeline stages. Every {@linkplain Stage stage} has separate histogram for every
+ * {@linkplain LoadedFrom source} of image. Histogram buckets have exponential bounds (powers of two of microseconds).
+ * <br />
+ * Recording doesn't allocate objects and doesn't take locks so metrics can be collected in production builds.
+ * Metrics are collected only if they are
+ * {@linkplain ImageLoaderConfiguration.Builder#collectMetrics() enabled in configuration}.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @see ImageLoader#getMetrics()
+ * @since 1.9.3
+ */
+public final class ImageLoaderMetrics {
+
+	/** Number of histogram buckets. Last bucket collects all durations longer than ~4.5 minutes. */
+	public static final int BUCKET_COUNT = 30;
+
+	static final int STAGE_COUNT = Stage.values().length;
+	private static final int SOURCE_COUNT = LoadedFrom.values().length;
+
+	/** Stage of image loading pipeline */
+	public static enum Stage {
+		/** Waiting of task in executor queue (including decoding stage queue) */
+		QUEUE_WAIT,
+		/** Lookup of image file in disk cache */
+		DISK_LOOKUP,
+		/** Opening of network stream (time to first byte) */
+		NETWORK_FIRST_BYTE,
+		/** Transfer of image bytes from network into disk cache */
+		NETWORK_TRANSFER,
+		/** Decoding of image into Bitmap */
+		DECODE,
+		/** Pre-processing of Bitmap before caching in memory */
+		PRE_PROCESS,
+		/** Post-processing of Bitmap before displaying */
+		POST_PROCESS,
+		/** Time from posting of loaded Bitmap for displaying till displaying start (UI thread latency) */
+		DISPLAY_POST
+	}
+
+	/** Bucket counts of all histograms: [stage][source][bucket] */
+	private final AtomicLongArray buckets = new AtomicLongArray(STAGE_COUNT * SOURCE_COUNT * BUCKET_COUNT);
+	/** Total durations (in nanoseconds) of all histograms: [stage][source] */
+	private final AtomicLongArray totals = new AtomicLongArray(STAGE_COUNT * SOURCE_COUNT);
+
+	ImageLoaderMetrics() {
+	}
+
+	/** Records duration of stage */
+	void record(Stage stage, LoadedFrom loadedFrom, long durationNanos) {
+		if (durationNanos < 0) return;
+		int histogram = stage.ordinal() * SOURCE_COUNT + loadedFrom.ordinal();
+		buckets.incrementAndGet(histogram * BUCKET_COUNT + bucketOf(durationNanos));
+		totals.addAndGet(histogram, durationNanos);
+	}
+
+	/** Returns immutable copy of current metrics */
+	public Snapshot snapshot() {
+		long[] bucketsCopy = new long[buckets.length()];
+		for (int i = 0; i < bucketsCopy.length; i++) {
+			bucketsCopy[i] = buckets.get(i);
+		}
+		long[] totalsCopy = new long[totals.length()];
+		for (int i = 0; i < totalsCopy.length; i++) {
+			totalsCopy[i] = totals.get(i);
+		}
+		return new Snapshot(bucketsCopy, totalsCopy);
+	}
+
+	/** Clears all histograms. Durations which are recorded concurrently with resetting can be lost. */
+	public void reset() {
+		for (int i = 0; i < buckets.length(); i++) {
+			buckets.set(i, 0);
+		}
+		for (int i = 0; i < totals.length(); i++) {
+			totals.set(i, 0);
+		}
+	}
+
+	/** Bucket 0 - less than 1 microsecond, bucket N - [2^(N-1), 2^N) microseconds */
+	static int bucketOf(long durationNanos) {
+		long micros = durationNanos / 1000;
+		int bucket = 64 - Long.numberOfLeadingZeros(micros);
+		return bucket < BUCKET_COUNT ? bucket : BUCKET_COUNT - 1;
+	}
+
+	/** Returns upper bound (exclusive, in microseconds) of histogram bucket */
+	public static long getBucketUpperBound(int bucket) {
+		return 1L << bucket;
+	}
+
+	/**
+	 * Immutable copy of {@link ImageLoaderMetrics}
+	 *
+	 * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+	 * @since 1.9.3
+	 */
+	public static final class Snapshot {
+
+		private final long[] buckets;
+		private final long[] totals;
+
+		private Snapshot(long[] buckets, long[] totals) {
+			this.buckets = buckets;
+			this.totals = totals;
+		}
+
+		/** Returns number of recorded durations of stage for images loaded from passed source */
+		public long getCount(Stage stage, LoadedFrom loadedFrom) {
+			int offset = histogramIndex(stage, loadedFrom) * BUCKET_COUNT;
+			long count = 0;
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				count += buckets[offset + i];
+			}
+			return count;
+		}
+
+		/** Returns counts of histogram buckets. See {@link ImageLoaderMetrics#getBucketUpperBound(int)}. */
+		public long[] getBucketCounts(Stage stage, LoadedFrom loadedFrom) {
+			long[] result = new long[BUCKET_COUNT];
+			System.arraycopy(buckets, histogramIndex(stage, loadedFrom) * BUCKET_COUNT, result, 0, BUCKET_COUNT);
+			return result;
+		}
+
+		/** Returns mean duration of stage (in microseconds) or <b>0</b> if nothing was recorded */
+		public long getMeanMicros(Stage stage, LoadedFrom loadedFrom) {
+			long count = getCount(stage, loadedFrom);
+			return count == 0 ? 0 : totals[histogramIndex(stage, loadedFrom)] / count / 1000;
+		}
+
+		/**
+		 * Returns upper bound (in microseconds) of histogram bucket which contains passed percentile or <b>0</b> if
+		 * nothing was recorded
+		 *
+		 * @param percentile Percentile in range [0, 100]
+		 */
+		public long getPercentileMicros(Stage stage, LoadedFrom loadedFrom, double percentile) {
+			if (percentile < 0 || percentile > 100) {
+				throw new IllegalArgumentException("percentile must be in range [0, 100]");
+			}
+			long count = getCount(stage, loadedFrom);
+			if (count == 0) return 0;
+
+			long rank = (long) Math.ceil(count * percentile / 100);
+			int offset = histogramIndex(stage, loadedFrom) * BUCKET_COUNT;
+			long seen = 0;
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				seen += buckets[offset + i];
+				if (seen >= rank && seen > 0) return getBucketUpperBound(i);
+			}
+			return getBucketUpperBound(BUCKET_COUNT - 1);
+		}
+
+		private static int histogramIndex(Stage stage, LoadedFrom loadedFrom) {
+			return stage.ordinal() * SOURCE_COUNT + loadedFrom.ordinal();
+		}
+	}
+}
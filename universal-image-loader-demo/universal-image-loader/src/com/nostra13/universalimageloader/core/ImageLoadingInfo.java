@@ -15,13 +15,12 @@
  *******************************************************************************/
 package com.nostra13.universalimageloader.core;
 
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
 import com.nostra13.universalimageloader.core.listener.ImageLoadingListener;
 import com.nostra13.universalimageloader.core.listener.ImageLoadingProgressListener;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
 import com.nostra13.universalimageloader.core.imageaware.ImageAware;
 
-import java.util.concurrent.locks.ReentrantLock;
-
 /**
  * Information for load'n'display image task
  *
@@ -35,24 +34,22 @@ import java.util.concurrent.locks.ReentrantLock;
 final class ImageLoadingInfo {
 
 	final String uri;
-	final String memoryCacheKey;
+	final CacheKey memoryCacheKey;
 	final ImageAware imageAware;
 	final ImageSize targetSize;
 	final DisplayImageOptions options;
 	final ImageLoadingListener listener;
 	final ImageLoadingProgressListener progressListener;
-	final ReentrantLock loadFromUriLock;
 
-	public ImageLoadingInfo(String uri, ImageAware imageAware, ImageSize targetSize, String memoryCacheKey,
+	public ImageLoadingInfo(String uri, ImageAware imageAware, ImageSize targetSize, CacheKey memoryCacheKey,
 			DisplayImageOptions options, ImageLoadingListener listener,
-			ImageLoadingProgressListener progressListener, ReentrantLock loadFromUriLock) {
+			ImageLoadingProgressListener progressListener) {
 		this.uri = uri;
 		this.imageAware = imageAware;
 		this.targetSize = targetSize;
 		this.options = options;
 		this.listener = listener;
 		this.progressListener = progressListener;
-		this.loadFromUriLock = loadFromUriLock;
 		this.memoryCacheKey = memoryCacheKey;
 	}
 }
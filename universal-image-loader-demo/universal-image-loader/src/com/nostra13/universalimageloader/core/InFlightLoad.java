@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import android.graphics.BitmapFactory.Options;
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Presents loading of image (URI + target size) which is in progress at this moment. Tasks which request the same
+ * image (with the same {@linkplain Key decoding options}) while it's loading don't load it again and don't wait for it
+ * on a thread. They are attached to this load as waiters and get its result when the loading task finishes.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @see ImageLoaderEngine#startLoadingOrAttach(LoadAndDisplayImageTask)
+ * @since 1.9.3
+ */
+final class InFlightLoad {
+
+	private final List<LoadAndDisplayImageTask> waiters = new ArrayList<LoadAndDisplayImageTask>();
+	private boolean finished = false;
+
+	/**
+	 * Attaches task to this load.
+	 *
+	 * @return <b>true</b> - if task was attached; <b>false</b> - if load already finished and can't accept waiters
+	 */
+	synchronized boolean attach(LoadAndDisplayImageTask task) {
+		if (finished) return false;
+		waiters.add(task);
+		return true;
+	}
+
+	/**
+	 * Detaches task from this load.
+	 *
+	 * @return <b>true</b> - if task was detached; <b>false</b> - if task wasn't attached or load already finished
+	 */
+	synchronized boolean detach(LoadAndDisplayImageTask task) {
+		return !finished && waiters.remove(task);
+	}
+
+	/** Returns <b>true</b> - if there are tasks which wait for result of this load */
+	synchronized boolean hasWaiters() {
+		return !waiters.isEmpty();
+	}
+
+	/** Finishes load. No tasks can be attached after this call. Returns all attached tasks. */
+	synchronized List<LoadAndDisplayImageTask> finish() {
+		finished = true;
+		if (waiters.isEmpty()) return Collections.emptyList();
+		List<LoadAndDisplayImageTask> result = new ArrayList<LoadAndDisplayImageTask>(waiters);
+		waiters.clear();
+		return result;
+	}
+
+	/**
+	 * Key of load: memory cache key of image and display options which define how image is downloaded and decoded.
+	 * Tasks with different such options get different bitmaps so they aren't attached to the same load.
+	 */
+	static final class Key {
+
+		final CacheKey memoryCacheKey;
+		private final DisplayImageOptions options;
+
+		Key(CacheKey memoryCacheKey, DisplayImageOptions options) {
+			this.memoryCacheKey = memoryCacheKey;
+			this.options = options;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+
+			Key key = (Key) o;
+			return memoryCacheKey.equals(key.memoryCacheKey) && loadsEqually(options, key.options);
+		}
+
+		@Override
+		public int hashCode() {
+			return memoryCacheKey.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return memoryCacheKey.toString();
+		}
+
+		private static boolean loadsEqually(DisplayImageOptions options1, DisplayImageOptions options2) {
+			if (options1 == options2) return true;
+
+			Object extra1 = options1.getExtraForDownloader();
+			Object extra2 = options2.getExtraForDownloader();
+			return options1.getImageScaleType() == options2.getImageScaleType()
+					&& options1.isConsiderExifParams() == options2.isConsiderExifParams()
+					&& (extra1 == null ? extra2 == null : extra1.equals(extra2))
+					&& decodesEqually(options1.getDecodingOptions(), options2.getDecodingOptions());
+		}
+
+		private static boolean decodesEqually(Options options1, Options options2) {
+			if (options1 == options2) return true;
+
+			return options1.inPreferredConfig == options2.inPreferredConfig
+					&& options1.inSampleSize == options2.inSampleSize
+					&& options1.inDither == options2.inDither
+					&& options1.inScaled == options2.inScaled
+					&& options1.inDensity == options2.inDensity
+					&& options1.inTargetDensity == options2.inTargetDensity;
+		}
+	}
+}
@@ -17,6 +17,9 @@ package com.nostra13.universalimageloader.core;
 
 import android.graphics.Bitmap;
 import android.os.Handler;
+import android.view.View;
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
+import com.nostra13.universalimageloader.core.ImageLoaderMetrics.Stage;
 import com.nostra13.universalimageloader.core.assist.FailReason;
 import com.nostra13.universalimageloader.core.assist.FailReason.FailType;
 import com.nostra13.universalimageloader.core.assist.ImageScaleType;
@@ -28,16 +31,16 @@ import com.nostra13.universalimageloader.core.decode.ImageDecodingInfo;
 import com.nostra13.universalimageloader.core.download.ImageDownloader;
 import com.nostra13.universalimageloader.core.download.ImageDownloader.Scheme;
 import com.nostra13.universalimageloader.core.imageaware.ImageAware;
+import com.nostra13.universalimageloader.core.listener.ImageLoaderEventListener;
 import com.nostra13.universalimageloader.core.listener.ImageLoadingListener;
 import com.nostra13.universalimageloader.core.listener.ImageLoadingProgressListener;
 import com.nostra13.universalimageloader.utils.IoUtils;
 import com.nostra13.universalimageloader.utils.L;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Presents load'n'display image task. Used to load image from Internet or file system, decode it to {@link Bitmap}, and
@@ -48,29 +51,36 @@ import java.util.concurrent.locks.ReentrantLock;
  * @see ImageLoadingInfo
  * @since 1.3.1
  */
-final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
+final class LoadAndDisplayImageTask implements PrioritizedTask, IoUtils.CopyListener {
 
-	private static final String LOG_WAITING_FOR_RESUME = "ImageLoader is paused. Waiting...  [%s]";
-	private static final String LOG_RESUME_AFTER_PAUSE = ".. Resume loading [%s]";
+	private static final String LOG_WAITING_FOR_RESUME = "ImageLoader is paused. Task is parked until resume [%s]";
 	private static final String LOG_DELAY_BEFORE_LOADING = "Delay %d ms before loading...  [%s]";
 	private static final String LOG_START_DISPLAY_IMAGE_TASK = "Start display image task [%s]";
 	private static final String LOG_WAITING_FOR_IMAGE_LOADED = "Image already is loading. Waiting... [%s]";
 	private static final String LOG_GET_IMAGE_FROM_MEMORY_CACHE_AFTER_WAITING = "...Get cached bitmap from memory after waiting. [%s]";
+	private static final String LOG_GET_IMAGE_LOADED_BY_ANOTHER_TASK = "...Get bitmap loaded by another task. [%s]";
 	private static final String LOG_LOAD_IMAGE_FROM_NETWORK = "Load image from network [%s]";
 	private static final String LOG_LOAD_IMAGE_FROM_DISK_CACHE = "Load image from disk cache [%s]";
+	private static final String LOG_LOAD_IMAGE_FROM_ENCODED_MEMORY_CACHE = "Load image from encoded memory cache [%s]";
 	private static final String LOG_RESIZE_CACHED_IMAGE_FILE = "Resize image in disk cache [%s]";
 	private static final String LOG_PREPROCESS_IMAGE = "PreProcess image before caching in memory [%s]";
 	private static final String LOG_POSTPROCESS_IMAGE = "PostProcess image before displaying [%s]";
 	private static final String LOG_CACHE_IMAGE_IN_MEMORY = "Cache image in memory [%s]";
 	private static final String LOG_CACHE_IMAGE_ON_DISK = "Cache image on disk [%s]";
+	private static final String LOG_HAND_OFF_FOR_DECODING = "Image is cached on disk. Hand off it for decoding [%s]";
+	private static final String LOG_START_DECODING_STAGE = "Continue task at decoding stage [%s]";
 	private static final String LOG_PROCESS_IMAGE_BEFORE_CACHE_ON_DISK = "Process image before cache on disk [%s]";
 	private static final String LOG_TASK_CANCELLED_IMAGEAWARE_REUSED = "ImageAware is reused for another image. Task is cancelled. [%s]";
 	private static final String LOG_TASK_CANCELLED_IMAGEAWARE_COLLECTED = "ImageAware was collected by GC. Task is cancelled. [%s]";
 	private static final String LOG_TASK_INTERRUPTED = "Task was interrupted [%s]";
+	private static final String LOG_TASK_ABORTED = "Task was cancelled, abort loading [%s]";
 
 	private static final String ERROR_PRE_PROCESSOR_NULL = "Pre-processor returned null [%s]";
 	private static final String ERROR_POST_PROCESSOR_NULL = "Post-processor returned null [%s]";
 	private static final String ERROR_PROCESSOR_FOR_DISK_CACHE_NULL = "Bitmap processor for disk cache returned null [%s]";
+	private static final String ERROR_TASK_CANCELLED = "Task was cancelled";
+
+	private static final Stage[] STAGES = Stage.values();
 
 	private final ImageLoaderEngine engine;
 	private final ImageLoadingInfo imageLoadingInfo;
@@ -82,8 +92,10 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 	private final ImageDownloader networkDeniedDownloader;
 	private final ImageDownloader slowNetworkDownloader;
 	private final ImageDecoder decoder;
+	private final ImageLoaderEventListener eventListener;
 	final String uri;
-	private final String memoryCacheKey;
+	private final CacheKey memoryCacheKey;
+	private final InFlightLoad.Key loadKey;
 	final ImageAware imageAware;
 	private final ImageSize targetSize;
 	final DisplayImageOptions options;
@@ -93,6 +105,25 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 
 	// State vars
 	private LoadedFrom loadedFrom = LoadedFrom.NETWORK;
+	private volatile int priority;
+	private volatile long sequenceNumber;
+
+	private volatile boolean cancelled = false;
+	/** Task downloaded image on disk and was handed off to decoding stage of engine */
+	private volatile boolean handedOffForDecoding = false;
+	/** Task downloaded image on disk and should be handed off to decoding stage when I/O stage returns */
+	private boolean downloadedForDecoding = false;
+
+	/** Time when task was queued for execution last time */
+	private volatile long queueTime;
+	/** Accumulated durations of pipeline stages. It's <b>null</b> if metrics aren't collected. */
+	private final long[] stageTimes;
+	/** Bit mask of stages which durations were measured */
+	private int measuredStages;
+	/** Network stream which is read by task at this moment (if any) */
+	private volatile InputStream currentStream;
+	/** Decoding info of image which is decoded by task at this moment (if any) */
+	private volatile ImageDecodingInfo currentDecodingInfo;
 
 	public LoadAndDisplayImageTask(ImageLoaderEngine engine, ImageLoadingInfo imageLoadingInfo, Handler handler) {
 		this.engine = engine;
@@ -104,6 +135,7 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		networkDeniedDownloader = configuration.networkDeniedDownloader;
 		slowNetworkDownloader = configuration.slowNetworkDownloader;
 		decoder = configuration.decoder;
+		eventListener = configuration.eventListener;
 		uri = imageLoadingInfo.uri;
 		memoryCacheKey = imageLoadingInfo.memoryCacheKey;
 		imageAware = imageLoadingInfo.imageAware;
@@ -111,41 +143,100 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		options = imageLoadingInfo.options;
 		listener = imageLoadingInfo.listener;
 		progressListener = imageLoadingInfo.progressListener;
+		loadKey = new InFlightLoad.Key(memoryCacheKey, options);
 		syncLoading = options.isSyncLoading();
+		priority = defineDefaultPriority(imageAware);
+		stageTimes = configuration.metrics != null ? new long[ImageLoaderMetrics.STAGE_COUNT] : null;
 	}
 
 	@Override
 	public void run() {
-		if (waitIfPaused()) return;
-		if (delayIfNeed()) return;
+		if (!syncLoading) {
+			addStageTime(Stage.QUEUE_WAIT, queueTime);
+			if (eventListener != null) eventListener.onTaskDequeued(memoryCacheKey);
+		}
+		boolean decodingStage = handedOffForDecoding;
+		if (decodingStage) {
+			L.d(LOG_START_DECODING_STAGE, memoryCacheKey);
+			engine.onDecodingStarted();
+		}
+		runStage(decodingStage);
+	}
+
+	private void runStage(boolean decodingStage) {
+		boolean continued = false;
+		try {
+			continued = loadAndDisplayImage(decodingStage);
+		} finally {
+			if (!continued) {
+				engine.onTaskFinished(this);
+			}
+		}
+
+		if (downloadedForDecoding) {
+			downloadedForDecoding = false;
+			// Task is handed off as the last action of I/O stage so the stages never touch task state concurrently
+			if (!tryHandOffForDecoding()) {
+				runStage(true); // decoding stage queue is full, image is decoded in current thread
+			}
+		}
+	}
+
+	/**
+	 * @return <b>true</b> - if task will be continued later (it was attached to loading of the same image by another
+	 * task or should be handed off to decoding stage); <b>false</b> - otherwise
+	 */
+	private boolean loadAndDisplayImage(boolean decodingStage) {
+		if (!decodingStage) {
+			if (cancelled) {
+				fireCancelEvent();
+				return false;
+			}
+			// Synchronous task can't be parked, it's executed regardless of pause
+			if (!syncLoading && engine.parkIfPaused(this)) {
+				L.d(LOG_WAITING_FOR_RESUME, memoryCacheKey);
+				return true;
+			}
+			if (isTaskNotActual()) return false;
+			if (delayIfNeed()) return false;
 
-		ReentrantLock loadFromUriLock = imageLoadingInfo.loadFromUriLock;
-		L.d(LOG_START_DISPLAY_IMAGE_TASK, memoryCacheKey);
-		if (loadFromUriLock.isLocked()) {
-			L.d(LOG_WAITING_FOR_IMAGE_LOADED, memoryCacheKey);
+			L.d(LOG_START_DISPLAY_IMAGE_TASK, memoryCacheKey);
+			// Synchronous task can't wait for another task's result without blocking so it always loads image itself
+			if (!syncLoading && !engine.startLoadingOrAttach(this)) {
+				L.d(LOG_WAITING_FOR_IMAGE_LOADED, memoryCacheKey);
+				return true;
+			}
 		}
 
-		loadFromUriLock.lock();
 		Bitmap bmp;
+		Bitmap loadedBmp = null;
+		boolean handedOff = false;
 		try {
-			checkTaskNotActual();
+			checkLoadingNeeded();
 
-			bmp = configuration.memoryCache.get(memoryCacheKey);
+			bmp = engine.getFromMemoryCacheForDisplay(memoryCacheKey);
 			if (bmp == null || bmp.isRecycled()) {
-				bmp = tryLoadBitmap();
-				if (bmp == null) return; // listener callback already was fired
+				bmp = tryLoadBitmap(decodingStage);
+				if (bmp == null) {
+					handedOff = downloadedForDecoding;
+					return handedOff; // listener callback already was fired or image will be decoded at decoding stage
+				}
 
-				checkTaskNotActual();
+				checkLoadingNeeded();
 				checkTaskInterrupted();
 
 				if (options.shouldPreProcess()) {
 					L.d(LOG_PREPROCESS_IMAGE, memoryCacheKey);
+					long start = System.nanoTime();
 					bmp = options.getPreProcessor().process(bmp);
+					addStageTime(Stage.PRE_PROCESS, start);
+					if (eventListener != null) eventListener.onPreProcessed(memoryCacheKey, System.nanoTime() - start);
 					if (bmp == null) {
 						L.e(ERROR_PRE_PROCESSOR_NULL, memoryCacheKey);
 					}
 				}
 
+				engine.acquireBitmap(bmp);
 				if (bmp != null && options.isCacheInMemory()) {
 					L.d(LOG_CACHE_IMAGE_IN_MEMORY, memoryCacheKey);
 					configuration.memoryCache.put(memoryCacheKey, bmp);
@@ -154,10 +245,15 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 				loadedFrom = LoadedFrom.MEMORY_CACHE;
 				L.d(LOG_GET_IMAGE_FROM_MEMORY_CACHE_AFTER_WAITING, memoryCacheKey);
 			}
+			loadedBmp = bmp;
+			checkTaskNotActual();
 
 			if (bmp != null && options.shouldPostProcess()) {
 				L.d(LOG_POSTPROCESS_IMAGE, memoryCacheKey);
+				long start = System.nanoTime();
 				bmp = options.getPostProcessor().process(bmp);
+				addStageTime(Stage.POST_PROCESS, start);
+				if (eventListener != null) eventListener.onPostProcessed(memoryCacheKey, System.nanoTime() - start);
 				if (bmp == null) {
 					L.e(ERROR_POST_PROCESSOR_NULL, memoryCacheKey);
 				}
@@ -165,34 +261,36 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 			checkTaskNotActual();
 			checkTaskInterrupted();
 		} catch (TaskCancelledException e) {
+			engine.releaseBitmap(loadedBmp);
 			fireCancelEvent();
-			return;
+			return false;
 		} finally {
-			loadFromUriLock.unlock();
+			if (!syncLoading && !handedOff) {
+				engine.finishLoading(loadKey, loadedBmp);
+			}
 		}
 
-		DisplayBitmapTask displayBitmapTask = new DisplayBitmapTask(bmp, imageLoadingInfo, engine, loadedFrom);
+		DisplayBitmapTask displayBitmapTask = new DisplayBitmapTask(bmp, loadedBmp, imageLoadingInfo, engine,
+				loadedFrom);
 		runTask(displayBitmapTask, syncLoading, handler, engine);
+		return false;
 	}
 
-	/** @return <b>true</b> - if task should be interrupted; <b>false</b> - otherwise */
-	private boolean waitIfPaused() {
-		AtomicBoolean pause = engine.getPause();
-		if (pause.get()) {
-			synchronized (engine.getPauseLock()) {
-				if (pause.get()) {
-					L.d(LOG_WAITING_FOR_RESUME, memoryCacheKey);
-					try {
-						engine.getPauseLock().wait();
-					} catch (InterruptedException e) {
-						L.e(LOG_TASK_INTERRUPTED, memoryCacheKey);
-						return true;
-					}
-					L.d(LOG_RESUME_AFTER_PAUSE, memoryCacheKey);
-				}
-			}
+	/**
+	 * Displays image which was loaded by another task (for the same URI and target size) while this task was waiting
+	 * for it. Post-processing (if needed) is executed in task pool, not in the calling thread.
+	 */
+	void displayImageLoadedByAnotherTask(Bitmap bmp) {
+		L.d(LOG_GET_IMAGE_LOADED_BY_ANOTHER_TASK, memoryCacheKey);
+		loadedFrom = LoadedFrom.MEMORY_CACHE;
+		engine.onTaskFinished(this);
+		if (options.shouldPostProcess()) {
+			engine.submit(new ProcessAndDisplayImageTask(engine, bmp, imageLoadingInfo, handler));
+		} else {
+			DisplayBitmapTask displayBitmapTask = new DisplayBitmapTask(bmp, imageLoadingInfo, engine,
+					LoadedFrom.MEMORY_CACHE);
+			runTask(displayBitmapTask, false, handler, engine);
 		}
-		return isTaskNotActual();
 	}
 
 	/** @return <b>true</b> - if task should be interrupted; <b>false</b> - otherwise */
@@ -210,33 +308,80 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		return false;
 	}
 
-	private Bitmap tryLoadBitmap() throws TaskCancelledException {
+	/** @param decodingStage <b>true</b> - if image was just downloaded by I/O stage of this task */
+	private Bitmap tryLoadBitmap(boolean decodingStage) throws TaskCancelledException {
 		Bitmap bitmap = null;
 		try {
-			File imageFile = configuration.diskCache.get(uri);
-			if (imageFile != null && imageFile.exists()) {
+			if (isEncodedMemoryCacheUsed()) {
+				byte[] encodedImage = configuration.encodedMemoryCache.get(uri);
+				if (eventListener != null) {
+					if (encodedImage != null) {
+						eventListener.onEncodedMemoryCacheHit(uri);
+					} else {
+						eventListener.onEncodedMemoryCacheMiss(uri);
+					}
+				}
+				if (encodedImage != null) {
+					L.d(LOG_LOAD_IMAGE_FROM_ENCODED_MEMORY_CACHE, memoryCacheKey);
+					if (!decodingStage) {
+						loadedFrom = LoadedFrom.DISC_CACHE;
+					}
+
+					checkLoadingNeeded();
+					bitmap = decodeImage(uri, encodedImage);
+					if (bitmap == null || bitmap.getWidth() <= 0 || bitmap.getHeight() <= 0) {
+						configuration.encodedMemoryCache.remove(uri); // broken image, read it from disk again
+					} else {
+						return bitmap;
+					}
+				}
+			}
+
+			long start = System.nanoTime();
+			File imageFile = configuration.diskCache.peekFile(uri);
+			boolean isImageCachedOnDisk = imageFile != null;
+			addStageTime(Stage.DISK_LOOKUP, start);
+			if (eventListener != null) {
+				if (isImageCachedOnDisk) {
+					eventListener.onDiskCacheHit(uri);
+				} else {
+					eventListener.onDiskCacheMiss(uri);
+				}
+			}
+			if (isImageCachedOnDisk) {
 				L.d(LOG_LOAD_IMAGE_FROM_DISK_CACHE, memoryCacheKey);
-				loadedFrom = LoadedFrom.DISC_CACHE;
+				if (!decodingStage) { // otherwise image was just downloaded from network
+					loadedFrom = LoadedFrom.DISC_CACHE;
+				}
 
-				checkTaskNotActual();
-				bitmap = decodeImage(Scheme.FILE.wrap(imageFile.getAbsolutePath()));
+				checkLoadingNeeded();
+				bitmap = decodeImage(Scheme.FILE.wrap(imageFile.getAbsolutePath()), cacheEncodedImage(imageFile));
 			}
 			if (bitmap == null || bitmap.getWidth() <= 0 || bitmap.getHeight() <= 0) {
+				checkLoadingNeeded(); // decoding could be aborted
 				L.d(LOG_LOAD_IMAGE_FROM_NETWORK, memoryCacheKey);
 				loadedFrom = LoadedFrom.NETWORK;
 
 				String imageUriForDecoding = uri;
+				byte[] encodedImage = null;
 				if (options.isCacheOnDisk() && tryCacheImageOnDisk()) {
-					imageFile = configuration.diskCache.get(uri);
+					if (!syncLoading && !decodingStage) {
+						downloadedForDecoding = true;
+						return null;
+					}
+
+					imageFile = configuration.diskCache.peekFile(uri);
 					if (imageFile != null) {
 						imageUriForDecoding = Scheme.FILE.wrap(imageFile.getAbsolutePath());
+						encodedImage = cacheEncodedImage(imageFile);
 					}
 				}
 
-				checkTaskNotActual();
-				bitmap = decodeImage(imageUriForDecoding);
+				checkLoadingNeeded();
+				bitmap = decodeImage(imageUriForDecoding, encodedImage);
 
 				if (bitmap == null || bitmap.getWidth() <= 0 || bitmap.getHeight() <= 0) {
+					checkLoadingNeeded();
 					fireFailEvent(FailType.DECODING_ERROR, null);
 				}
 			}
@@ -245,6 +390,7 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		} catch (TaskCancelledException e) {
 			throw e;
 		} catch (IOException e) {
+			if (cancelled) throw new TaskCancelledException(); // stream was closed by cancellation
 			L.e(e);
 			fireFailEvent(FailType.IO_ERROR, e);
 		} catch (OutOfMemoryError e) {
@@ -257,11 +403,104 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		return bitmap;
 	}
 
-	private Bitmap decodeImage(String imageUri) throws IOException {
+	/**
+	 * Hands off this task to decoding stage so I/O thread is released for next downloads. Task is handed off only if
+	 * decoding stage queue isn't full. Task state mustn't be changed by I/O thread after successful handing off.
+	 *
+	 * @return <b>true</b> - if task was handed off; <b>false</b> - if image should be decoded in current thread
+	 */
+	private boolean tryHandOffForDecoding() {
+		handedOffForDecoding = true;
+		if (engine.handOffForDecoding(this)) {
+			L.d(LOG_HAND_OFF_FOR_DECODING, memoryCacheKey);
+			return true;
+		}
+		handedOffForDecoding = false;
+		return false;
+	}
+
+	/** Is called by engine when task is queued for execution */
+	void onQueued() {
+		queueTime = System.nanoTime();
+		if (eventListener != null) eventListener.onTaskQueued(memoryCacheKey);
+	}
+
+	/** Adds duration of stage which was started at <b>startTime</b> and finished just now */
+	private void addStageTime(Stage stage, long startTime) {
+		if (stageTimes == null) return;
+		stageTimes[stage.ordinal()] += System.nanoTime() - startTime;
+		measuredStages |= 1 << stage.ordinal();
+	}
+
+	/** Records measured stage durations into metrics. Is called by engine when task is finished. */
+	void reportMetrics(ImageLoaderMetrics metrics) {
+		if (stageTimes == null) return;
+		for (Stage stage : STAGES) {
+			if ((measuredStages & (1 << stage.ordinal())) != 0) {
+				metrics.record(stage, loadedFrom, stageTimes[stage.ordinal()]);
+			}
+		}
+	}
+
+	boolean isHandedOffForDecoding() {
+		return handedOffForDecoding;
+	}
+
+	/** Encoded memory cache can't be used if EXIF of image file should be read */
+	private boolean isEncodedMemoryCacheUsed() {
+		return configuration.encodedMemoryCache != null && !options.isConsiderExifParams();
+	}
+
+	/**
+	 * Reads image file and puts it into encoded memory cache.
+	 *
+	 * @return Bytes of image file or <b>null</b> if encoded memory cache isn't used or image is too large for it
+	 */
+	private byte[] cacheEncodedImage(File imageFile) throws IOException {
+		if (!isEncodedMemoryCacheUsed()) return null;
+
+		long length = imageFile.length();
+		if (length <= 0 || length > configuration.encodedMemoryCache.getMaxEntrySize()) return null;
+
+		byte[] encodedImage = new byte[(int) length];
+		InputStream is = new FileInputStream(imageFile);
+		try {
+			int offset = 0;
+			while (offset < encodedImage.length) {
+				int read = is.read(encodedImage, offset, encodedImage.length - offset);
+				if (read < 0) return null; // file was changed concurrently
+				offset += read;
+			}
+		} finally {
+			IoUtils.closeSilently(is);
+		}
+		configuration.encodedMemoryCache.put(uri, encodedImage);
+		return encodedImage;
+	}
+
+	/**
+	 * @param imageUri     URI of image for decoding
+	 * @param encodedImage Bytes of image which are decoded instead of reading of image by URI. Can be <b>null</b>.
+	 */
+	private Bitmap decodeImage(String imageUri, byte[] encodedImage) throws IOException {
 		ViewScaleType viewScaleType = imageAware.getScaleType();
-		ImageDecodingInfo decodingInfo = new ImageDecodingInfo(memoryCacheKey, imageUri, uri, targetSize, viewScaleType,
-				getDownloader(), options);
-		return decoder.decode(decodingInfo);
+		ImageDecodingInfo decodingInfo = new ImageDecodingInfo(memoryCacheKey.toString(), imageUri, uri, targetSize,
+				viewScaleType, getDownloader(), options, configuration.bitmapPool, encodedImage);
+		currentDecodingInfo = decodingInfo;
+		if (eventListener != null) eventListener.onDecodingStarted(memoryCacheKey);
+		long start = System.nanoTime();
+		Bitmap bitmap = null;
+		try {
+			bitmap = decoder.decode(decodingInfo);
+			return bitmap;
+		} finally {
+			currentDecodingInfo = null;
+			addStageTime(Stage.DECODE, start);
+			if (eventListener != null) {
+				eventListener.onDecodingFinished(memoryCacheKey, bitmap != null,
+						decodingInfo.getDecodingOptions().inSampleSize, System.nanoTime() - start);
+			}
+		}
 	}
 
 	/** @return <b>true</b> - if image was downloaded successfully; <b>false</b> - otherwise */
@@ -280,29 +519,39 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 				}
 			}
 		} catch (IOException e) {
-			L.e(e);
+			if (!cancelled) L.e(e);
 			loaded = false;
 		}
 		return loaded;
 	}
 
 	private boolean downloadImage() throws IOException {
+		long start = System.nanoTime();
 		InputStream is = getDownloader().getStream(uri, options.getExtraForDownloader());
-		return configuration.diskCache.save(uri, is, this);
+		addStageTime(Stage.NETWORK_FIRST_BYTE, start);
+		currentStream = is;
+		start = System.nanoTime();
+		try {
+			if (cancelled) throw new IOException(ERROR_TASK_CANCELLED);
+			return configuration.diskCache.save(uri, is, this);
+		} finally {
+			currentStream = null;
+			addStageTime(Stage.NETWORK_TRANSFER, start);
+		}
 	}
 
 	/** Decodes image file into Bitmap, resize it and save it back */
 	private boolean resizeAndSaveImage(int maxWidth, int maxHeight) throws IOException {
 		// Decode image file, compress and re-save it
 		boolean saved = false;
-		File targetFile = configuration.diskCache.get(uri);
-		if (targetFile != null && targetFile.exists()) {
+		File targetFile = configuration.diskCache.peekFile(uri);
+		if (targetFile != null) {
 			ImageSize targetImageSize = new ImageSize(maxWidth, maxHeight);
 			DisplayImageOptions specialOptions = new DisplayImageOptions.Builder().cloneFrom(options)
 					.imageScaleType(ImageScaleType.IN_SAMPLE_INT).build();
-			ImageDecodingInfo decodingInfo = new ImageDecodingInfo(memoryCacheKey,
+			ImageDecodingInfo decodingInfo = new ImageDecodingInfo(memoryCacheKey.toString(),
 					Scheme.FILE.wrap(targetFile.getAbsolutePath()), uri, targetImageSize, ViewScaleType.FIT_INSIDE,
-					getDownloader(), specialOptions);
+					getDownloader(), specialOptions, configuration.bitmapPool);
 			Bitmap bmp = decoder.decode(decodingInfo);
 			if (bmp != null && configuration.processorForDiskCache != null) {
 				L.d(LOG_PROCESS_IMAGE_BEFORE_CACHE_ON_DISK, memoryCacheKey);
@@ -313,7 +562,9 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 			}
 			if (bmp != null) {
 				saved = configuration.diskCache.save(uri, bmp);
-				bmp.recycle();
+				if (configuration.bitmapPool == null || !configuration.bitmapPool.put(bmp)) {
+					bmp.recycle();
+				}
 			}
 		}
 		return saved;
@@ -321,20 +572,25 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 
 	@Override
 	public boolean onBytesCopied(int current, int total) {
+		if (eventListener != null) eventListener.onBytesDownloaded(uri, current, total);
 		return syncLoading || fireProgressEvent(current, total);
 	}
 
 	/** @return <b>true</b> - if loading should be continued; <b>false</b> - if loading should be interrupted */
 	private boolean fireProgressEvent(final int current, final int total) {
-		if (isTaskInterrupted() || isTaskNotActual()) return false;
-		if (progressListener != null) {
+		if (isTaskInterrupted() || isLoadingNotNeeded()) return false;
+		if (progressListener != null && !isTaskNotActual()) {
 			Runnable r = new Runnable() {
 				@Override
 				public void run() {
 					progressListener.onProgressUpdate(uri, imageAware.getWrappedView(), current, total);
 				}
 			};
-			runTask(r, false, handler, engine);
+			if (handler != null && DisplayDispatcher.isUiHandler(handler)) {
+				engine.getDisplayDispatcher().postProgress(this, r);
+			} else {
+				runTask(r, false, handler, engine);
+			}
 		}
 		return true;
 	}
@@ -355,6 +611,11 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 
 	private void fireCancelEvent() {
 		if (syncLoading || isTaskInterrupted()) return;
+		postCancelEvent();
+	}
+
+	/** Fires cancel event for task which won't be executed (is called by engine, not by task's thread) */
+	void postCancelEvent() {
 		Runnable r = new Runnable() {
 			@Override
 			public void run() {
@@ -376,6 +637,43 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		return d;
 	}
 
+	/**
+	 * Cancels task. Task which wasn't started yet won't load image. Running task aborts network stream and decoding of
+	 * image if no other tasks wait for this image.
+	 */
+	void cancel() {
+		cancelled = true;
+		if (syncLoading || engine.hasWaitersFor(loadKey)) return;
+
+		L.d(LOG_TASK_ABORTED, memoryCacheKey);
+		InputStream is = currentStream;
+		if (is != null) {
+			IoUtils.closeSilently(is);
+		}
+		ImageDecodingInfo decodingInfo = currentDecodingInfo;
+		if (decodingInfo != null) {
+			decodingInfo.getDecodingOptions().requestCancelDecode();
+		}
+	}
+
+	/**
+	 * @throws TaskCancelledException if image isn't needed anymore: task was cancelled or isn't actual and no other
+	 *                                tasks wait for image it loads
+	 */
+	private void checkLoadingNeeded() throws TaskCancelledException {
+		if (isLoadingNotNeeded()) {
+			throw new TaskCancelledException();
+		}
+	}
+
+	/**
+	 * @return <b>true</b> - if image isn't needed anymore (task was cancelled or isn't actual and no other tasks wait for
+	 * image it loads); <b>false</b> - otherwise
+	 */
+	private boolean isLoadingNotNeeded() {
+		return (cancelled || isTaskNotActual()) && (syncLoading || !engine.hasWaitersFor(loadKey));
+	}
+
 	/**
 	 * @throws TaskCancelledException if task is not actual (target ImageAware is collected by GC or the image URI of
 	 *                                this task doesn't match to image URI which is actual for current ImageAware at
@@ -419,7 +717,7 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 
 	/** @return <b>true</b> - if current ImageAware is reused for displaying another image; <b>false</b> - otherwise */
 	private boolean isViewReused() {
-		String currentCacheKey = engine.getLoadingUriForView(imageAware);
+		CacheKey currentCacheKey = engine.getLoadingUriForView(imageAware);
 		// Check whether memory cache key (image URI) for current ImageAware is actual.
 		// If ImageAware is reused for another task then current task should be cancelled.
 		boolean imageAwareWasReused = !memoryCacheKey.equals(currentCacheKey);
@@ -450,11 +748,45 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		return uri;
 	}
 
+	CacheKey getMemoryCacheKey() {
+		return memoryCacheKey;
+	}
+
+	InFlightLoad.Key getLoadKey() {
+		return loadKey;
+	}
+
+	@Override
+	public int getPriority() {
+		return priority;
+	}
+
+	/** Tasks for views which can't be seen at this moment go after tasks for visible views */
+	private static int defineDefaultPriority(ImageAware imageAware) {
+		View view = imageAware.getWrappedView();
+		return view != null && view.getVisibility() == View.VISIBLE ? PRIORITY_VISIBLE : PRIORITY_NOT_VISIBLE;
+	}
+
+	void setPriority(int priority) {
+		this.priority = priority;
+	}
+
+	@Override
+	public long getSequenceNumber() {
+		return sequenceNumber;
+	}
+
+	void setSequenceNumber(long sequenceNumber) {
+		this.sequenceNumber = sequenceNumber;
+	}
+
 	static void runTask(Runnable r, boolean sync, Handler handler, ImageLoaderEngine engine) {
 		if (sync) {
 			r.run();
 		} else if (handler == null) {
 			engine.fireCallback(r);
+		} else if (DisplayDispatcher.isUiHandler(handler)) {
+			engine.getDisplayDispatcher().post(r);
 		} else {
 			handler.post(r);
 		}
@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Handle of images prefetching which was started by
+ * {@link ImageLoader#prefetch(java.util.Collection, com.nostra13.universalimageloader.core.assist.ImageSize,
+ * com.nostra13.universalimageloader.core.assist.PrefetchTarget) ImageLoader.prefetch(...)}. Allows to cancel all
+ * prefetch tasks of the group at once.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @since 1.9.3
+ */
+public final class PrefetchGroup {
+
+	private final AtomicInteger notFinishedTasks;
+	private volatile boolean cancelled = false;
+
+	PrefetchGroup(int taskCount) {
+		notFinishedTasks = new AtomicInteger(taskCount);
+	}
+
+	/** Cancels prefetching. Not started tasks of the group won't be executed, running downloads are interrupted. */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/** Returns <b>true</b> - if all tasks of the group were finished (or skipped because of cancellation) */
+	public boolean isFinished() {
+		return notFinishedTasks.get() == 0;
+	}
+
+	void onTaskFinished() {
+		notFinishedTasks.decrementAndGet();
+	}
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.assist.PrefetchTarget;
+import com.nostra13.universalimageloader.core.assist.ViewScaleType;
+import com.nostra13.universalimageloader.core.decode.ImageDecodingInfo;
+import com.nostra13.universalimageloader.core.download.ImageDownloader;
+import com.nostra13.universalimageloader.core.download.ImageDownloader.Scheme;
+import com.nostra13.universalimageloader.utils.IoUtils;
+import com.nostra13.universalimageloader.utils.L;
+import com.nostra13.universalimageloader.utils.MemoryCacheUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Prefetches image into disk cache (and decodes it into memory cache if needed). Is executed in separate low-priority
+ * lane of engine and yields to "load&display" tasks: while there are such tasks the prefetch task is postponed.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @see ImageLoader#prefetch(java.util.Collection, ImageSize, PrefetchTarget)
+ * @since 1.9.3
+ */
+final class PrefetchTask implements Runnable, IoUtils.CopyListener {
+
+	private static final String LOG_PREFETCH_IMAGE_ON_DISK = "Prefetch image on disk [%s]";
+	private static final String LOG_PREFETCH_IMAGE_IN_MEMORY = "Prefetch image in memory [%s]";
+	private static final String LOG_PREFETCH_POSTPONED = "Engine is busy. Prefetch is postponed [%s]";
+
+	private final ImageLoaderEngine engine;
+	private final ImageLoaderConfiguration configuration;
+	private final PrefetchGroup group;
+	private final String uri;
+	private final ImageSize targetSize;
+	private final PrefetchTarget target;
+	private final DisplayImageOptions options;
+	/** Generation of engine's prefetch lane which task was submitted to */
+	private int generation;
+
+	PrefetchTask(ImageLoaderEngine engine, PrefetchGroup group, String uri, ImageSize targetSize,
+			PrefetchTarget target) {
+		this.engine = engine;
+		this.group = group;
+		this.uri = uri;
+		this.targetSize = targetSize;
+		this.target = target;
+
+		configuration = engine.configuration;
+		options = configuration.defaultDisplayImageOptions;
+	}
+
+	@Override
+	public void run() {
+		if (!engine.onPrefetchStarted(this)) return; // task was dropped by stopping of engine
+
+		// Image which is loading by display task is prefetched after it, so it isn't downloaded twice
+		if (!isCancelled() && (engine.hasDisplayTasks() || engine.isLoading(uri))) {
+			L.d(LOG_PREFETCH_POSTPONED, uri);
+			if (engine.postponePrefetch(this)) return;
+		}
+
+		try {
+			if (!isCancelled()) {
+				prefetch();
+			}
+		} catch (Throwable e) {
+			L.e(e);
+		} finally {
+			group.onTaskFinished();
+		}
+	}
+
+	private void prefetch() throws IOException {
+		CacheKey memoryCacheKey = null;
+		if (target == PrefetchTarget.DISK_AND_MEMORY) {
+			memoryCacheKey = MemoryCacheUtils.generateKey(uri, targetSize, options);
+			Bitmap bmp = configuration.memoryCache.get(memoryCacheKey);
+			if (bmp != null && !bmp.isRecycled()) return;
+		}
+
+		File imageFile = configuration.diskCache.peekFile(uri);
+		if (imageFile == null) {
+			L.d(LOG_PREFETCH_IMAGE_ON_DISK, uri);
+			InputStream is = engine.getDownloader().getStream(uri, options.getExtraForDownloader());
+			if (!configuration.diskCache.save(uri, is, this)) return;
+			imageFile = configuration.diskCache.peekFile(uri);
+		}
+
+		if (memoryCacheKey != null && imageFile != null && !isCancelled()) {
+			L.d(LOG_PREFETCH_IMAGE_IN_MEMORY, memoryCacheKey);
+			ImageDownloader downloader = engine.getDownloader();
+			ImageDecodingInfo decodingInfo = new ImageDecodingInfo(memoryCacheKey.toString(),
+					Scheme.FILE.wrap(imageFile.getAbsolutePath()), uri, targetSize, ViewScaleType.CROP, downloader,
+					options, configuration.bitmapPool);
+			Bitmap bmp = configuration.decoder.decode(decodingInfo);
+			if (bmp != null && options.shouldPreProcess()) {
+				bmp = options.getPreProcessor().process(bmp);
+			}
+			if (bmp != null) {
+				configuration.memoryCache.put(memoryCacheKey, bmp);
+			}
+		}
+	}
+
+	/** Is called by engine if task was dropped from prefetch lane (because of stopping) before execution */
+	void onDropped() {
+		group.cancel();
+		group.onTaskFinished();
+	}
+
+	/** Returns <b>true</b> - if task's group was cancelled or engine was stopped after task submission */
+	private boolean isCancelled() {
+		return group.isCancelled() || engine.isPrefetchStopped(generation);
+	}
+
+	int getGeneration() {
+		return generation;
+	}
+
+	void setGeneration(int generation) {
+		this.generation = generation;
+	}
+
+	@Override
+	public boolean onBytesCopied(int current, int total) {
+		return !isCancelled();
+	}
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+/**
+ * Task which can be ordered in {@linkplain com.nostra13.universalimageloader.core.assist.QueueProcessingType#PRIORITY
+ * priority queue} of task executor.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @since 1.9.3
+ */
+interface PrioritizedTask extends Runnable {
+
+	/** Priority for tasks of visible image aware views. {@value} */
+	int PRIORITY_VISIBLE = 0;
+	/**
+	 * Default priority for tasks which image aware doesn't wrap visible view (e.g. images loaded by
+	 * {@link ImageLoader#loadImage(String, com.nostra13.universalimageloader.core.listener.ImageLoadingListener)
+	 * ImageLoader.loadImage(...)} or views which visibility isn't {@link android.view.View#VISIBLE VISIBLE}). {@value}
+	 */
+	int PRIORITY_NOT_VISIBLE = 1;
+
+	/**
+	 * Returns distance of task's image aware view from the viewport ({@link #PRIORITY_VISIBLE} - if view is visible).
+	 * Tasks with less value are executed first.<br />
+	 * Engine knows only whether task has a visible view so it sets {@link #PRIORITY_VISIBLE} or
+	 * {@link #PRIORITY_NOT_VISIBLE} on task creation. Real distance of view from the viewport is known to the caller
+	 * only, so it's set by
+	 * {@link ImageLoader#setTaskPriority(com.nostra13.universalimageloader.core.imageaware.ImageAware, int)
+	 * ImageLoader.setTaskPriority(...)}.
+	 */
+	int getPriority();
+
+	/** Returns sequence number of task submission. Tasks with equal priority are executed in order of submission. */
+	long getSequenceNumber();
+}
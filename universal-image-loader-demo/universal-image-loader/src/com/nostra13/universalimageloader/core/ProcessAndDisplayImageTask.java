@@ -18,7 +18,9 @@ package com.nostra13.universalimageloader.core;
 import android.graphics.Bitmap;
 import android.os.Handler;
 import android.widget.ImageView;
+import com.nostra13.universalimageloader.core.ImageLoaderMetrics.Stage;
 import com.nostra13.universalimageloader.core.assist.LoadedFrom;
+import com.nostra13.universalimageloader.core.listener.ImageLoaderEventListener;
 import com.nostra13.universalimageloader.core.process.BitmapProcessor;
 import com.nostra13.universalimageloader.utils.L;
 
@@ -29,7 +31,7 @@ import com.nostra13.universalimageloader.utils.L;
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @since 1.8.0
  */
-final class ProcessAndDisplayImageTask implements Runnable {
+final class ProcessAndDisplayImageTask implements PrioritizedTask {
 
 	private static final String LOG_POSTPROCESS_IMAGE = "PostProcess image before displaying [%s]";
 
@@ -38,6 +40,8 @@ final class ProcessAndDisplayImageTask implements Runnable {
 	private final ImageLoadingInfo imageLoadingInfo;
 	private final Handler handler;
 
+	private volatile long sequenceNumber;
+
 	public ProcessAndDisplayImageTask(ImageLoaderEngine engine, Bitmap bitmap, ImageLoadingInfo imageLoadingInfo,
 			Handler handler) {
 		this.engine = engine;
@@ -51,9 +55,34 @@ final class ProcessAndDisplayImageTask implements Runnable {
 		L.d(LOG_POSTPROCESS_IMAGE, imageLoadingInfo.memoryCacheKey);
 
 		BitmapProcessor processor = imageLoadingInfo.options.getPostProcessor();
+		long start = System.nanoTime();
 		Bitmap processedBitmap = processor.process(bitmap);
-		DisplayBitmapTask displayBitmapTask = new DisplayBitmapTask(processedBitmap, imageLoadingInfo, engine,
+		long duration = System.nanoTime() - start;
+		ImageLoaderMetrics metrics = engine.configuration.metrics;
+		if (metrics != null) {
+			metrics.record(Stage.POST_PROCESS, LoadedFrom.MEMORY_CACHE, duration);
+		}
+		ImageLoaderEventListener eventListener = engine.configuration.eventListener;
+		if (eventListener != null) {
+			eventListener.onPostProcessed(imageLoadingInfo.memoryCacheKey, duration);
+		}
+		DisplayBitmapTask displayBitmapTask = new DisplayBitmapTask(processedBitmap, bitmap, imageLoadingInfo, engine,
 				LoadedFrom.MEMORY_CACHE);
 		LoadAndDisplayImageTask.runTask(displayBitmapTask, imageLoadingInfo.options.isSyncLoading(), handler, engine);
 	}
+
+	/** Image is already in memory and its view waits for it so task is always considered as visible */
+	@Override
+	public int getPriority() {
+		return PRIORITY_VISIBLE;
+	}
+
+	@Override
+	public long getSequenceNumber() {
+		return sequenceNumber;
+	}
+
+	void setSequenceNumber(long sequenceNumber) {
+		this.sequenceNumber = sequenceNumber;
+	}
 }
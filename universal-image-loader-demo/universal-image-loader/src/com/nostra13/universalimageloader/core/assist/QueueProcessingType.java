@@ -22,5 +22,17 @@ package com.nostra13.universalimageloader.core.assist;
  * @since 1.6.3
  */
 public enum QueueProcessingType {
-	FIFO, LIFO
+	FIFO, LIFO,
+	/**
+	 * Tasks are ordered by visibility of their image aware views: tasks for visible views are executed first, then
+	 * tasks for views which are closer to the viewport. Tasks with equal priority are executed in FIFO order.
+	 * By default engine separates only tasks for visible views and all other tasks (e.g. for hidden views or without
+	 * views), distance of views from the viewport is known to the caller only. So priority of queued task should be
+	 * changed by
+	 * {@link com.nostra13.universalimageloader.core.ImageLoader#setTaskPriority(com.nostra13.universalimageloader.core.imageaware.ImageAware, int)
+	 * ImageLoader.setTaskPriority(...)}.
+	 *
+	 * @since 1.9.3
+	 */
+	PRIORITY
 }
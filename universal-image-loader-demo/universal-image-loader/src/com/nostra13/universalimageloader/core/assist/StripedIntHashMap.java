@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core.assist;
+
+/**
+ * Concurrent map with primitive <b>int</b> keys. Keys aren't boxed. Map is split into segments (stripes) which are
+ * locked independently, so threads which work with different keys rarely contend for the same lock. Every segment is
+ * an open-addressing hash table with linear probing.<br />
+ * <b>NOTE:</b> Map doesn't accept <b>null</b> values.
+ *
+ * @param <V> Type of values
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @since 1.9.3
+ */
+public class StripedIntHashMap<V> {
+
+	private static final int DEFAULT_SEGMENT_COUNT = 16;
+	private static final int DEFAULT_SEGMENT_CAPACITY = 16;
+	/** Segment is chosen by 8 high bits of hash */
+	private static final int MAX_SEGMENT_COUNT = 1 << 8;
+
+	private final Segment[] segments;
+	private final int segmentMask;
+
+	/** Creates map with default number of segments */
+	public StripedIntHashMap() {
+		this(DEFAULT_SEGMENT_COUNT);
+	}
+
+	/**
+	 * @param concurrencyLevel Estimated number of concurrently working threads. Number of segments is the nearest power
+	 *                         of two which is not less than this value (but not more than 256).
+	 */
+	public StripedIntHashMap(int concurrencyLevel) {
+		if (concurrencyLevel <= 0) throw new IllegalArgumentException("concurrencyLevel must be positive");
+
+		int segmentCount = 1;
+		while (segmentCount < concurrencyLevel && segmentCount < MAX_SEGMENT_COUNT) {
+			segmentCount <<= 1;
+		}
+		segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment(DEFAULT_SEGMENT_CAPACITY);
+		}
+		segmentMask = segmentCount - 1;
+	}
+
+	/** Returns value for key or <b>null</b> if there is no such key in map */
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		int hash = hash(key);
+		return (V) segmentFor(hash).get(key, hash);
+	}
+
+	/** Puts value for key. Returns previous value for key or <b>null</b> if there was no such key. */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) {
+		if (value == null) throw new NullPointerException("value can't be null");
+		int hash = hash(key);
+		return (V) segmentFor(hash).put(key, hash, value);
+	}
+
+	/** Removes key from map. Returns removed value or <b>null</b> if there was no such key. */
+	@SuppressWarnings("unchecked")
+	public V remove(int key) {
+		int hash = hash(key);
+		return (V) segmentFor(hash).remove(key, hash, null);
+	}
+
+	/**
+	 * Removes key from map only if it's mapped to passed value (values are compared by reference).
+	 *
+	 * @return <b>true</b> - if value was removed; <b>false</b> - otherwise
+	 */
+	public boolean remove(int key, V value) {
+		if (value == null) return false;
+		int hash = hash(key);
+		return segmentFor(hash).remove(key, hash, value) != null;
+	}
+
+	/** Returns number of keys in map. Result isn't consistent if map is modified concurrently. */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.size;
+		}
+		return size;
+	}
+
+	/** Returns <b>true</b> - if map has no keys. Result isn't consistent if map is modified concurrently. */
+	public boolean isEmpty() {
+		for (Segment segment : segments) {
+			if (segment.size != 0) return false;
+		}
+		return true;
+	}
+
+	/** Removes all keys from map */
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+
+	private Segment segmentFor(int hash) {
+		// High bits choose segment, low bits choose slot in segment
+		return segments[(hash >>> 24) & segmentMask];
+	}
+
+	/** Spreads bits of key (Murmur3 finalizer) so sequential and clustered keys are distributed evenly */
+	private static int hash(int key) {
+		int h = key;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	/** Open-addressing hash table guarded by its own lock */
+	private static final class Segment {
+
+		/** Max load factor is 3/4 */
+		private static final int LOAD_FACTOR_NUMERATOR = 3;
+		private static final int LOAD_FACTOR_DENOMINATOR = 4;
+
+		private int[] keys;
+		private int[] hashes;
+		/** <b>null</b> - empty slot */
+		private Object[] values;
+		private int threshold;
+		volatile int size;
+
+		Segment(int capacity) {
+			allocate(capacity);
+		}
+
+		private void allocate(int capacity) {
+			keys = new int[capacity];
+			hashes = new int[capacity];
+			values = new Object[capacity];
+			threshold = capacity * LOAD_FACTOR_NUMERATOR / LOAD_FACTOR_DENOMINATOR;
+		}
+
+		synchronized Object get(int key, int hash) {
+			int index = indexOf(key, hash);
+			return index < 0 ? null : values[index];
+		}
+
+		synchronized Object put(int key, int hash, Object value) {
+			int index = indexOf(key, hash);
+			if (index >= 0) {
+				Object previous = values[index];
+				values[index] = value;
+				return previous;
+			}
+			if (size >= threshold) {
+				rehash(keys.length << 1);
+			}
+			insert(key, hash, value);
+			size++;
+			return null;
+		}
+
+		/** Removes key. If <b>expectedValue</b> isn't null then key is removed only if it's mapped to this value. */
+		synchronized Object remove(int key, int hash, Object expectedValue) {
+			int index = indexOf(key, hash);
+			if (index < 0) return null;
+			Object value = values[index];
+			if (expectedValue != null && value != expectedValue) return null;
+
+			deleteSlot(index);
+			size--;
+			return value;
+		}
+
+		synchronized void clear() {
+			if (size == 0) return;
+			allocate(DEFAULT_SEGMENT_CAPACITY);
+			size = 0;
+		}
+
+		/** Returns slot index of key or <b>-1</b> if there is no such key */
+		private int indexOf(int key, int hash) {
+			int mask = values.length - 1;
+			int index = hash & mask;
+			while (values[index] != null) {
+				if (keys[index] == key) return index;
+				index = (index + 1) & mask;
+			}
+			return -1;
+		}
+
+		private void insert(int key, int hash, Object value) {
+			int mask = values.length - 1;
+			int index = hash & mask;
+			while (values[index] != null) {
+				index = (index + 1) & mask;
+			}
+			keys[index] = key;
+			hashes[index] = hash;
+			values[index] = value;
+		}
+
+		/**
+		 * Empties slot and shifts following entries of the probe sequence back so lookups don't stop at the hole
+		 * (no tombstones are needed)
+		 */
+		private void deleteSlot(int hole) {
+			int mask = values.length - 1;
+			int index = hole;
+			while (true) {
+				index = (index + 1) & mask;
+				if (values[index] == null) break;
+
+				int home = hashes[index] & mask;
+				// Entry can be moved to the hole if its home slot isn't in the cyclic range (hole, index]
+				boolean movable = hole <= index ? (home <= hole || home > index) : (home <= hole && home > index);
+				if (movable) {
+					keys[hole] = keys[index];
+					hashes[hole] = hashes[index];
+					values[hole] = values[index];
+					hole = index;
+				}
+			}
+			values[hole] = null;
+		}
+
+		private void rehash(int newCapacity) {
+			int[] oldKeys = keys;
+			int[] oldHashes = hashes;
+			Object[] oldValues = values;
+			allocate(newCapacity);
+			for (int i = 0; i < oldValues.length; i++) {
+				if (oldValues[i] != null) {
+					insert(oldKeys[i], oldHashes[i], oldValues[i]);
+				}
+			}
+		}
+	}
+}
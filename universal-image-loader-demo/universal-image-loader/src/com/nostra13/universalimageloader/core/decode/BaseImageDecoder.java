@@ -15,11 +15,14 @@
  *******************************************************************************/
 package com.nostra13.universalimageloader.core.decode;
 
+import android.annotation.TargetApi;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.BitmapFactory.Options;
 import android.graphics.Matrix;
 import android.media.ExifInterface;
+import android.os.Build;
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
 import com.nostra13.universalimageloader.core.assist.ImageScaleType;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
 import com.nostra13.universalimageloader.core.download.ImageDownloader.Scheme;
@@ -27,6 +30,7 @@ import com.nostra13.universalimageloader.utils.ImageSizeUtils;
 import com.nostra13.universalimageloader.utils.IoUtils;
 import com.nostra13.universalimageloader.utils.L;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -43,6 +47,8 @@ public class BaseImageDecoder implements ImageDecoder {
 	protected static final String LOG_SCALE_IMAGE = "Scale subsampled image (%1$s) to %2$s (scale = %3$.5f) [%4$s]";
 	protected static final String LOG_ROTATE_IMAGE = "Rotate image on %1$d\u00B0 [%2$s]";
 	protected static final String LOG_FLIP_IMAGE = "Flip image horizontally [%s]";
+	protected static final String LOG_REUSE_BITMAP = "Reuse pooled bitmap (%1$dx%2$d) for decoding [%3$s]";
+	protected static final String LOG_CANT_REUSE_BITMAP = "Pooled bitmap can't be reused, decode image without reusing [%s]";
 	protected static final String ERROR_CANT_DECODE_IMAGE = "Image can't be decoded [%s]";
 
 	protected final boolean loggingEnabled;
@@ -75,7 +81,23 @@ public class BaseImageDecoder implements ImageDecoder {
 			imageInfo = defineImageSizeAndRotation(imageStream, decodingInfo);
 			imageStream = resetStream(imageStream, decodingInfo);
 			Options decodingOptions = prepareDecodingOptions(imageInfo.imageSize, decodingInfo);
-			decodedBitmap = BitmapFactory.decodeStream(imageStream, null, decodingOptions);
+			Bitmap reusedBitmap = null;
+			if (decodingInfo.getBitmapPool() != null && Build.VERSION.SDK_INT >= 11) {
+				reusedBitmap = prepareBitmapReuse(imageInfo, decodingOptions, decodingInfo);
+			}
+			try {
+				decodedBitmap = BitmapFactory.decodeStream(imageStream, null, decodingOptions);
+			} catch (IllegalArgumentException e) {
+				if (reusedBitmap == null) throw e;
+				// Pooled bitmap doesn't fit the image (e.g. image format doesn't support reusing)
+				L.d(LOG_CANT_REUSE_BITMAP, decodingInfo.getImageKey());
+				imageStream = resetStream(imageStream, decodingInfo);
+				clearInBitmap(decodingOptions);
+				decodedBitmap = BitmapFactory.decodeStream(imageStream, null, decodingOptions);
+			}
+			if (reusedBitmap != null && decodedBitmap != reusedBitmap) {
+				recycleOrPool(reusedBitmap, decodingInfo);
+			}
 		} finally {
 			IoUtils.closeSilently(imageStream);
 		}
@@ -90,6 +112,10 @@ public class BaseImageDecoder implements ImageDecoder {
 	}
 
 	protected InputStream getImageStream(ImageDecodingInfo decodingInfo) throws IOException {
+		byte[] encodedImage = decodingInfo.getEncodedImage();
+		if (encodedImage != null) {
+			return new ByteArrayInputStream(encodedImage); // no I/O, supports reset()
+		}
 		return decodingInfo.getDownloader().getStream(decodingInfo.getImageUri(), decodingInfo.getExtraForDownloader());
 	}
 
@@ -168,6 +194,52 @@ public class BaseImageDecoder implements ImageDecoder {
 		return decodingOptions;
 	}
 
+	/**
+	 * Takes bitmap from {@linkplain ImageDecodingInfo#getBitmapPool() pool} and sets it as
+	 * {@link Options#inBitmap} so its memory is reused for decoding. Decoded bitmaps are made mutable so they can be
+	 * pooled later.
+	 *
+	 * @return Reused bitmap or <b>null</b> if there is no suitable bitmap in pool
+	 */
+	@TargetApi(11)
+	protected Bitmap prepareBitmapReuse(ImageFileInfo imageInfo, Options decodingOptions, ImageDecodingInfo decodingInfo) {
+		decodingOptions.inMutable = true;
+		int scale = decodingOptions.inSampleSize;
+		// Before Android 4.4 only not subsampled images can be decoded into existing bitmap
+		if (Build.VERSION.SDK_INT < 19 && scale > 1) return null;
+
+		// Image size considers rotation, decoder works with original orientation
+		boolean rotated = imageInfo.exif.rotation % 180 != 0;
+		int width = rotated ? imageInfo.imageSize.getHeight() : imageInfo.imageSize.getWidth();
+		int height = rotated ? imageInfo.imageSize.getWidth() : imageInfo.imageSize.getHeight();
+		width = (width + scale - 1) / scale;
+		height = (height + scale - 1) / scale;
+		Bitmap.Config config = decodingOptions.inPreferredConfig;
+		if (config == null) {
+			config = Bitmap.Config.ARGB_8888;
+		}
+
+		Bitmap bitmap = decodingInfo.getBitmapPool().get(width, height, config);
+		if (bitmap != null) {
+			decodingOptions.inBitmap = bitmap;
+			if (loggingEnabled) L.d(LOG_REUSE_BITMAP, width, height, decodingInfo.getImageKey());
+		}
+		return bitmap;
+	}
+
+	@TargetApi(11)
+	private void clearInBitmap(Options decodingOptions) {
+		decodingOptions.inBitmap = null;
+	}
+
+	/** Puts bitmap which isn't needed anymore into pool (if it's available) or recycles it */
+	protected void recycleOrPool(Bitmap bitmap, ImageDecodingInfo decodingInfo) {
+		BitmapPool bitmapPool = decodingInfo.getBitmapPool();
+		if (bitmapPool == null || !bitmapPool.put(bitmap)) {
+			bitmap.recycle();
+		}
+	}
+
 	protected InputStream resetStream(InputStream imageStream, ImageDecodingInfo decodingInfo) throws IOException {
 		try {
 			imageStream.reset();
@@ -208,10 +280,13 @@ public class BaseImageDecoder implements ImageDecoder {
 			if (loggingEnabled) L.d(LOG_ROTATE_IMAGE, rotation, decodingInfo.getImageKey());
 		}
 
+		// Mutable bitmap (e.g. decoded for reusing) is copied by createBitmap() even for identity matrix
+		if (m.isIdentity()) return subsampledBitmap;
+
 		Bitmap finalBitmap = Bitmap.createBitmap(subsampledBitmap, 0, 0, subsampledBitmap.getWidth(), subsampledBitmap
 				.getHeight(), m, true);
 		if (finalBitmap != subsampledBitmap) {
-			subsampledBitmap.recycle();
+			recycleOrPool(subsampledBitmap, decodingInfo);
 		}
 		return finalBitmap;
 	}
@@ -19,6 +19,7 @@ import android.annotation.TargetApi;
 import android.graphics.BitmapFactory.Options;
 import android.os.Build;
 
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
 import com.nostra13.universalimageloader.core.DisplayImageOptions;
 import com.nostra13.universalimageloader.core.assist.ImageScaleType;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
@@ -47,8 +48,27 @@ public class ImageDecodingInfo {
 	private final boolean considerExifParams;
 	private final Options decodingOptions;
 
+	private final BitmapPool bitmapPool;
+	private final byte[] encodedImage;
+
 	public ImageDecodingInfo(String imageKey, String imageUri, String originalImageUri, ImageSize targetSize, ViewScaleType viewScaleType,
 							 ImageDownloader downloader, DisplayImageOptions displayOptions) {
+		this(imageKey, imageUri, originalImageUri, targetSize, viewScaleType, downloader, displayOptions, null);
+	}
+
+	public ImageDecodingInfo(String imageKey, String imageUri, String originalImageUri, ImageSize targetSize, ViewScaleType viewScaleType,
+							 ImageDownloader downloader, DisplayImageOptions displayOptions, BitmapPool bitmapPool) {
+		this(imageKey, imageUri, originalImageUri, targetSize, viewScaleType, downloader, displayOptions, bitmapPool, null);
+	}
+
+	/**
+	 * @param encodedImage Bytes of image file (e.g. from
+	 *                     {@linkplain com.nostra13.universalimageloader.cache.memory.EncodedMemoryCache encoded memory
+	 *                     cache}) which are decoded instead of reading image by <b>imageUri</b>. Can be <b>null</b>.
+	 */
+	public ImageDecodingInfo(String imageKey, String imageUri, String originalImageUri, ImageSize targetSize, ViewScaleType viewScaleType,
+							 ImageDownloader downloader, DisplayImageOptions displayOptions, BitmapPool bitmapPool,
+							 byte[] encodedImage) {
 		this.imageKey = imageKey;
 		this.imageUri = imageUri;
 		this.originalImageUri = originalImageUri;
@@ -63,6 +83,9 @@ public class ImageDecodingInfo {
 		considerExifParams = displayOptions.isConsiderExifParams();
 		decodingOptions = new Options();
 		copyOptions(displayOptions.getDecodingOptions(), decodingOptions);
+
+		this.bitmapPool = bitmapPool;
+		this.encodedImage = encodedImage;
 	}
 
 	private void copyOptions(Options srcOptions, Options destOptions) {
@@ -147,4 +170,14 @@ public class ImageDecodingInfo {
 	public Options getDecodingOptions() {
 		return decodingOptions;
 	}
-}
\ No newline at end of file
+
+	/** @return Pool of Bitmaps which can be reused for decoding or <b>null</b> if reusing is disabled */
+	public BitmapPool getBitmapPool() {
+		return bitmapPool;
+	}
+
+	/** @return Bytes of image file which should be decoded instead of reading image by URI or <b>null</b> */
+	public byte[] getEncodedImage() {
+		return encodedImage;
+	}
+}
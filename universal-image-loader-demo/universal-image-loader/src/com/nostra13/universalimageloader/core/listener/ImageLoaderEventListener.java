@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core.listener;
+
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
+
+/**
+ * Low-level listener for steps of image loading in ImageLoader engine. It allows to build custom tracing, sampling and
+ * statistics. Listener is set in
+ * {@linkplain com.nostra13.universalimageloader.core.ImageLoaderConfiguration.Builder#eventListener(ImageLoaderEventListener)
+ * configuration}.<br />
+ * <b>NOTE:</b> Callbacks are called synchronously in threads of ImageLoader (mostly in task pool threads, memory cache
+ * lookups - in thread which calls <b>displayImage(...)</b>). Implementation must be thread-safe and fast.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @see SimpleImageLoaderEventListener
+ * @since 1.9.3
+ */
+public interface ImageLoaderEventListener {
+
+	/**
+	 * Is called when "load&display" task is queued for execution (after submitting, resuming of paused engine or
+	 * handing off to decoding stage)
+	 *
+	 * @param memoryCacheKey Key of image in memory cache (image URI + target size)
+	 */
+	void onTaskQueued(CacheKey memoryCacheKey);
+
+	/** Is called when "load&display" task is taken from queue and starts execution */
+	void onTaskDequeued(CacheKey memoryCacheKey);
+
+	/**
+	 * Is called when image is found in memory cache (at start of displaying). Passed key can be reused
+	 * {@linkplain CacheKey#obtainLookupKey(String, int, int, String) lookup key}, use {@link CacheKey#immutableCopy()}
+	 * to keep it.
+	 */
+	void onMemoryCacheHit(CacheKey memoryCacheKey);
+
+	/** Is called when image isn't found in memory cache (at start of displaying) so "load&display" task is submitted */
+	void onMemoryCacheMiss(CacheKey memoryCacheKey);
+
+	/** Is called when image file is found in disk cache */
+	void onDiskCacheHit(String imageUri);
+
+	/** Is called when image file isn't found in disk cache */
+	void onDiskCacheMiss(String imageUri);
+
+	/**
+	 * Is called when encoded image is found in
+	 * {@linkplain com.nostra13.universalimageloader.cache.memory.EncodedMemoryCache encoded memory cache}
+	 */
+	void onEncodedMemoryCacheHit(String imageUri);
+
+	/** Is called when encoded image isn't found in encoded memory cache (so disk cache is checked next) */
+	void onEncodedMemoryCacheMiss(String imageUri);
+
+	/**
+	 * Is called when next portion of image is downloaded into disk cache
+	 *
+	 * @param current Downloaded size in bytes
+	 * @param total   Total size in bytes
+	 */
+	void onBytesDownloaded(String imageUri, int current, int total);
+
+	/** Is called before decoding of image */
+	void onDecodingStarted(CacheKey memoryCacheKey);
+
+	/**
+	 * Is called after decoding of image
+	 *
+	 * @param decoded       <b>true</b> - if image was decoded successfully; <b>false</b> - otherwise
+	 * @param sampleSize    Sample size which was used for decoding
+	 * @param durationNanos Duration of decoding in nanoseconds
+	 */
+	void onDecodingFinished(CacheKey memoryCacheKey, boolean decoded, int sampleSize, long durationNanos);
+
+	/** Is called after pre-processing of decoded image (before caching in memory) */
+	void onPreProcessed(CacheKey memoryCacheKey, long durationNanos);
+
+	/** Is called after post-processing of image (before displaying) */
+	void onPostProcessed(CacheKey memoryCacheKey, long durationNanos);
+}
@@ -37,6 +37,7 @@ public class PauseOnScrollListener implements OnScrollListener {
 
 	private final boolean pauseOnScroll;
 	private final boolean pauseOnFling;
+	private final boolean pauseDisplayingOnFling;
 	private final OnScrollListener externalListener;
 
 	/**
@@ -61,9 +62,26 @@ public class PauseOnScrollListener implements OnScrollListener {
 	 */
 	public PauseOnScrollListener(ImageLoader imageLoader, boolean pauseOnScroll, boolean pauseOnFling,
 			OnScrollListener customListener) {
+		this(imageLoader, pauseOnScroll, pauseOnFling, false, customListener);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param imageLoader            {@linkplain ImageLoader} instance for controlling
+	 * @param pauseOnScroll          Whether {@linkplain ImageLoader#pause() pause ImageLoader} during touch scrolling
+	 * @param pauseOnFling           Whether {@linkplain ImageLoader#pause() pause ImageLoader} during fling
+	 * @param pauseDisplayingOnFling Whether {@linkplain ImageLoader#pauseDisplaying() pause displaying} of loaded
+	 *                               images during fling
+	 * @param customListener         Your custom {@link OnScrollListener} for {@linkplain AbsListView list view} which
+	 *                               also will be get scroll events
+	 */
+	public PauseOnScrollListener(ImageLoader imageLoader, boolean pauseOnScroll, boolean pauseOnFling,
+			boolean pauseDisplayingOnFling, OnScrollListener customListener) {
 		this.imageLoader = imageLoader;
 		this.pauseOnScroll = pauseOnScroll;
 		this.pauseOnFling = pauseOnFling;
+		this.pauseDisplayingOnFling = pauseDisplayingOnFling;
 		externalListener = customListener;
 	}
 
@@ -72,8 +90,14 @@ public class PauseOnScrollListener implements OnScrollListener {
 		switch (scrollState) {
 			case OnScrollListener.SCROLL_STATE_IDLE:
 				imageLoader.resume();
+				if (pauseDisplayingOnFling) {
+					imageLoader.resumeDisplaying();
+				}
 				break;
 			case OnScrollListener.SCROLL_STATE_TOUCH_SCROLL:
+				if (pauseDisplayingOnFling) {
+					imageLoader.resumeDisplaying();
+				}
 				if (pauseOnScroll) {
 					imageLoader.pause();
 				}
@@ -82,6 +106,9 @@ public class PauseOnScrollListener implements OnScrollListener {
 				if (pauseOnFling) {
 					imageLoader.pause();
 				}
+				if (pauseDisplayingOnFling) {
+					imageLoader.pauseDisplaying();
+				}
 				break;
 		}
 		if (externalListener != null) {
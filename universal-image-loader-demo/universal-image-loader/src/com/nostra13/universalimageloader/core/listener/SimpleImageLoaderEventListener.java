@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core.listener;
+
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
+
+/**
+ * A convenient class to extend when you only want to listen for a subset of ImageLoader engine events. This
+ * implements all methods in the {@link ImageLoaderEventListener} but does nothing.
+ *
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @since 1.9.3
+ */
+public class SimpleImageLoaderEventListener implements ImageLoaderEventListener {
+	@Override
+	public void onTaskQueued(CacheKey memoryCacheKey) {
+		// Empty implementation
+	}
+
+	@Override
+	public void onTaskDequeued(CacheKey memoryCacheKey) {
+		// Empty implementation
+	}
+
+	@Override
+	public void onMemoryCacheHit(CacheKey memoryCacheKey) {
+		// Empty implementation
+	}
+
+	@Override
+	public void onMemoryCacheMiss(CacheKey memoryCacheKey) {
+		// Empty implementation
+	}
+
+	@Override
+	public void onDiskCacheHit(String imageUri) {
+		// Empty implementation
+	}
+
+	@Override
+	public void onDiskCacheMiss(String imageUri) {
+		// Empty implementation
+	}
+
+	@Override
+	public void onEncodedMemoryCacheHit(String imageUri) {
+		// Empty implementation
+	}
+
+	@Override
+	public void onEncodedMemoryCacheMiss(String imageUri) {
+		// Empty implementation
+	}
+
+	@Override
+	public void onBytesDownloaded(String imageUri, int current, int total) {
+		// Empty implementation
+	}
+
+	@Override
+	public void onDecodingStarted(CacheKey memoryCacheKey) {
+		// Empty implementation
+	}
+
+	@Override
+	public void onDecodingFinished(CacheKey memoryCacheKey, boolean decoded, int sampleSize, long durationNanos) {
+		// Empty implementation
+	}
+
+	@Override
+	public void onPreProcessed(CacheKey memoryCacheKey, long durationNanos) {
+		// Empty implementation
+	}
+
+	@Override
+	public void onPostProcessed(CacheKey memoryCacheKey, long durationNanos) {
+		// Empty implementation
+	}
+}
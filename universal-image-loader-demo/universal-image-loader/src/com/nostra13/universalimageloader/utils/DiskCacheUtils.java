@@ -33,8 +33,7 @@ public final class DiskCacheUtils {
 
 	/** Returns {@link File} of cached image or <b>null</b> if image was not cached in disk cache */
 	public static File findInCache(String imageUri, DiskCache diskCache) {
-		File image = diskCache.get(imageUri);
-		return image != null && image.exists() ? image : null;
+		return diskCache.peekFile(imageUri);
 	}
 
 	/**
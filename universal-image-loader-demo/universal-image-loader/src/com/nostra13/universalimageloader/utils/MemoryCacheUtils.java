@@ -17,13 +17,18 @@ package com.nostra13.universalimageloader.utils;
 
 import android.graphics.Bitmap;
 
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
 import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.core.DisplayImageOptions;
 import com.nostra13.universalimageloader.core.ImageLoaderConfiguration;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.process.BitmapProcessor;
 
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * Utility for generating of keys for memory cache, key comparing and other work with memory cache
@@ -33,27 +38,102 @@ import java.util.List;
  */
 public final class MemoryCacheUtils {
 
-	private static final String URI_AND_SIZE_SEPARATOR = "_";
-	private static final String WIDTH_AND_HEIGHT_SEPARATOR = "x";
+	/** Ids of pre-processors which were applied to cached images. Equal processors have the same id. */
+	private static final Map<BitmapProcessor, String> PROCESSOR_IDS = new WeakHashMap<BitmapProcessor, String>();
+	private static int processorCount;
 
 	private MemoryCacheUtils() {
 	}
 
 	/**
 	 * Generates key for memory cache for incoming image (URI + size).<br />
-	 * Pattern for cache key - <b>[imageUri]_[width]x[height]</b>.
+	 * String form of key - <b>[imageUri]_[width]x[height]</b>.
 	 */
-	public static String generateKey(String imageUri, ImageSize targetSize) {
-		return new StringBuilder(imageUri).append(URI_AND_SIZE_SEPARATOR).append(targetSize.getWidth()).append(WIDTH_AND_HEIGHT_SEPARATOR).append(targetSize.getHeight()).toString();
+	public static CacheKey generateKey(String imageUri, ImageSize targetSize) {
+		return new CacheKey(imageUri, targetSize.getWidth(), targetSize.getHeight());
 	}
 
-	public static Comparator<String> createFuzzyKeyComparator() {
-		return new Comparator<String>() {
+	/**
+	 * Generates key for memory cache for incoming image (URI + size) which is decoded with incoming display options.
+	 * Images processed by different {@linkplain DisplayImageOptions#getPreProcessor() pre-processors} have different
+	 * keys.<br />
+	 * String form of key - <b>[imageUri]_[width]x[height]</b> (+ <b>_[processorId]</b> if options have
+	 * pre-processor).
+	 */
+	public static CacheKey generateKey(String imageUri, ImageSize targetSize, DisplayImageOptions options) {
+		return new CacheKey(imageUri, targetSize.getWidth(), targetSize.getHeight(), getProcessorId(options));
+	}
+
+	/**
+	 * Returns key for memory cache for incoming image (URI + size) which is reused by calling thread. So lookup in
+	 * memory cache doesn't allocate a key. Returned key mustn't be stored, use {@link CacheKey#immutableCopy()} for
+	 * that.
+	 */
+	public static CacheKey generateLookupKey(String imageUri, ImageSize targetSize) {
+		return CacheKey.obtainLookupKey(imageUri, targetSize.getWidth(), targetSize.getHeight(), null);
+	}
+
+	/**
+	 * Returns key for memory cache for incoming image (URI + size + pre-processor of options) which is reused by
+	 * calling thread.
+	 *
+	 * @see #generateLookupKey(String, ImageSize)
+	 * @see #generateKey(String, ImageSize, DisplayImageOptions)
+	 */
+	public static CacheKey generateLookupKey(String imageUri, ImageSize targetSize, DisplayImageOptions options) {
+		return CacheKey.obtainLookupKey(imageUri, targetSize.getWidth(), targetSize.getHeight(),
+				getProcessorId(options));
+	}
+
+	/**
+	 * Returns id of {@linkplain DisplayImageOptions#getPreProcessor() pre-processor} of incoming options or
+	 * <b>null</b> if options don't have pre-processor. Processors which are {@linkplain Object#equals(Object) equal}
+	 * get the same id.
+	 */
+	private static String getProcessorId(DisplayImageOptions options) {
+		if (!options.shouldPreProcess()) return null;
+
+		BitmapProcessor processor = options.getPreProcessor();
+		synchronized (PROCESSOR_IDS) {
+			String id = PROCESSOR_IDS.get(processor);
+			if (id == null) {
+				id = processor.getClass().getSimpleName() + '#' + (++processorCount);
+				PROCESSOR_IDS.put(processor, id);
+			}
+			return id;
+		}
+	}
+
+	/**
+	 * Searches cached variant of image which was loaded for target size not less than size of incoming key (in both
+	 * dimensions) and was processed by the same pre-processor. The smallest of such variants is chosen.
+	 *
+	 * @param missedKey Key of image which wasn't found in memory cache
+	 * @return Memory cache key of found variant or <b>null</b> if there is no such variant in memory cache
+	 */
+	public static CacheKey findNearestLargerKey(CacheKey missedKey, MemoryCache memoryCache) {
+		String processorId = missedKey.getProcessorId();
+		CacheKey nearestKey = null;
+		long nearestArea = Long.MAX_VALUE;
+		for (CacheKey key : memoryCache.keysForImageUri(missedKey.getImageUri())) {
+			if (key.getWidth() < missedKey.getWidth() || key.getHeight() < missedKey.getHeight()) continue;
+			if (processorId == null ? key.getProcessorId() != null : !processorId.equals(key.getProcessorId())) continue;
+
+			long area = (long) key.getWidth() * key.getHeight();
+			if (area < nearestArea) {
+				nearestKey = key;
+				nearestArea = area;
+			}
+		}
+		return nearestKey;
+	}
+
+	/** Returns comparator which considers keys of the same image URI as equal */
+	public static Comparator<CacheKey> createFuzzyKeyComparator() {
+		return new Comparator<CacheKey>() {
 			@Override
-			public int compare(String key1, String key2) {
-				String imageUri1 = key1.substring(0, key1.lastIndexOf(URI_AND_SIZE_SEPARATOR));
-				String imageUri2 = key2.substring(0, key2.lastIndexOf(URI_AND_SIZE_SEPARATOR));
-				return imageUri1.compareTo(imageUri2);
+			public int compare(CacheKey key1, CacheKey key2) {
+				return key1.getImageUri().compareTo(key2.getImageUri());
 			}
 		};
 	}
@@ -66,9 +146,10 @@ public final class MemoryCacheUtils {
 	 */
 	public static List<Bitmap> findCachedBitmapsForImageUri(String imageUri, MemoryCache memoryCache) {
 		List<Bitmap> values = new ArrayList<Bitmap>();
-		for (String key : memoryCache.keys()) {
-			if (key.startsWith(imageUri)) {
-				values.add(memoryCache.get(key));
+		for (CacheKey key : memoryCache.keysForImageUri(imageUri)) {
+			Bitmap bitmap = memoryCache.get(key);
+			if (bitmap != null) {
+				values.add(bitmap);
 			}
 		}
 		return values;
@@ -80,14 +161,8 @@ public final class MemoryCacheUtils {
 	 * {@link ImageLoaderConfiguration.Builder#denyCacheImageMultipleSizesInMemory()
 	 * denyCacheImageMultipleSizesInMemory()} option in {@linkplain ImageLoaderConfiguration configuration}
 	 */
-	public static List<String> findCacheKeysForImageUri(String imageUri, MemoryCache memoryCache) {
-		List<String> values = new ArrayList<String>();
-		for (String key : memoryCache.keys()) {
-			if (key.startsWith(imageUri)) {
-				values.add(key);
-			}
-		}
-		return values;
+	public static List<CacheKey> findCacheKeysForImageUri(String imageUri, MemoryCache memoryCache) {
+		return new ArrayList<CacheKey>(memoryCache.keysForImageUri(imageUri));
 	}
 
 	/**
@@ -97,13 +172,7 @@ public final class MemoryCacheUtils {
 	 * denyCacheImageMultipleSizesInMemory()} option in {@linkplain ImageLoaderConfiguration configuration}
 	 */
 	public static void removeFromCache(String imageUri, MemoryCache memoryCache) {
-		List<String> keysToRemove = new ArrayList<String>();
-		for (String key : memoryCache.keys()) {
-			if (key.startsWith(imageUri)) {
-				keysToRemove.add(key);
-			}
-		}
-		for (String keyToRemove : keysToRemove) {
+		for (CacheKey keyToRemove : memoryCache.keysForImageUri(imageUri)) {
 			memoryCache.remove(keyToRemove);
 		}
 	}
@@ -0,0 +1,54 @@
+package com.nostra13.universalimageloader.cache.disc;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+@RunWith(RobolectricTestRunner.class)
+public class DirectoryFanOutTest {
+
+	private static final File DIRECTORY = new File("cache");
+
+	@Test
+	public void testFlatLayout() {
+		Assertions.assertThat(DirectoryFanOut.FLAT.getFile(DIRECTORY, "name")).isEqualTo(new File(DIRECTORY, "name"));
+	}
+
+	@Test
+	public void testFilesAreSpreadOverSubdirectories() {
+		DirectoryFanOut fanOut = new DirectoryFanOut(2, 16);
+		Set<File> subdirectories = new HashSet<File>();
+		for (int i = 0; i < 1000; i++) {
+			File file = fanOut.getFile(DIRECTORY, "name" + i);
+			File subdirectory = file.getParentFile();
+			Assertions.assertThat(fanOut.isSubdirectoryName(subdirectory.getName())).isTrue();
+			Assertions.assertThat(fanOut.isSubdirectoryName(subdirectory.getParentFile().getName())).isTrue();
+			Assertions.assertThat(subdirectory.getParentFile().getParentFile()).isEqualTo(DIRECTORY);
+			Assertions.assertThat(fanOut.getFile(DIRECTORY, "name" + i)).isEqualTo(file);
+			subdirectories.add(subdirectory);
+		}
+
+		Assertions.assertThat(subdirectories.size()).isGreaterThan(200); // of 256
+	}
+
+	@Test
+	public void testSubdirectoryName() {
+		DirectoryFanOut fanOut = new DirectoryFanOut(1, 16);
+
+		Assertions.assertThat(fanOut.isSubdirectoryName("0f")).isTrue();
+		Assertions.assertThat(fanOut.isSubdirectoryName("10")).isFalse();
+		Assertions.assertThat(fanOut.isSubdirectoryName("0F")).isFalse();
+		Assertions.assertThat(fanOut.isSubdirectoryName("name")).isFalse();
+		Assertions.assertThat(DirectoryFanOut.FLAT.isSubdirectoryName("00")).isFalse();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooWideLayout() {
+		new DirectoryFanOut(1, DirectoryFanOut.MAX_WIDTH + 1);
+	}
+}
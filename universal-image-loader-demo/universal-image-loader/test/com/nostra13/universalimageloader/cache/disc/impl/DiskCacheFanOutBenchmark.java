@@ -0,0 +1,72 @@
+package com.nostra13.universalimageloader.cache.disc.impl;
+
+import com.nostra13.universalimageloader.cache.disc.DirectoryFanOut;
+import com.nostra13.universalimageloader.cache.disc.naming.HashCodeFileNameGenerator;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Measures latency of lookups (hits and misses) and clearing of disk cache with many files for different
+ * {@linkplain DirectoryFanOut directory layouts}. Results depend on file system of temp directory (use
+ * <code>-Djava.io.tmpdir</code> to choose it).<br />
+ * It's not a unit test (class name doesn't match test patterns of test run), run it explicitly:
+ * <code>mvn test -Dtest=DiskCacheFanOutBenchmark</code>
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DiskCacheFanOutBenchmark {
+
+	private static final int FILE_COUNT = 100000;
+	private static final int LOOKUP_COUNT = 20000;
+	private static final int IMAGE_SIZE = 256;
+
+	@Test
+	public void benchmarkLookupAndClear() throws Exception {
+		DirectoryFanOut[] layouts = {DirectoryFanOut.FLAT, new DirectoryFanOut(1, 256), new DirectoryFanOut(2, 256)};
+		for (int round = 0; round < 2; round++) { // first round is warm-up
+			for (DirectoryFanOut layout : layouts) {
+				File directory = File.createTempFile("disk-cache", "");
+				directory.delete();
+				BaseDiscCache cache = new UnlimitedDiscCache(directory, null, new HashCodeFileNameGenerator(), layout);
+				byte[] image = new byte[IMAGE_SIZE];
+				for (int i = 0; i < FILE_COUNT; i++) {
+					cache.save(uriOf(i), new ByteArrayInputStream(image), null);
+				}
+
+				Random random = new Random(round);
+				long start = System.nanoTime();
+				for (int i = 0; i < LOOKUP_COUNT; i++) {
+					if (cache.peekFile(uriOf(random.nextInt(FILE_COUNT))) == null) {
+						throw new IllegalStateException("cached file is missing");
+					}
+				}
+				long hitTime = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				for (int i = 0; i < LOOKUP_COUNT; i++) {
+					cache.peekFile(uriOf(FILE_COUNT + i));
+				}
+				long missTime = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				cache.clear();
+				long clearTime = System.nanoTime() - start;
+				directory.delete();
+				if (round > 0) {
+					System.out.println(String.format("%-26s files=%d  hit: %5.1f us  miss: %5.1f us  clear: %5d ms",
+							layout, FILE_COUNT, hitTime / 1000f / LOOKUP_COUNT, missTime / 1000f / LOOKUP_COUNT,
+							clearTime / 1000000));
+				}
+			}
+		}
+	}
+
+	private static String uriOf(int i) {
+		return "http://example.com/images/" + i + ".jpg";
+	}
+}
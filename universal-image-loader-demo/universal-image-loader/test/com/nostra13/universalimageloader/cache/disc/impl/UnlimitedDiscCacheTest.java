@@ -0,0 +1,69 @@
+package com.nostra13.universalimageloader.cache.disc.impl;
+
+import com.nostra13.universalimageloader.cache.disc.DirectoryFanOut;
+import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
+import com.nostra13.universalimageloader.cache.disc.naming.HashCodeFileNameGenerator;
+import org.fest.assertions.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+@RunWith(RobolectricTestRunner.class)
+public class UnlimitedDiscCacheTest {
+
+	private static final String URI = "http://example.com/image.png";
+	private static final DirectoryFanOut FAN_OUT = new DirectoryFanOut(2, 16);
+
+	private final FileNameGenerator fileNameGenerator = new HashCodeFileNameGenerator();
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("disk-cache", "");
+		directory.delete();
+	}
+
+	@After
+	public void tearDown() {
+		new UnlimitedDiscCache(directory, null, fileNameGenerator, FAN_OUT).clear();
+		directory.delete();
+	}
+
+	@Test
+	public void testFileIsSavedInSubdirectory() throws IOException {
+		UnlimitedDiscCache cache = new UnlimitedDiscCache(directory, null, fileNameGenerator, FAN_OUT);
+		cache.save(URI, new ByteArrayInputStream(new byte[10]), null);
+
+		File file = cache.peekFile(URI);
+		Assertions.assertThat(file).isEqualTo(FAN_OUT.getFile(directory, fileNameGenerator.generate(URI)));
+		Assertions.assertThat(file.length()).isEqualTo(10);
+	}
+
+	@Test
+	public void testFlatFileIsMigratedOnAccess() throws IOException {
+		new UnlimitedDiscCache(directory, null, fileNameGenerator).save(URI, new ByteArrayInputStream(new byte[10]), null);
+		UnlimitedDiscCache cache = new UnlimitedDiscCache(directory, null, fileNameGenerator, FAN_OUT);
+
+		File file = cache.peekFile(URI);
+		Assertions.assertThat(file).isEqualTo(FAN_OUT.getFile(directory, fileNameGenerator.generate(URI)));
+		Assertions.assertThat(file.length()).isEqualTo(10);
+		Assertions.assertThat(new File(directory, fileNameGenerator.generate(URI)).exists()).isFalse();
+	}
+
+	@Test
+	public void testClearDeletesFilesOfSubdirectories() throws IOException {
+		UnlimitedDiscCache cache = new UnlimitedDiscCache(directory, null, fileNameGenerator, FAN_OUT);
+		for (int i = 0; i < 100; i++) {
+			cache.save(URI + i, new ByteArrayInputStream(new byte[10]), null);
+		}
+
+		cache.clear();
+		Assertions.assertThat(directory.list()).isEmpty();
+	}
+}
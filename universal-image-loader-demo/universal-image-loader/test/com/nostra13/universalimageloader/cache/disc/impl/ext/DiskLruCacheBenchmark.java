@@ -0,0 +1,193 @@
+package com.nostra13.universalimageloader.cache.disc.impl.ext;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures throughput of concurrent saves into {@link DiskLruCache} (every save is edit, write of small image and
+ * commit, i.e. DIRTY and CLEAN journal records), time of cache opening with large journal and latency of reads during
+ * eviction of many entries.<br />
+ * It's not a unit test (class name doesn't match test patterns of test run), run it explicitly:
+ * <code>mvn test -Dtest=DiskLruCacheBenchmark</code>
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DiskLruCacheBenchmark {
+
+	private static final long MEASURE_TIME = 2000; // ms
+	private static final int IMAGE_SIZE = 4 * 1024;
+	private static final int KEY_COUNT = 1000;
+	private static final int OPEN_ENTRY_COUNT = 60000;
+	private static final int EVICTION_ENTRY_COUNT = 20000;
+	private static final int HOT_KEY_COUNT = 10;
+
+	@Test
+	public void benchmarkSaves() throws Exception {
+		int[] threadCounts = {1, 4, 16, 50};
+		for (int round = 0; round < 2; round++) { // first round is warm-up
+			for (int threads : threadCounts) {
+				File directory = createDirectory();
+				DiskLruCache cache = DiskLruCache.open(directory, 1, 1, Long.MAX_VALUE, Integer.MAX_VALUE);
+				long saves = measureSaves(cache, threads);
+				cache.delete();
+				if (round > 0) {
+					System.out.println(String.format("threads=%2d  %,8d saves/s", threads, saves));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void benchmarkOpen() throws Exception {
+		for (int round = 0; round < 3; round++) { // first round is warm-up
+			File directory = createDirectory();
+			writeTextJournal(directory);
+
+			long start = System.nanoTime();
+			DiskLruCache cache = DiskLruCache.open(directory, 1, 1, Long.MAX_VALUE, Integer.MAX_VALUE);
+			long convertTime = System.nanoTime() - start;
+			cache.close();
+
+			start = System.nanoTime();
+			cache = DiskLruCache.open(directory, 1, 1, Long.MAX_VALUE, Integer.MAX_VALUE);
+			long openTime = System.nanoTime() - start;
+			cache.delete();
+			if (round > 0) {
+				System.out.println(String.format("entries=%d  text journal open+conversion: %4d ms  binary journal open: %4d ms",
+						OPEN_ENTRY_COUNT, convertTime / 1000000, openTime / 1000000));
+			}
+		}
+	}
+
+	@Test
+	public void benchmarkReadsDuringEviction() throws Exception {
+		for (int round = 0; round < 2; round++) { // first round is warm-up
+			File directory = createDirectory();
+			final DiskLruCache cache = DiskLruCache.open(directory, 1, 1, Long.MAX_VALUE, Integer.MAX_VALUE);
+			byte[] image = new byte[IMAGE_SIZE];
+			for (int i = 0; i < EVICTION_ENTRY_COUNT; i++) {
+				DiskLruCache.Editor editor = cache.edit("key" + i);
+				OutputStream os = editor.newOutputStream(0);
+				os.write(image);
+				os.close();
+				editor.commit();
+			}
+
+			// Evict all entries except hot ones (which are the most recently used ones) and read hot entries meanwhile
+			final CountDownLatch evicted = new CountDownLatch(1);
+			long evictionStart = System.nanoTime();
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						cache.setMaxSize(IMAGE_SIZE * HOT_KEY_COUNT);
+						cache.flush(); // evicts entries
+					} catch (IOException e) {
+						e.printStackTrace();
+					} finally {
+						evicted.countDown();
+					}
+				}
+			}).start();
+			long maxLatency = 0;
+			long totalLatency = 0;
+			int reads = 0;
+			while (evicted.getCount() > 0) {
+				String key = "key" + (EVICTION_ENTRY_COUNT - 1 - reads % HOT_KEY_COUNT);
+				long start = System.nanoTime();
+				DiskLruCache.Snapshot snapshot = cache.get(key);
+				long latency = System.nanoTime() - start;
+				if (snapshot != null) {
+					snapshot.close();
+				}
+				maxLatency = Math.max(maxLatency, latency);
+				totalLatency += latency;
+				reads++;
+			}
+			long evictionTime = System.nanoTime() - evictionStart;
+			cache.delete();
+			if (round > 0) {
+				System.out.println(String.format("evicted=%d in %d ms  reads=%d  avg read: %d us  max read: %d us",
+						EVICTION_ENTRY_COUNT - HOT_KEY_COUNT, evictionTime / 1000000, reads,
+						totalLatency / Math.max(reads, 1) / 1000, maxLatency / 1000));
+			}
+		}
+	}
+
+	/** Writes text journal of previous version: CLEAN record for every entry and READ records for half of them */
+	private static void writeTextJournal(File directory) throws IOException {
+		Writer writer = new BufferedWriter(new FileWriter(new File(directory, DiskLruCache.TEXT_JOURNAL_FILE)));
+		try {
+			writer.write(DiskLruCache.MAGIC + "\n" + DiskLruCache.VERSION_1 + "\n1\n1\n\n");
+			for (int i = 0; i < OPEN_ENTRY_COUNT; i++) {
+				writer.write("CLEAN " + keyOf(i) + " " + (10000 + i) + "\n");
+			}
+			for (int i = 0; i < OPEN_ENTRY_COUNT; i += 2) {
+				writer.write("READ " + keyOf(i) + "\n");
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static String keyOf(int i) {
+		return Integer.toHexString(i * 0x9E3779B9) + "0123456789abcdef0123456789abcdef";
+	}
+
+	/** Returns saves per second */
+	private long measureSaves(final DiskLruCache cache, int threadCount) throws InterruptedException {
+		final AtomicLong totalSaves = new AtomicLong();
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch finish = new CountDownLatch(threadCount);
+		final long deadline = System.currentTimeMillis() + MEASURE_TIME;
+		final byte[] image = new byte[IMAGE_SIZE];
+		for (int t = 0; t < threadCount; t++) {
+			final int thread = t;
+			new Thread() {
+				@Override
+				public void run() {
+					long saves = 0;
+					try {
+						start.await();
+						while (System.currentTimeMillis() < deadline) {
+							String key = "key" + thread + "_" + (saves % KEY_COUNT);
+							DiskLruCache.Editor editor = cache.edit(key);
+							if (editor == null) continue;
+
+							OutputStream os = editor.newOutputStream(0);
+							os.write(image);
+							os.close();
+							editor.commit();
+							saves++;
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+					totalSaves.addAndGet(saves);
+					finish.countDown();
+				}
+			}.start();
+		}
+		start.countDown();
+		finish.await();
+		return totalSaves.get() * 1000 / MEASURE_TIME;
+	}
+
+	private static File createDirectory() throws IOException {
+		File directory = File.createTempFile("disk-lru-cache", "");
+		directory.delete();
+		directory.mkdirs();
+		return directory;
+	}
+}
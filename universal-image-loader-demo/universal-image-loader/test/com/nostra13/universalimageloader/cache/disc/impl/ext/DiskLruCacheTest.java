@@ -0,0 +1,149 @@
+package com.nostra13.universalimageloader.cache.disc.impl.ext;
+
+import com.nostra13.universalimageloader.cache.disc.DirectoryFanOut;
+import org.fest.assertions.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+@RunWith(RobolectricTestRunner.class)
+public class DiskLruCacheTest {
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("disk-lru-cache", "");
+		directory.delete();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Util.deleteContents(directory);
+		directory.delete();
+	}
+
+	@Test
+	public void testPeekFile() throws IOException {
+		DiskLruCache cache = DiskLruCache.open(directory, 1, 1, Long.MAX_VALUE, Integer.MAX_VALUE);
+		set(cache, "a", "value");
+		DiskLruCache.Editor editor = cache.edit("b"); // entry isn't readable until commit
+
+		Assertions.assertThat(cache.peekFile("a", 0)).isEqualTo(new File(directory, "a.0"));
+		Assertions.assertThat(cache.peekFile("b", 0)).isNull();
+		Assertions.assertThat(cache.peekFile("c", 0)).isNull();
+
+		editor.abort();
+		cache.remove("a");
+		Assertions.assertThat(cache.peekFile("a", 0)).isNull();
+		cache.close();
+	}
+
+	@Test
+	public void testPeekedEntryIsRecentAfterReopen() throws IOException {
+		DiskLruCache cache = DiskLruCache.open(directory, 1, 1, Long.MAX_VALUE, Integer.MAX_VALUE);
+		set(cache, "a", "value");
+		set(cache, "b", "value");
+		cache.peekFile("a", 0);
+		cache.close();
+
+		cache = DiskLruCache.open(directory, 1, 1, Long.MAX_VALUE, 1);
+		cache.flush(); // evicts eldest entry
+
+		Assertions.assertThat(cache.peekFile("a", 0)).isNotNull();
+		Assertions.assertThat(cache.peekFile("b", 0)).isNull();
+		cache.close();
+	}
+
+	@Test
+	public void testEntryOfDeletedFileIsRemovedOnPeek() throws IOException {
+		DiskLruCache cache = DiskLruCache.open(directory, 1, 1, Long.MAX_VALUE, Integer.MAX_VALUE);
+		set(cache, "a", "value");
+		new File(directory, "a.0").delete();
+
+		Assertions.assertThat(cache.peekFile("a", 0)).isNull();
+		Assertions.assertThat(cache.size()).isEqualTo(0);
+
+		set(cache, "a", "value2"); // downloaded again
+		Assertions.assertThat(cache.peekFile("a", 0)).isEqualTo(new File(directory, "a.0"));
+		Assertions.assertThat(cache.get("a").getString(0)).isEqualTo("value2");
+		cache.close();
+	}
+
+	@Test
+	public void testEntryOfDeletedFileIsRemovedOnGet() throws IOException {
+		DiskLruCache cache = DiskLruCache.open(directory, 1, 1, Long.MAX_VALUE, Integer.MAX_VALUE);
+		set(cache, "a", "value");
+		new File(directory, "a.0").delete();
+
+		Assertions.assertThat(cache.get("a")).isNull();
+		Assertions.assertThat(cache.size()).isEqualTo(0);
+		cache.close();
+
+		cache = DiskLruCache.open(directory, 1, 1, Long.MAX_VALUE, Integer.MAX_VALUE);
+		Assertions.assertThat(cache.peekFile("a", 0)).isNull();
+		cache.close();
+	}
+
+	@Test
+	public void testFlatCacheIsMigrated() throws Exception {
+		DiskLruCache cache = DiskLruCache.open(directory, 1, 1, Long.MAX_VALUE, Integer.MAX_VALUE);
+		set(cache, "a", "a");
+		set(cache, "b", "b");
+		cache.close();
+
+		DirectoryFanOut fanOut = new DirectoryFanOut(2, 16);
+		cache = DiskLruCache.open(directory, 1, 1, Long.MAX_VALUE, Integer.MAX_VALUE, fanOut);
+		awaitBackgroundTasks(cache);
+
+		Assertions.assertThat(new File(directory, "a.0").exists()).isFalse();
+		Assertions.assertThat(fanOut.getFile(directory, "a.0").exists()).isTrue();
+		Assertions.assertThat(cache.get("a").getString(0)).isEqualTo("a");
+		cache.close();
+
+		cache = DiskLruCache.open(directory, 1, 1, Long.MAX_VALUE, Integer.MAX_VALUE, fanOut);
+		Assertions.assertThat(cache.get("b").getString(0)).isEqualTo("b");
+		Assertions.assertThat(cache.size()).isEqualTo(2);
+		cache.close();
+	}
+
+	@Test
+	public void testEditedEntryIsMigratedOnCommit() throws Exception {
+		DiskLruCache cache = DiskLruCache.open(directory, 1, 1, Long.MAX_VALUE, Integer.MAX_VALUE);
+		set(cache, "a", "a");
+		cache.close();
+
+		DirectoryFanOut fanOut = new DirectoryFanOut(1, 16);
+		cache = DiskLruCache.open(directory, 1, 1, Long.MAX_VALUE, Integer.MAX_VALUE, fanOut);
+		DiskLruCache.Editor editor = cache.edit("a");
+		awaitBackgroundTasks(cache); // migration skips edited entry
+		editor.set(0, "a2");
+		editor.commit();
+
+		Assertions.assertThat(cache.peekFile("a", 0)).isEqualTo(fanOut.getFile(directory, "a.0"));
+		Assertions.assertThat(cache.get("a").getString(0)).isEqualTo("a2");
+		cache.close();
+	}
+
+	/** Waits for migration and cleanup which are executed by single background thread */
+	private static void awaitBackgroundTasks(DiskLruCache cache) throws Exception {
+		cache.executorService.submit(new Callable<Void>() {
+			@Override
+			public Void call() {
+				return null;
+			}
+		}).get();
+	}
+
+	private static void set(DiskLruCache cache, String key, String value) throws IOException {
+		DiskLruCache.Editor editor = cache.edit(key);
+		editor.set(0, value);
+		editor.commit();
+	}
+}
@@ -0,0 +1,82 @@
+package com.nostra13.universalimageloader.cache.disc.impl.ext;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class JournalWriterTest {
+
+	private static final int VALUE_COUNT = 1;
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("journal", "");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testAwaitFlushedWritesRecord() throws IOException {
+		JournalWriter journal = new JournalWriter(file, VALUE_COUNT, 60 * 1000, 1024);
+		journal.append(BinaryJournal.READ, "a", null);
+		long record = journal.append(BinaryJournal.DIRTY, "b", null);
+		journal.awaitFlushed(record);
+
+		Assertions.assertThat(readRecords()).containsExactly("4 a", "2 b");
+		journal.close();
+	}
+
+	@Test
+	public void testFlusherWritesRecordsAfterDelay() throws Exception {
+		JournalWriter journal = new JournalWriter(file, VALUE_COUNT, 10, 1024);
+		journal.append(BinaryJournal.CLEAN, "a", new long[]{100});
+		Thread.sleep(500);
+
+		Assertions.assertThat(readRecords()).containsExactly("1 a 100");
+		journal.close();
+	}
+
+	@Test
+	public void testCloseWritesPendingRecords() throws IOException {
+		JournalWriter journal = new JournalWriter(file, VALUE_COUNT, 60 * 1000, 1024);
+		for (int i = 0; i < 100; i++) {
+			journal.append(BinaryJournal.READ, "key" + i, null);
+		}
+		journal.close();
+
+		Assertions.assertThat(readRecords()).hasSize(100);
+	}
+
+	/** Returns records of journal (without header) as strings: "operation key [length]" */
+	private List<String> readRecords() throws IOException {
+		List<String> records = new ArrayList<String>();
+		BinaryJournal.Reader reader = new BinaryJournal.Reader(new FileInputStream(file), VALUE_COUNT);
+		try {
+			while (reader.next()) {
+				String record = reader.getOperation() + " " + reader.getKey();
+				if (reader.getOperation() == BinaryJournal.CLEAN) {
+					record += " " + reader.getLengths()[0];
+				}
+				records.add(record);
+			}
+		} finally {
+			reader.close();
+		}
+		return records;
+	}
+}
@@ -0,0 +1,54 @@
+package com.nostra13.universalimageloader.cache.disc.impl.ext;
+
+import com.nostra13.universalimageloader.cache.disc.naming.HashCodeFileNameGenerator;
+import com.nostra13.universalimageloader.utils.DiskCacheUtils;
+import org.fest.assertions.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+@RunWith(RobolectricTestRunner.class)
+public class LruDiscCacheTest {
+
+	private static final String IMAGE_URI = "http://example.com/image.png";
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("lru-disc-cache", "");
+		directory.delete();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Util.deleteContents(directory);
+		directory.delete();
+	}
+
+	@Test
+	public void testImageIsSavedAgainAfterFileDeletion() throws IOException {
+		LruDiscCache cache = new LruDiscCache(directory, new HashCodeFileNameGenerator(), Long.MAX_VALUE);
+		save(cache);
+		File imageFile = DiskCacheUtils.findInCache(IMAGE_URI, cache);
+		Assertions.assertThat(imageFile).isNotNull();
+
+		imageFile.delete(); // e.g. cache directory was cleared by system
+		Assertions.assertThat(DiskCacheUtils.findInCache(IMAGE_URI, cache)).isNull();
+
+		Assertions.assertThat(save(cache)).isTrue(); // image is downloaded again
+		Assertions.assertThat(DiskCacheUtils.findInCache(IMAGE_URI, cache)).isEqualTo(imageFile);
+		Assertions.assertThat(imageFile.exists()).isTrue();
+		cache.close();
+	}
+
+	private static boolean save(LruDiscCache cache) throws IOException {
+		return cache.save(IMAGE_URI, new ByteArrayInputStream(new byte[] {1, 2, 3}), null);
+	}
+}
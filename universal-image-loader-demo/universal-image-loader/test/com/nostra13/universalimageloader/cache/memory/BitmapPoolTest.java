@@ -0,0 +1,107 @@
+package com.nostra13.universalimageloader.cache.memory;
+
+import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.cache.memory.impl.FuzzyKeyMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.LruMemoryCache;
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class BitmapPoolTest {
+
+	private static final int BITMAP_SIZE = 10 * 10 * 4;
+
+	@Test
+	public void testPutAndGet() {
+		BitmapPool pool = new BitmapPool(BITMAP_SIZE * 10);
+		Bitmap bitmap = createBitmap();
+
+		Assertions.assertThat(pool.put(bitmap)).isTrue();
+		Assertions.assertThat(pool.getSize()).isEqualTo(BITMAP_SIZE);
+		Assertions.assertThat(pool.get(10, 10, Bitmap.Config.ARGB_8888)).isSameAs(bitmap);
+		Assertions.assertThat(pool.get(10, 10, Bitmap.Config.ARGB_8888)).isNull();
+
+		Assertions.assertThat(pool.getSize()).isEqualTo(0);
+		Assertions.assertThat(pool.getHitCount()).isEqualTo(1);
+		Assertions.assertThat(pool.getMissCount()).isEqualTo(1);
+		Assertions.assertThat(pool.getReusedBytes()).isEqualTo(BITMAP_SIZE);
+	}
+
+	@Test
+	public void testSizeLimit() {
+		BitmapPool pool = new BitmapPool(BITMAP_SIZE * 2);
+		Bitmap eldest = createBitmap();
+		pool.put(eldest);
+		pool.put(createBitmap());
+		pool.put(createBitmap());
+
+		Assertions.assertThat(pool.getSize()).isEqualTo(BITMAP_SIZE * 2);
+		Assertions.assertThat(eldest.isRecycled()).isTrue();
+	}
+
+	@Test
+	public void testDisplayedBitmapIsPooledAfterRelease() {
+		BitmapPool pool = new BitmapPool(BITMAP_SIZE * 10);
+		Bitmap bitmap = createBitmap();
+		pool.acquire(bitmap);
+		pool.onEvicted(bitmap);
+
+		Assertions.assertThat(pool.get(10, 10, Bitmap.Config.ARGB_8888)).isNull();
+
+		pool.release(bitmap);
+
+		Assertions.assertThat(pool.get(10, 10, Bitmap.Config.ARGB_8888)).isSameAs(bitmap);
+	}
+
+	@Test
+	public void testNotDisplayedBitmapIsNotPooledOnEviction() {
+		BitmapPool pool = new BitmapPool(BITMAP_SIZE * 10);
+		pool.onEvicted(createBitmap());
+
+		Assertions.assertThat(pool.getSize()).isEqualTo(0);
+	}
+
+	@Test
+	public void testRecycledBitmapIsNotAcquired() {
+		BitmapPool pool = new BitmapPool(BITMAP_SIZE * 10);
+		MemoryCache memoryCache = new LruMemoryCache(BITMAP_SIZE * 10);
+		CacheKey key = new CacheKey("key", 0, 0);
+		Bitmap bitmap = createBitmap();
+		memoryCache.put(key, bitmap);
+		bitmap.recycle();
+
+		Assertions.assertThat(pool.acquire(memoryCache, key)).isNull();
+		pool.onEvicted(bitmap);
+		Assertions.assertThat(pool.getSize()).isEqualTo(0); // bitmap isn't tracked as displayed
+	}
+
+	@Test
+	public void testBitmapPooledDuringLookupIsNotAcquired() {
+		final BitmapPool pool = new BitmapPool(BITMAP_SIZE * 10);
+		final CacheKey key = new CacheKey("key", 0, 0);
+		final Bitmap bitmap = createBitmap();
+		pool.acquire(bitmap); // was displayed before
+		pool.release(bitmap);
+		MemoryCache memoryCache = new FuzzyKeyMemoryCache(new LruMemoryCache(BITMAP_SIZE * 10), null) {
+			@Override
+			public Bitmap get(CacheKey cacheKey) {
+				Bitmap found = super.get(cacheKey);
+				if (found == bitmap) { // another thread evicts Bitmap and reuses it for decoding
+					remove(key);
+					pool.onEvicted(bitmap);
+					pool.get(10, 10, Bitmap.Config.ARGB_8888);
+				}
+				return found;
+			}
+		};
+		memoryCache.put(key, bitmap);
+
+		Assertions.assertThat(pool.acquire(memoryCache, key)).isNull();
+	}
+
+	private static Bitmap createBitmap() {
+		return Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+	}
+}
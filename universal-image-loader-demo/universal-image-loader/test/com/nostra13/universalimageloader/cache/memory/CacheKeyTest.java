@@ -0,0 +1,35 @@
+package com.nostra13.universalimageloader.cache.memory;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class CacheKeyTest {
+
+	@Test
+	public void testLookupKeyFindsStoredKey() {
+		CacheKey key = new CacheKey("http://host/image.png", 100, 200);
+		CacheKey lookupKey = CacheKey.obtainLookupKey("http://host/image.png", 100, 200, null);
+
+		Assertions.assertThat(lookupKey).isEqualTo(key);
+		Assertions.assertThat(lookupKey.hashCode()).isEqualTo(key.hashCode());
+		Assertions.assertThat(lookupKey).isNotEqualTo(new CacheKey("http://host/image.png", 100, 200, "blur"));
+	}
+
+	@Test
+	public void testLookupKeyIsReused() {
+		CacheKey lookupKey = CacheKey.obtainLookupKey("uri1", 1, 1, null);
+		CacheKey copy = lookupKey.immutableCopy();
+
+		Assertions.assertThat(CacheKey.obtainLookupKey("uri2", 2, 2, null)).isSameAs(lookupKey);
+		Assertions.assertThat(copy).isEqualTo(new CacheKey("uri1", 1, 1));
+		Assertions.assertThat(copy.immutableCopy()).isSameAs(copy);
+	}
+
+	@Test
+	public void testToString() {
+		Assertions.assertThat(new CacheKey("uri", 100, 200).toString()).isEqualTo("uri_100x200");
+	}
+}
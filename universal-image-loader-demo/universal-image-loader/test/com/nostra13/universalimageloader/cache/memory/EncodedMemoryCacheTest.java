@@ -0,0 +1,45 @@
+package com.nostra13.universalimageloader.cache.memory;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class EncodedMemoryCacheTest {
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() {
+		EncodedMemoryCache cache = new EncodedMemoryCache(300, 100);
+		cache.put("uri1", new byte[100]);
+		cache.put("uri2", new byte[100]);
+		cache.put("uri3", new byte[100]);
+		cache.get("uri1");
+		cache.put("uri4", new byte[100]);
+
+		Assertions.assertThat(cache.get("uri1")).isNotNull();
+		Assertions.assertThat(cache.get("uri2")).isNull();
+		Assertions.assertThat(cache.getSize()).isEqualTo(300);
+	}
+
+	@Test
+	public void testTooLargeImageIsNotCached() {
+		EncodedMemoryCache cache = new EncodedMemoryCache(300, 100);
+
+		Assertions.assertThat(cache.put("uri", new byte[101])).isFalse();
+		Assertions.assertThat(cache.get("uri")).isNull();
+		Assertions.assertThat(cache.getSize()).isZero();
+	}
+
+	@Test
+	public void testHitCounts() {
+		EncodedMemoryCache cache = new EncodedMemoryCache(300);
+		cache.put("uri", new byte[10]);
+		cache.get("uri");
+		cache.get("uri");
+		cache.get("other");
+
+		Assertions.assertThat(cache.getHitCount()).isEqualTo(2);
+		Assertions.assertThat(cache.getMissCount()).isEqualTo(1);
+	}
+}
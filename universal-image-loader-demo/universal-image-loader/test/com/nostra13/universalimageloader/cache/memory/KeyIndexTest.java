@@ -0,0 +1,40 @@
+package com.nostra13.universalimageloader.cache.memory;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class KeyIndexTest {
+
+	@Test
+	public void testVariantsOfUri() {
+		KeyIndex index = new KeyIndex();
+		index.add(new CacheKey("http://host/image.png", 100, 100));
+		index.add(new CacheKey("http://host/image.png", 200, 200));
+		index.add(new CacheKey("http://host/image.png2", 100, 100));
+
+		Assertions.assertThat(index.get("http://host/image.png"))
+				.containsOnly(new CacheKey("http://host/image.png", 100, 100), new CacheKey("http://host/image.png", 200, 200));
+		Assertions.assertThat(index.get("http://host/image.png2"))
+				.containsOnly(new CacheKey("http://host/image.png2", 100, 100));
+		Assertions.assertThat(index.get("http://host/other.png")).isEmpty();
+	}
+
+	@Test
+	public void testRemove() {
+		KeyIndex index = new KeyIndex();
+		index.add(new CacheKey("uri", 100, 100));
+		index.add(new CacheKey("uri", 200, 200));
+
+		index.remove(new CacheKey("uri", 100, 100));
+		Assertions.assertThat(index.get("uri")).containsOnly(new CacheKey("uri", 200, 200));
+
+		index.remove(new CacheKey("uri", 300, 300));
+		Assertions.assertThat(index.get("uri")).containsOnly(new CacheKey("uri", 200, 200));
+
+		index.remove(new CacheKey("uri", 200, 200));
+		Assertions.assertThat(index.get("uri")).isEmpty();
+	}
+}
@@ -0,0 +1,70 @@
+package com.nostra13.universalimageloader.cache.memory;
+
+import com.nostra13.universalimageloader.cache.memory.MemoryCacheStats.EvictionCause;
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class StatsCounterTest {
+
+	@Test
+	public void testCountersAreSummedOverThreads() throws Exception {
+		final StatsCounter counter = new StatsCounter();
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 1000; j++) {
+						counter.recordHit();
+						counter.recordMiss();
+						counter.recordEviction(EvictionCause.SIZE);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		MemoryCacheStats stats = counter.snapshot(0, 0);
+		Assertions.assertThat(stats.getHitCount()).isEqualTo(4000);
+		Assertions.assertThat(stats.getMissCount()).isEqualTo(4000);
+		Assertions.assertThat(stats.getHitRate()).isEqualTo(0.5);
+		Assertions.assertThat(stats.getEvictionCount(EvictionCause.SIZE)).isEqualTo(4000);
+		Assertions.assertThat(stats.getEvictionCount()).isEqualTo(4000);
+	}
+
+	@Test
+	public void testPeakSize() {
+		StatsCounter counter = new StatsCounter();
+		counter.recordSize(100);
+		counter.recordSize(300);
+		counter.recordSize(200);
+
+		MemoryCacheStats stats = counter.snapshot(150, 3);
+		Assertions.assertThat(stats.getPeakSize()).isEqualTo(300);
+		Assertions.assertThat(stats.getSize()).isEqualTo(150);
+		Assertions.assertThat(stats.getAverageEntrySize()).isEqualTo(50);
+	}
+
+	@Test
+	public void testPlus() {
+		StatsCounter first = new StatsCounter();
+		first.recordPut();
+		first.recordEvictions(EvictionCause.TRIMMED, 2);
+		StatsCounter second = new StatsCounter();
+		second.recordPut();
+		second.recordEviction(EvictionCause.REMOVED);
+
+		MemoryCacheStats stats = first.snapshot(10, 1).plus(second.snapshot(20, 1));
+		Assertions.assertThat(stats.getPutCount()).isEqualTo(2);
+		Assertions.assertThat(stats.getEvictionCount(EvictionCause.TRIMMED)).isEqualTo(2);
+		Assertions.assertThat(stats.getEvictionCount(EvictionCause.REMOVED)).isEqualTo(1);
+		Assertions.assertThat(stats.getSize()).isEqualTo(30);
+		Assertions.assertThat(stats.getEntryCount()).isEqualTo(2);
+	}
+}
@@ -0,0 +1,73 @@
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+@RunWith(RobolectricTestRunner.class)
+public class BitmapSizeHeapTest {
+
+	@Test
+	public void testPollReturnsLargest() {
+		BitmapSizeHeap heap = new BitmapSizeHeap();
+		List<Integer> sizes = new ArrayList<Integer>();
+		Random random = new Random(0);
+		for (int i = 1; i <= 100; i++) {
+			sizes.add(i);
+		}
+		Collections.shuffle(sizes, random);
+		for (int size : sizes) {
+			Assertions.assertThat(heap.add(createBitmap(size), size)).isTrue();
+		}
+
+		for (int expected = 100; expected >= 1; expected--) {
+			Assertions.assertThat(heap.poll().getWidth()).isEqualTo(expected);
+		}
+		Assertions.assertThat(heap.poll()).isNull();
+	}
+
+	@Test
+	public void testRemove() {
+		BitmapSizeHeap heap = new BitmapSizeHeap();
+		List<Bitmap> bitmaps = new ArrayList<Bitmap>();
+		for (int i = 1; i <= 50; i++) {
+			Bitmap bitmap = createBitmap(i);
+			bitmaps.add(bitmap);
+			heap.add(bitmap, i);
+		}
+		Assertions.assertThat(heap.add(bitmaps.get(0), 1)).isFalse();
+
+		// Remove all even sizes
+		for (int i = 1; i < bitmaps.size(); i += 2) {
+			Assertions.assertThat(heap.remove(bitmaps.get(i))).isTrue();
+		}
+		Assertions.assertThat(heap.remove(bitmaps.get(1))).isFalse();
+
+		for (int expected = 49; expected >= 1; expected -= 2) {
+			Assertions.assertThat(heap.poll().getWidth()).isEqualTo(expected);
+		}
+		Assertions.assertThat(heap.poll()).isNull();
+	}
+
+	@Test
+	public void testClear() {
+		BitmapSizeHeap heap = new BitmapSizeHeap();
+		Bitmap bitmap = createBitmap(10);
+		heap.add(bitmap, 10);
+		heap.clear();
+
+		Assertions.assertThat(heap.poll()).isNull();
+		Assertions.assertThat(heap.add(bitmap, 10)).isTrue();
+	}
+
+	private static Bitmap createBitmap(int width) {
+		return Bitmap.createBitmap(width, 1, Bitmap.Config.ARGB_8888);
+	}
+}
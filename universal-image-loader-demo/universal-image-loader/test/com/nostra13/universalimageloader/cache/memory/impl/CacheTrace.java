@@ -0,0 +1,68 @@
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
+
+import java.util.Random;
+
+/**
+ * Synthetic trace of image requests for memory cache benchmarks. Popularity of images follows Zipf distribution,
+ * images have different sizes.
+ */
+class CacheTrace {
+
+	final CacheKey[] keys;
+	final Bitmap[] bitmaps;
+	private final double[] cumulativeProbabilities;
+
+	/**
+	 * @param imageCount Number of distinct images
+	 * @param exponent   Zipf exponent (skew of popularity), usually 0.7 - 1.0 for image feeds
+	 */
+	CacheTrace(int imageCount, double exponent, long seed) {
+		Random random = new Random(seed);
+		keys = new CacheKey[imageCount];
+		bitmaps = new Bitmap[imageCount];
+		for (int i = 0; i < imageCount; i++) {
+			int size = 50 + random.nextInt(150);
+			keys[i] = new CacheKey("http://site.com/image" + i + ".png", size, size);
+			bitmaps[i] = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+		}
+
+		cumulativeProbabilities = new double[imageCount];
+		double sum = 0;
+		for (int i = 0; i < imageCount; i++) {
+			sum += 1 / Math.pow(i + 1, exponent);
+			cumulativeProbabilities[i] = sum;
+		}
+		for (int i = 0; i < imageCount; i++) {
+			cumulativeProbabilities[i] /= sum;
+		}
+	}
+
+	/** Returns index of next requested image */
+	int next(Random random) {
+		double p = random.nextDouble();
+		int low = 0;
+		int high = cumulativeProbabilities.length - 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (cumulativeProbabilities[middle] < p) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/** Returns total size of all images in bytes */
+	int totalSize() {
+		int size = 0;
+		for (Bitmap bitmap : bitmaps) {
+			size += bitmap.getRowBytes() * bitmap.getHeight();
+		}
+		return size;
+	}
+}
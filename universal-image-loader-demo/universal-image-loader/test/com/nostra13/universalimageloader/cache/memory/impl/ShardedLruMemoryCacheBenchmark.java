@@ -0,0 +1,108 @@
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares {@link ShardedLruMemoryCache} with {@link LruMemoryCache}: throughput of concurrent get/put calls and hit
+ * ratio on Zipf-distributed trace.<br />
+ * It's not a unit test (class name doesn't match test patterns of test run), run it explicitly:
+ * <code>mvn test -Dtest=ShardedLruMemoryCacheBenchmark</code>
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ShardedLruMemoryCacheBenchmark {
+
+	private static final int IMAGE_COUNT = 2000;
+	private static final long MEASURE_TIME = 2000; // ms
+	/** Every N-th request of benchmark thread is "put" (image was loaded), others are "get" */
+	private static final int PUT_PERIOD = 10;
+
+	private final CacheTrace trace = new CacheTrace(IMAGE_COUNT, 0.9, 0);
+
+	@Test
+	public void benchmarkThroughput() throws Exception {
+		int cacheSize = trace.totalSize() / 4;
+		int[] threadCounts = {1, 2, 4, 8, 16};
+		for (int round = 0; round < 2; round++) { // first round is warm-up
+			for (int threads : threadCounts) {
+				long lruOps = measureThroughput(new LruMemoryCache(cacheSize), threads);
+				long shardedOps = measureThroughput(new ShardedLruMemoryCache(cacheSize), threads);
+				if (round > 0) {
+					System.out.println(String.format("threads=%2d  LruMemoryCache: %,11d ops/s  ShardedLruMemoryCache: %,11d ops/s  (x%.1f)",
+							threads, lruOps, shardedOps, (double) shardedOps / lruOps));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void compareHitRatio() throws Exception {
+		for (int divider : new int[]{20, 10, 5, 2}) {
+			int cacheSize = trace.totalSize() / divider;
+			double lruHitRatio = measureHitRatio(new LruMemoryCache(cacheSize));
+			double shardedHitRatio = measureHitRatio(new ShardedLruMemoryCache(cacheSize));
+			System.out.println(String.format("cache size=1/%-2d of images  LruMemoryCache: %.2f%%  ShardedLruMemoryCache: %.2f%%",
+					divider, lruHitRatio * 100, shardedHitRatio * 100));
+		}
+	}
+
+	private double measureHitRatio(MemoryCache cache) {
+		Random random = new Random(1);
+		int requests = 500000;
+		int hits = 0;
+		for (int i = 0; i < requests; i++) {
+			int image = trace.next(random);
+			if (cache.get(trace.keys[image]) != null) {
+				hits++;
+			} else {
+				cache.put(trace.keys[image], trace.bitmaps[image]);
+			}
+		}
+		return (double) hits / requests;
+	}
+
+	/** Returns operations per second */
+	private long measureThroughput(final MemoryCache cache, int threadCount) throws InterruptedException {
+		final AtomicLong totalOps = new AtomicLong();
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch finish = new CountDownLatch(threadCount);
+		final long deadline = System.currentTimeMillis() + MEASURE_TIME;
+		for (int t = 0; t < threadCount; t++) {
+			final int seed = t;
+			new Thread() {
+				@Override
+				public void run() {
+					Random random = new Random(seed);
+					long ops = 0;
+					try {
+						start.await();
+						while (System.currentTimeMillis() < deadline) {
+							for (int i = 0; i < 1000; i++) {
+								int image = trace.next(random);
+								if (i % PUT_PERIOD == 0) {
+									cache.put(trace.keys[image], trace.bitmaps[image]);
+								} else {
+									cache.get(trace.keys[image]);
+								}
+							}
+							ops += 1000;
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					totalOps.addAndGet(ops);
+					finish.countDown();
+				}
+			}.start();
+		}
+		start.countDown();
+		finish.await();
+		return totalOps.get() * 1000 / MEASURE_TIME;
+	}
+}
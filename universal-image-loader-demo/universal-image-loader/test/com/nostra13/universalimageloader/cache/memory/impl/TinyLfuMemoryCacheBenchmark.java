@@ -0,0 +1,70 @@
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
+import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Random;
+
+/**
+ * Trace-driven comparison of hit ratio of {@link TinyLfuMemoryCache} and {@link LruMemoryCache}.
+ * {@link UsingFreqLimitedMemoryCache} isn't compared: its weak references aren't cleared without real memory pressure
+ * so its hit ratio can't be measured in JVM. Traces:
+ * <ul>
+ * <li><b>zipf</b> - popularity of images follows Zipf distribution (avatars, popular posts)</li>
+ * <li><b>feed</b> - the same requests mixed with images which are shown only once (scrolling of long feed)</li>
+ * </ul>
+ * It's not a unit test (class name doesn't match test patterns of test run), run it explicitly:
+ * <code>mvn test -Dtest=TinyLfuMemoryCacheBenchmark</code>
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TinyLfuMemoryCacheBenchmark {
+
+	private static final int IMAGE_COUNT = 2000;
+	private static final int REQUEST_COUNT = 300000;
+	/** Part of requests in "feed" trace which request images shown only once */
+	private static final double ONE_TIME_SHARE = 0.3;
+
+	private final CacheTrace trace = new CacheTrace(IMAGE_COUNT, 0.8, 0);
+	private final Bitmap oneTimeBitmap = Bitmap.createBitmap(120, 120, Bitmap.Config.ARGB_8888);
+
+	@Test
+	public void compareHitRatio() {
+		for (boolean feed : new boolean[]{false, true}) {
+			for (int divider : new int[]{20, 10, 5}) {
+				int cacheSize = trace.totalSize() / divider;
+				double lru = measureHitRatio(new LruMemoryCache(cacheSize), feed);
+				double tinyLfu = measureHitRatio(new TinyLfuMemoryCache(cacheSize), feed);
+				System.out.println(String.format("%s cache size=1/%-2d  LRU: %.2f%%  TinyLFU: %.2f%%",
+						feed ? "feed" : "zipf", divider, lru * 100, tinyLfu * 100));
+			}
+		}
+	}
+
+	private double measureHitRatio(MemoryCache cache, boolean feed) {
+		Random random = new Random(1);
+		int hits = 0;
+		int oneTimeImages = 0;
+		for (int i = 0; i < REQUEST_COUNT; i++) {
+			CacheKey key;
+			Bitmap bitmap;
+			if (feed && random.nextDouble() < ONE_TIME_SHARE) {
+				key = new CacheKey("http://site.com/feed" + oneTimeImages++ + ".png", 120, 120);
+				bitmap = oneTimeBitmap;
+			} else {
+				int image = trace.next(random);
+				key = trace.keys[image];
+				bitmap = trace.bitmaps[image];
+			}
+			if (cache.get(key) != null) {
+				hits++;
+			} else {
+				cache.put(key, bitmap);
+			}
+		}
+		return (double) hits / REQUEST_COUNT;
+	}
+}
@@ -0,0 +1,94 @@
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class TinyLfuMemoryCacheTest {
+
+	private static final int BITMAP_SIZE = 10 * 10 * 4;
+	private static final CacheKey KEY = new CacheKey("key", 0, 0);
+
+	@Test
+	public void testSizeLimit() {
+		TinyLfuMemoryCache cache = new TinyLfuMemoryCache(BITMAP_SIZE * 10);
+		for (int i = 0; i < 100; i++) {
+			CacheKey key = new CacheKey("key" + i, 0, 0);
+			cache.get(key);
+			cache.put(key, createBitmap());
+		}
+
+		Assertions.assertThat(cache.keys().size()).isLessThanOrEqualTo(10);
+	}
+
+	@Test
+	public void testFrequentKeySurvivesScan() {
+		TinyLfuMemoryCache cache = new TinyLfuMemoryCache(BITMAP_SIZE * 10);
+		CacheKey frequentKey = new CacheKey("frequent", 0, 0);
+		cache.put(frequentKey, createBitmap());
+		for (int i = 0; i < 5; i++) {
+			cache.get(frequentKey);
+		}
+
+		for (int i = 0; i < 100; i++) {
+			CacheKey key = new CacheKey("once" + i, 0, 0);
+			cache.get(key);
+			cache.put(key, createBitmap());
+		}
+
+		Assertions.assertThat(cache.get(frequentKey)).isNotNull();
+	}
+
+	@Test
+	public void testRemove() {
+		TinyLfuMemoryCache cache = new TinyLfuMemoryCache(BITMAP_SIZE * 10);
+		Bitmap bitmap = createBitmap();
+		cache.put(KEY, bitmap);
+
+		Assertions.assertThat(cache.remove(KEY)).isSameAs(bitmap);
+		Assertions.assertThat(cache.get(KEY)).isNull();
+		Assertions.assertThat(cache.keys()).isEmpty();
+	}
+
+	@Test
+	public void testTrim() {
+		TinyLfuMemoryCache cache = new TinyLfuMemoryCache(BITMAP_SIZE * 10);
+		for (int i = 0; i < 10; i++) {
+			cache.put(new CacheKey("key" + i, 0, 0), createBitmap());
+		}
+
+		cache.trim(0.5f);
+		Assertions.assertThat(cache.keys().size()).isLessThanOrEqualTo(5);
+
+		cache.trim(0f);
+		Assertions.assertThat(cache.keys()).isEmpty();
+	}
+
+	@Test
+	public void testKeysForImageUriSkipEvicted() {
+		TinyLfuMemoryCache cache = new TinyLfuMemoryCache(BITMAP_SIZE * 10);
+		for (int i = 0; i < 100; i++) {
+			CacheKey key = new CacheKey("uri", i, i);
+			cache.get(key);
+			cache.put(key, createBitmap());
+		}
+
+		Assertions.assertThat(cache.keysForImageUri("uri")).containsOnly(cache.keys().toArray());
+	}
+
+	@Test
+	public void testTooLargeBitmapIsNotCached() {
+		TinyLfuMemoryCache cache = new TinyLfuMemoryCache(BITMAP_SIZE - 1);
+
+		Assertions.assertThat(cache.put(KEY, createBitmap())).isFalse();
+		Assertions.assertThat(cache.get(KEY)).isNull();
+	}
+
+	private static Bitmap createBitmap() {
+		return Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+	}
+}
@@ -0,0 +1,78 @@
+package com.nostra13.universalimageloader.core;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.view.View;
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
+import org.fest.assertions.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class DisplayedBitmapsTest {
+
+	private static final int BITMAP_SIZE = 10 * 10 * 4;
+
+	private BitmapPool pool;
+	private DisplayedBitmaps displayedBitmaps;
+
+	@Before
+	public void setUp() {
+		pool = new BitmapPool(BITMAP_SIZE * 10);
+		displayedBitmaps = new DisplayedBitmaps(pool);
+	}
+
+	@Test
+	public void testBitmapIsReleasedWhenViewDisplaysAnother() {
+		View view = new View(new Activity());
+		Bitmap bitmap = displayEvicted(view);
+
+		displayedBitmaps.put(view, acquire(createBitmap()));
+
+		Assertions.assertThat(pool.getSize()).isEqualTo(BITMAP_SIZE);
+		Assertions.assertThat(pool.get(10, 10, Bitmap.Config.ARGB_8888)).isSameAs(bitmap);
+	}
+
+	@Test
+	public void testBitmapOfAnotherViewIsNotReleased() {
+		Activity activity = new Activity();
+		View view = new View(activity);
+		View anotherView = new View(activity);
+		displayEvicted(view);
+		displayEvicted(anotherView);
+
+		displayedBitmaps.remove(anotherView);
+
+		Assertions.assertThat(pool.getSize()).isEqualTo(BITMAP_SIZE);
+	}
+
+	@Test
+	public void testClearReleasesAllBitmaps() {
+		Activity activity = new Activity();
+		displayEvicted(new View(activity));
+		displayEvicted(new View(activity));
+
+		displayedBitmaps.clear();
+
+		Assertions.assertThat(pool.getSize()).isEqualTo(BITMAP_SIZE * 2);
+	}
+
+	/** Displays Bitmap in view, then Bitmap is evicted from memory cache */
+	private Bitmap displayEvicted(View view) {
+		Bitmap bitmap = acquire(createBitmap());
+		displayedBitmaps.put(view, bitmap);
+		pool.onEvicted(bitmap);
+		return bitmap;
+	}
+
+	private Bitmap acquire(Bitmap bitmap) {
+		pool.acquire(bitmap);
+		return bitmap;
+	}
+
+	private static Bitmap createBitmap() {
+		return Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+	}
+}
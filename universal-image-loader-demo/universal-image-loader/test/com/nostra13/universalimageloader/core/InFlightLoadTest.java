@@ -0,0 +1,40 @@
+package com.nostra13.universalimageloader.core;
+
+import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
+import com.nostra13.universalimageloader.core.assist.ImageScaleType;
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class InFlightLoadTest {
+
+	private static final CacheKey KEY = new CacheKey("http://example.com/image.png", 10, 10);
+
+	@Test
+	public void testLoadsWithEqualOptionsHaveEqualKeys() {
+		InFlightLoad.Key key = new InFlightLoad.Key(KEY, new DisplayImageOptions.Builder().build());
+		InFlightLoad.Key otherKey = new InFlightLoad.Key(new CacheKey("http://example.com/image.png", 10, 10),
+				new DisplayImageOptions.Builder().build());
+
+		Assertions.assertThat(otherKey).isEqualTo(key);
+		Assertions.assertThat(otherKey.hashCode()).isEqualTo(key.hashCode());
+	}
+
+	@Test
+	public void testLoadsWithDifferentDecodingOptionsHaveDifferentKeys() {
+		DisplayImageOptions options = new DisplayImageOptions.Builder().build();
+		InFlightLoad.Key key = new InFlightLoad.Key(KEY, options);
+
+		Assertions.assertThat(new InFlightLoad.Key(KEY, new DisplayImageOptions.Builder()
+				.bitmapConfig(Bitmap.Config.RGB_565).build())).isNotEqualTo(key);
+		Assertions.assertThat(new InFlightLoad.Key(KEY, new DisplayImageOptions.Builder()
+				.imageScaleType(ImageScaleType.EXACTLY).build())).isNotEqualTo(key);
+		Assertions.assertThat(new InFlightLoad.Key(KEY, new DisplayImageOptions.Builder()
+				.considerExifParams(true).build())).isNotEqualTo(key);
+		Assertions.assertThat(new InFlightLoad.Key(KEY, new DisplayImageOptions.Builder()
+				.extraForDownloader("token").build())).isNotEqualTo(key);
+	}
+}
@@ -0,0 +1,157 @@
+package com.nostra13.universalimageloader.core;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.view.View;
+import com.nostra13.universalimageloader.cache.disc.impl.UnlimitedDiscCache;
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
+import com.nostra13.universalimageloader.cache.memory.impl.LruMemoryCache;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.assist.LoadedFrom;
+import com.nostra13.universalimageloader.core.assist.ViewScaleType;
+import com.nostra13.universalimageloader.core.decode.ImageDecoder;
+import com.nostra13.universalimageloader.core.decode.ImageDecodingInfo;
+import com.nostra13.universalimageloader.core.display.BitmapDisplayer;
+import com.nostra13.universalimageloader.core.download.ImageDownloader;
+import com.nostra13.universalimageloader.core.imageaware.ImageAware;
+import com.nostra13.universalimageloader.core.imageaware.NonViewAware;
+import com.nostra13.universalimageloader.core.listener.SimpleImageLoadingListener;
+import com.nostra13.universalimageloader.utils.MemoryCacheUtils;
+import org.fest.assertions.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class LoadAndDisplayImageTaskTest {
+
+	private static final String URI = "http://example.com/image.png";
+	private static final ImageSize TARGET_SIZE = new ImageSize(10, 10);
+	private static final long TIMEOUT = 5000; // ms
+
+	private final List<Runnable> decodingQueue = new CopyOnWriteArrayList<Runnable>();
+	private final List<Thread> decodingThreads = new CopyOnWriteArrayList<Thread>();
+	private final CountDownLatch displayed = new CountDownLatch(1);
+	private volatile LoadedFrom displayedFrom;
+	private volatile boolean rejectDecoding;
+
+	private File directory;
+	private UnlimitedDiscCache diskCache;
+	private ImageLoaderEngine engine;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("load-and-display", "");
+		directory.delete();
+		diskCache = new UnlimitedDiscCache(directory);
+
+		ImageLoaderConfiguration configuration = new ImageLoaderConfiguration.Builder(new Activity())
+				.taskExecutor(new Executor() {
+					@Override
+					public void execute(Runnable r) {
+						r.run(); // I/O stage is executed in engine's distributor thread
+					}
+				})
+				.taskExecutorForCachedImages(new Executor() {
+					@Override
+					public void execute(Runnable r) {
+						if (rejectDecoding) throw new RejectedExecutionException();
+						decodingQueue.add(r);
+					}
+				})
+				.diskCache(diskCache)
+				.memoryCache(new LruMemoryCache(1024))
+				.imageDownloader(new ImageDownloader() {
+					@Override
+					public InputStream getStream(String imageUri, Object extra) {
+						return new ByteArrayInputStream(new byte[10]);
+					}
+				})
+				.imageDecoder(new ImageDecoder() {
+					@Override
+					public Bitmap decode(ImageDecodingInfo imageDecodingInfo) {
+						decodingThreads.add(Thread.currentThread());
+						return Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888);
+					}
+				})
+				.build();
+		engine = new ImageLoaderEngine(configuration);
+	}
+
+	@After
+	public void tearDown() {
+		engine.stop();
+		diskCache.clear();
+		directory.delete();
+	}
+
+	@Test
+	public void testDownloadedImageIsDecodedAtDecodingStage() throws Exception {
+		submitTask();
+		Assertions.assertThat(waitForDecodingQueue()).isTrue();
+		Assertions.assertThat(decodingThreads).isEmpty();
+
+		decodingQueue.get(0).run();
+
+		Assertions.assertThat(displayed.await(TIMEOUT, TimeUnit.MILLISECONDS)).isTrue();
+		Assertions.assertThat(decodingThreads).containsExactly(Thread.currentThread());
+		Assertions.assertThat(displayedFrom).isEqualTo(LoadedFrom.NETWORK);
+	}
+
+	@Test
+	public void testImageIsDecodedAtIoStageIfDecodingStageRejectsTask() throws Exception {
+		rejectDecoding = true;
+		submitTask();
+
+		Assertions.assertThat(displayed.await(TIMEOUT, TimeUnit.MILLISECONDS)).isTrue();
+		Assertions.assertThat(decodingQueue).isEmpty();
+		Assertions.assertThat(decodingThreads).hasSize(1);
+		Assertions.assertThat(decodingThreads.get(0)).isNotEqualTo(Thread.currentThread());
+		Assertions.assertThat(displayedFrom).isEqualTo(LoadedFrom.NETWORK);
+	}
+
+	private void submitTask() {
+		DisplayImageOptions options = new DisplayImageOptions.Builder()
+				.cacheOnDisk(true)
+				.displayer(new BitmapDisplayer() {
+					@Override
+					public void display(Bitmap bitmap, ImageAware imageAware, LoadedFrom loadedFrom) {
+						displayedFrom = loadedFrom;
+					}
+				})
+				.build();
+		ImageAware imageAware = new NonViewAware(URI, TARGET_SIZE, ViewScaleType.CROP);
+		CacheKey memoryCacheKey = MemoryCacheUtils.generateKey(URI, TARGET_SIZE, options);
+		engine.prepareDisplayTaskFor(imageAware, memoryCacheKey);
+
+		ImageLoadingInfo imageLoadingInfo = new ImageLoadingInfo(URI, imageAware, TARGET_SIZE, memoryCacheKey,
+				options, new SimpleImageLoadingListener() {
+			@Override
+			public void onLoadingComplete(String imageUri, View view, Bitmap loadedImage) {
+				displayed.countDown();
+			}
+		}, null);
+		engine.submit(new LoadAndDisplayImageTask(engine, imageLoadingInfo, null));
+	}
+
+	private boolean waitForDecodingQueue() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (decodingQueue.isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		return !decodingQueue.isEmpty();
+	}
+}
@@ -0,0 +1,115 @@
+package com.nostra13.universalimageloader.core;
+
+import android.app.Activity;
+import com.nostra13.universalimageloader.cache.disc.impl.UnlimitedDiscCache;
+import com.nostra13.universalimageloader.cache.memory.impl.LruMemoryCache;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.assist.PrefetchTarget;
+import com.nostra13.universalimageloader.core.download.ImageDownloader;
+import org.fest.assertions.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(RobolectricTestRunner.class)
+public class PrefetchTaskTest {
+
+	private static final String URI = "http://example.com/image%d.png";
+	private static final ImageSize TARGET_SIZE = new ImageSize(10, 10);
+	private static final long TIMEOUT = 5000; // ms
+
+	private final CountDownLatch downloadStarted = new CountDownLatch(1);
+	private final CountDownLatch downloadReleased = new CountDownLatch(1);
+	private final AtomicInteger downloads = new AtomicInteger();
+
+	private File directory;
+	private UnlimitedDiscCache diskCache;
+	private ImageLoaderEngine engine;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("prefetch", "");
+		directory.delete();
+		diskCache = new UnlimitedDiscCache(directory);
+
+		ImageLoaderConfiguration configuration = new ImageLoaderConfiguration.Builder(new Activity())
+				.diskCache(diskCache)
+				.memoryCache(new LruMemoryCache(1024))
+				.imageDownloader(new BlockingDownloader())
+				.build();
+		engine = new ImageLoaderEngine(configuration);
+	}
+
+	@After
+	public void tearDown() {
+		downloadReleased.countDown();
+		engine.stop();
+		diskCache.clear();
+		directory.delete();
+	}
+
+	@Test
+	public void testStopFinishesGroupOfDroppedTasks() throws Exception {
+		PrefetchGroup group = prefetch(3);
+		Assertions.assertThat(downloadStarted.await(TIMEOUT, TimeUnit.MILLISECONDS)).isTrue();
+
+		engine.stop();
+		downloadReleased.countDown();
+
+		Assertions.assertThat(group.isCancelled()).isTrue();
+		Assertions.assertThat(waitUntilFinished(group)).isTrue();
+		Assertions.assertThat(downloads.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void testPrefetchIsExecutedAfterStop() throws Exception {
+		engine.stop();
+		downloadReleased.countDown();
+
+		PrefetchGroup group = prefetch(1);
+
+		Assertions.assertThat(waitUntilFinished(group)).isTrue();
+		Assertions.assertThat(diskCache.peekFile(String.format(URI, 0))).isNotNull();
+	}
+
+	private PrefetchGroup prefetch(int count) {
+		PrefetchGroup group = new PrefetchGroup(count);
+		for (int i = 0; i < count; i++) {
+			engine.submit(new PrefetchTask(engine, group, String.format(URI, i), TARGET_SIZE, PrefetchTarget.DISK));
+		}
+		return group;
+	}
+
+	private static boolean waitUntilFinished(PrefetchGroup group) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (!group.isFinished() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		return group.isFinished();
+	}
+
+	private class BlockingDownloader implements ImageDownloader {
+		@Override
+		public InputStream getStream(String imageUri, Object extra) throws IOException {
+			downloads.incrementAndGet();
+			downloadStarted.countDown();
+			try {
+				downloadReleased.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt(); // stopping of engine interrupts prefetch thread
+			}
+			return new ByteArrayInputStream(new byte[10]);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.nostra13.universalimageloader.core.assist;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micro-benchmark which compares {@link StripedIntHashMap} with synchronized <code>HashMap&lt;Integer, String&gt;</code>
+ * (previous storage of cache keys for image aware views) under contention. Every thread executes the mix of
+ * ImageLoaderEngine operations: mostly reads (checks whether view was reused) and some writes (display requests).
+ * <br />
+ * Run it with <code>main()</code>, it's not a unit test.
+ */
+public class StripedIntHashMapBenchmark {
+
+	private static final int VIEW_COUNT = 512;
+	private static final int READS_PER_WRITE = 8;
+	private static final long MEASURE_TIME = 2000; // ms
+	private static final String[] CACHE_KEYS = new String[64];
+
+	/** Consumes read results so JIT doesn't eliminate reads */
+	private static volatile int sink;
+
+	static {
+		for (int i = 0; i < CACHE_KEYS.length; i++) {
+			CACHE_KEYS[i] = "http://site.com/image" + i + ".png_100x100";
+		}
+	}
+
+	private interface IntMap {
+		String get(int key);
+
+		void put(int key, String value);
+	}
+
+	public static void main(String[] args) throws Exception {
+		int[] threadCounts = {1, 2, 4, 8, 16};
+		for (int round = 0; round < 2; round++) { // first round is warm-up
+			boolean print = round > 0;
+			for (int threads : threadCounts) {
+				long synchronizedOps = run(newSynchronizedMap(), threads);
+				long stripedOps = run(newStripedMap(), threads);
+				if (print) {
+					System.out.println(String.format("threads=%2d  synchronized HashMap: %,12d ops/s  StripedIntHashMap: %,12d ops/s  (x%.1f)",
+							threads, synchronizedOps, stripedOps, (double) stripedOps / synchronizedOps));
+				}
+			}
+		}
+	}
+
+	private static IntMap newSynchronizedMap() {
+		final Map<Integer, String> map = Collections.synchronizedMap(new HashMap<Integer, String>());
+		return new IntMap() {
+			@Override
+			public String get(int key) {
+				return map.get(key);
+			}
+
+			@Override
+			public void put(int key, String value) {
+				map.put(key, value);
+			}
+		};
+	}
+
+	private static IntMap newStripedMap() {
+		final StripedIntHashMap<String> map = new StripedIntHashMap<String>();
+		return new IntMap() {
+			@Override
+			public String get(int key) {
+				return map.get(key);
+			}
+
+			@Override
+			public void put(int key, String value) {
+				map.put(key, value);
+			}
+		};
+	}
+
+	/** Returns operations per second */
+	private static long run(final IntMap map, int threadCount) throws InterruptedException {
+		final int[] viewIds = new int[VIEW_COUNT];
+		Random random = new Random(0);
+		for (int i = 0; i < VIEW_COUNT; i++) {
+			viewIds[i] = random.nextInt(); // identity hash codes of views
+			map.put(viewIds[i], CACHE_KEYS[i % CACHE_KEYS.length]);
+		}
+
+		final AtomicLong totalOps = new AtomicLong();
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch finish = new CountDownLatch(threadCount);
+		final long[] deadline = new long[1];
+		for (int t = 0; t < threadCount; t++) {
+			final int seed = t;
+			new Thread() {
+				@Override
+				public void run() {
+					Random random = new Random(seed);
+					long ops = 0;
+					int readLength = 0;
+					try {
+						start.await();
+						while (System.currentTimeMillis() < deadline[0]) {
+							for (int i = 0; i < 1000; i++) {
+								int id = viewIds[random.nextInt(VIEW_COUNT)];
+								if (i % (READS_PER_WRITE + 1) == 0) {
+									map.put(id, CACHE_KEYS[i % CACHE_KEYS.length]);
+								} else {
+									String key = map.get(id);
+									readLength += key == null ? 0 : key.length();
+								}
+							}
+							ops += 1000;
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					sink = readLength;
+					totalOps.addAndGet(ops);
+					finish.countDown();
+				}
+			}.start();
+		}
+		deadline[0] = System.currentTimeMillis() + MEASURE_TIME;
+		start.countDown();
+		finish.await();
+		return totalOps.get() * 1000 / MEASURE_TIME;
+	}
+}
@@ -0,0 +1,79 @@
+package com.nostra13.universalimageloader.core.assist;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+@RunWith(RobolectricTestRunner.class)
+public class StripedIntHashMapTest {
+
+	@Test
+	public void testPutGetRemove() throws Exception {
+		StripedIntHashMap<String> map = new StripedIntHashMap<String>();
+		Assertions.assertThat(map.put(1, "a")).isNull();
+		Assertions.assertThat(map.put(0, "zero")).isNull();
+		Assertions.assertThat(map.put(-1, "minus")).isNull();
+		Assertions.assertThat(map.put(1, "b")).isEqualTo("a");
+
+		Assertions.assertThat(map.get(1)).isEqualTo("b");
+		Assertions.assertThat(map.get(0)).isEqualTo("zero");
+		Assertions.assertThat(map.get(-1)).isEqualTo("minus");
+		Assertions.assertThat(map.get(2)).isNull();
+		Assertions.assertThat(map.size()).isEqualTo(3);
+
+		Assertions.assertThat(map.remove(0)).isEqualTo("zero");
+		Assertions.assertThat(map.get(0)).isNull();
+		Assertions.assertThat(map.size()).isEqualTo(2);
+	}
+
+	@Test
+	public void testRemoveIfMapped() throws Exception {
+		StripedIntHashMap<String> map = new StripedIntHashMap<String>();
+		String value = "value";
+		map.put(7, value);
+
+		Assertions.assertThat(map.remove(7, new String("value"))).isFalse();
+		Assertions.assertThat(map.get(7)).isSameAs(value);
+		Assertions.assertThat(map.remove(7, value)).isTrue();
+		Assertions.assertThat(map.isEmpty()).isTrue();
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		StripedIntHashMap<Integer> map = new StripedIntHashMap<Integer>(4);
+		for (int i = 0; i < 1000; i++) {
+			map.put(i, i);
+		}
+		Assertions.assertThat(map.size()).isEqualTo(1000);
+
+		map.clear();
+		Assertions.assertThat(map.isEmpty()).isTrue();
+		Assertions.assertThat(map.get(500)).isNull();
+	}
+
+	@Test
+	public void testRandomOperationsMatchHashMap() throws Exception {
+		Random random = new Random(42);
+		StripedIntHashMap<Integer> map = new StripedIntHashMap<Integer>(2);
+		Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+		for (int i = 0; i < 100000; i++) {
+			int key = random.nextInt(300) << 16; // clustered keys collide in the same slots
+			Integer value = random.nextInt();
+			if (random.nextBoolean()) {
+				Assertions.assertThat(map.put(key, value)).isEqualTo(expected.put(key, value));
+			} else {
+				Assertions.assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+			}
+		}
+
+		Assertions.assertThat(map.size()).isEqualTo(expected.size());
+		for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+			Assertions.assertThat(map.get(entry.getKey())).isEqualTo(entry.getValue());
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package com.nostra13.universalimageloader.utils;
+
+import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.cache.memory.CacheKey;
+import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.LruMemoryCache;
+import com.nostra13.universalimageloader.core.DisplayImageOptions;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.process.BitmapProcessor;
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class MemoryCacheUtilsTest {
+
+	private static final String URI = "http://example.com/image.png";
+	private static final ImageSize SIZE = new ImageSize(10, 10);
+
+	@Test
+	public void testKeyWithoutPreProcessorHasNoProcessorId() {
+		CacheKey key = MemoryCacheUtils.generateKey(URI, SIZE, new DisplayImageOptions.Builder().build());
+
+		Assertions.assertThat(key.getProcessorId()).isNull();
+		Assertions.assertThat(key).isEqualTo(MemoryCacheUtils.generateKey(URI, SIZE));
+	}
+
+	@Test
+	public void testDifferentPreProcessorsHaveDifferentKeys() {
+		BitmapProcessor processor = new TestProcessor();
+		CacheKey key = MemoryCacheUtils.generateKey(URI, SIZE, optionsWith(processor));
+
+		Assertions.assertThat(key.getProcessorId()).isNotNull();
+		Assertions.assertThat(MemoryCacheUtils.generateKey(URI, SIZE, optionsWith(processor))).isEqualTo(key);
+		Assertions.assertThat(MemoryCacheUtils.generateLookupKey(URI, SIZE, optionsWith(processor))).isEqualTo(key);
+		Assertions.assertThat(MemoryCacheUtils.generateKey(URI, SIZE, optionsWith(new TestProcessor())))
+				.isNotEqualTo(key);
+		Assertions.assertThat(MemoryCacheUtils.generateKey(URI, SIZE)).isNotEqualTo(key);
+	}
+
+	@Test
+	public void testNearestLargerKeyIsProcessedBySamePreProcessor() {
+		DisplayImageOptions options = optionsWith(new TestProcessor());
+		MemoryCache memoryCache = new LruMemoryCache(1024 * 1024);
+		memoryCache.put(MemoryCacheUtils.generateKey(URI, new ImageSize(20, 20)), createBitmap());
+		CacheKey processedKey = MemoryCacheUtils.generateKey(URI, new ImageSize(30, 30), options);
+		memoryCache.put(processedKey, createBitmap());
+
+		CacheKey missedKey = MemoryCacheUtils.generateKey(URI, SIZE, options);
+
+		Assertions.assertThat(MemoryCacheUtils.findNearestLargerKey(missedKey, memoryCache)).isEqualTo(processedKey);
+	}
+
+	private static DisplayImageOptions optionsWith(BitmapProcessor preProcessor) {
+		return new DisplayImageOptions.Builder().preProcessor(preProcessor).build();
+	}
+
+	private static Bitmap createBitmap() {
+		return Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888);
+	}
+
+	private static class TestProcessor implements BitmapProcessor {
+		@Override
+		public Bitmap process(Bitmap bitmap) {
+			return bitmap;
+		}
+	}
+}